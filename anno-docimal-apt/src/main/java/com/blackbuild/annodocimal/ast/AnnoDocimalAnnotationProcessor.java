@@ -27,8 +27,10 @@ import com.blackbuild.annodocimal.annotations.InlineJavadocs;
 import com.google.auto.service.AutoService;
 
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.PackageElement;
@@ -38,8 +40,12 @@ import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Annotation processor that processes the {@link InlineJavadocs} annotation.
@@ -52,13 +58,50 @@ import java.util.Set;
  *     <li>No global transformation, only classes with {@link InlineJavadocs} are processed</li>
  *     <li>storage is in a properties file, not in a json structure. This reduces dependencies.</li>
  * </ul>.
+ * <p>
+ * With the processor option {@code annodocimal.output=bundle}, the documentation of all classes of the compilation is
+ * instead written to a single indexed bundle, {@code META-INF/annodocimal/<module>.idx}, when processing is over. The
+ * module name is taken from the option {@code annodocimal.module} and defaults to {@code documentation}.
+ * <p>
+ * The processor is registered as a dynamic Gradle incremental processor. Writing properties, it is isolating: each
+ * resource is generated from a single type and names its top-level type as the only originating element, so Gradle
+ * recompiles only changed sources and deletes the resources of removed types, nested ones included. A bundle covers
+ * the whole compilation, so bundling keeps the processor non-incremental.
  */
 @SupportedAnnotationTypes("com.blackbuild.annodocimal.annotations.InlineJavadocs")
+@SupportedOptions({"annodocimal.output", "annodocimal.module"})
 @AutoService(javax.annotation.processing.Processor.class)
 public class AnnoDocimalAnnotationProcessor extends AbstractProcessor {
 
+    private static final String OUTPUT_OPTION = "annodocimal.output";
+    private static final String MODULE_OPTION = "annodocimal.module";
+    private static final String DEFAULT_MODULE = "documentation";
+    private static final Pattern MODULE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final String GRADLE_ISOLATING_OPTION = "org.gradle.annotation.processing.isolating";
+
     private JavadocPropertiesBuilder javadocPropertiesBuilder;
 
+    // only set when the documentation is bundled
+    private DocumentationBundleWriter bundle;
+    private final List<Element> bundledElements = new ArrayList<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        if (isBundled()) {
+            bundle = new DocumentationBundleWriter();
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> options = new HashSet<>(super.getSupportedOptions());
+        if (bundle == null) {
+            options.add(GRADLE_ISOLATING_OPTION);
+        }
+        return options;
+    }
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
         javadocPropertiesBuilder = new JavadocPropertiesBuilder(processingEnv);
@@ -69,6 +112,20 @@ public class AnnoDocimalAnnotationProcessor extends AbstractProcessor {
                     .map(TypeElement.class::cast)
                     .forEach(this::generateJavadocForClass);
         }
+
+        if (roundEnvironment.processingOver() && bundle != null && !bundle.isEmpty()) {
+            writeBundle();
+        }
+        return false;
+    }
+
+    private boolean isBundled() {
+        String output = processingEnv.getOptions().getOrDefault(OUTPUT_OPTION, "properties");
+        if (output.equals("bundle")) return true;
+        if (!output.equals("properties")) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unknown value '" + output + "' of " + OUTPUT_OPTION + ", expected 'properties' or 'bundle'");
+        }
         return false;
     }
 
@@ -89,8 +146,32 @@ public class AnnoDocimalAnnotationProcessor extends AbstractProcessor {
 
     private void doGenerateJavadocForClass(TypeElement classElement) throws IOException {
         Properties classJavadoc = javadocPropertiesBuilder.getClassJavadoc(classElement);
-        if (classJavadoc != null) {
+        if (classJavadoc == null) return;
+        if (bundle == null) {
             writeJavadocProperties(classElement, classJavadoc);
+        } else if (!classJavadoc.isEmpty()) {
+            bundle.add(processingEnv.getElementUtils().getBinaryName(classElement).toString(), classJavadoc);
+            bundledElements.add(classElement);
+        }
+    }
+
+    private void writeBundle() {
+        String module = processingEnv.getOptions().getOrDefault(MODULE_OPTION, DEFAULT_MODULE);
+        if (!MODULE_NAME.matcher(module).matches()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Invalid " + MODULE_OPTION + " '" + module + "', expected letters, digits, '.', '_' or '-'");
+            return;
+        }
+        String relativeName = DocumentationBundleWriter.BUNDLE_DIRECTORY + module + DocumentationBundleWriter.BUNDLE_SUFFIX;
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    relativeName, bundledElements.toArray(new Element[0]));
+            try (OutputStream os = resource.openOutputStream()) {
+                os.write(bundle.toByteArray());
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager()
+                    .printMessage(Diagnostic.Kind.ERROR, "Writing documentation bundle " + relativeName + " failed; " + ex);
         }
     }
 
@@ -106,7 +187,17 @@ public class AnnoDocimalAnnotationProcessor extends AbstractProcessor {
         String packageName = packageElement.getQualifiedName().toString();
         String relativeName = getClassName(classElement) + InlineJavadocs.JAVADOC_PROPERTIES_SUFFIX;
         return processingEnv.getFiler()
-                .createResource(StandardLocation.CLASS_OUTPUT, packageName, relativeName, classElement);
+                .createResource(StandardLocation.CLASS_OUTPUT, packageName, relativeName, getTopLevelType(classElement));
+    }
+
+    private static TypeElement getTopLevelType(TypeElement typeElement) {
+        // isolating processing requires the top-level type as originating element, also for nested classes
+        Element enclosing = typeElement.getEnclosingElement();
+        while (enclosing instanceof TypeElement enclosingType) {
+            typeElement = enclosingType;
+            enclosing = typeElement.getEnclosingElement();
+        }
+        return typeElement;
     }
 
     private static PackageElement getPackageElement(Element element) {
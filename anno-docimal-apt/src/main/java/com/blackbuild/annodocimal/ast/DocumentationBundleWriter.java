@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.ast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Collects the documentation of every class of a compilation into one indexed bundle.
+ *
+ * <p>Layout: the magic number, the format version, and the class count, followed by one fixed-size table row per class
+ * (offset and length of its UTF-8 binary name, offset and length of its documentation) in unsigned byte order of the
+ * names, followed by the names and documentation themselves. The documentation of a class is its entry count followed
+ * by the length-prefixed UTF-8 key and value of each entry, in key order. The AST module's
+ * {@code DocumentationBundles} and the generator's {@code DocumentationStripper} read this layout; all sides must change
+ * together.</p>
+ */
+class DocumentationBundleWriter {
+
+    static final String BUNDLE_DIRECTORY = "META-INF/annodocimal/";
+    static final String BUNDLE_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x41444442;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private final Map<byte[], byte[]> classes = new TreeMap<>(Arrays::compareUnsigned);
+
+    /**
+     * Adds the documentation of a class, replacing documentation added before under the same binary name.
+     */
+    void add(String binaryName, Properties documentation) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        documentation.forEach((key, value) -> entries.put(key.toString(), value.toString()));
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(data)) {
+            output.writeInt(entries.size());
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writeString(output, entry.getKey());
+                writeString(output, entry.getValue());
+            }
+        }
+        classes.put(binaryName.getBytes(StandardCharsets.UTF_8), data.toByteArray());
+    }
+
+    boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int contentStart = HEADER_SIZE + classes.size() * ENTRY_SIZE;
+        try (DataOutputStream output = new DataOutputStream(table)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(classes.size());
+            for (Map.Entry<byte[], byte[]> entry : classes.entrySet()) {
+                for (byte[] part : new byte[][] {entry.getKey(), entry.getValue()}) {
+                    output.writeInt(contentStart + content.size());
+                    output.writeInt(part.length);
+                    content.write(part);
+                }
+            }
+        }
+        content.writeTo(table);
+        return table.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -30,7 +30,10 @@ import com.google.testing.compile.JavaFileObjects
 import org.intellij.lang.annotations.Language
 import spock.lang.Specification
 
+import javax.tools.FileObject
 import javax.tools.StandardLocation
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
 
 import static com.google.testing.compile.Compiler.javac
 
@@ -317,6 +320,75 @@ public class GenericClass <T extends CharSequence> {
 
     }
 
+    def "documentation of a compilation is bundled into one indexed resource"() {
+        given:
+        compiler = compiler.withOptions("-Aannodocimal.output=bundle", "-Aannodocimal.module=sample")
+
+        when:
+        compile("AClass",
+                """
+package com.blackbuild.annodocimal.ast.test;
+
+import com.blackbuild.annodocimal.annotations.InlineJavadocs;
+
+/**
+ * A class for testing with ümlauts.
+ */
+@InlineJavadocs
+public class AClass {
+
+    /**
+     * A method.
+     */
+    public void aMethod() {}
+
+    /** A field. */
+    public String field;
+
+    /**
+     * An inner class.
+     */
+    public static class Inner {}
+
+    public static class Undocumented {}
+}"""
+        )
+        def bundle = readBundle(compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "META-INF/annodocimal/sample.idx").get())
+
+        then:
+        bundle == [
+                "com.blackbuild.annodocimal.ast.test.AClass"      : [
+                        classDoc         : "A class for testing with ümlauts.",
+                        "field.field"    : "A field.",
+                        "method.aMethod()": "A method."
+                ],
+                "com.blackbuild.annodocimal.ast.test.AClass\$Inner": [classDoc: "An inner class."]
+        ]
+        bundle.keySet().toList() == bundle.keySet().toList().sort(false)
+        compilation.generatedFiles().findAll { it.name.endsWith(InlineJavadocs.JAVADOC_PROPERTIES_SUFFIX) }.empty
+    }
+
+    def "an invalid bundle option is reported"() {
+        given:
+        compiler = compiler.withOptions(option)
+
+        when:
+        compile("AClass", '''
+package com.blackbuild.annodocimal.ast.test;
+
+/** A class. */
+@com.blackbuild.annodocimal.annotations.InlineJavadocs
+public class AClass {}''')
+
+        then:
+        compilation.errors().any { it.getMessage(null).contains(message) }
+
+        where:
+        option                                                       | message
+        "-Aannodocimal.output=json"                                  | "Unknown value 'json' of annodocimal.output"
+        ["-Aannodocimal.output=bundle", "-Aannodocimal.module=../x"] | "Invalid annodocimal.module '../x'"
+    }
+
     void compile(String name, @Language("java") String code) {
         compilation = compiler.compile(JavaFileObjects.forSourceString(name, code))
     }
@@ -330,4 +402,36 @@ public class GenericClass <T extends CharSequence> {
         return properties as Map<String, String>
     }
 
+    // decodes the bundle layout written by DocumentationBundleWriter, keeping the order of its class table
+    static Map<String, Map<String, String>> readBundle(FileObject file) {
+        ByteBuffer buffer = ByteBuffer.wrap(file.openInputStream().withCloseable { it.readAllBytes() })
+        assert buffer.getInt(0) == 0x41444442
+        assert buffer.getInt(4) == 1
+        Map<String, Map<String, String>> result = [:]
+        buffer.getInt(8).times { index ->
+            int entry = 12 + index * 16
+            ByteBuffer data = buffer.slice(buffer.getInt(entry + 8), buffer.getInt(entry + 12))
+            Map<String, String> documentation = [:]
+            data.getInt().times {
+                String key = readString(data)
+                documentation[key] = readString(data)
+            }
+            result[utf8(buffer.slice(buffer.getInt(entry), buffer.getInt(entry + 4)))] = documentation
+        }
+        return result
+    }
+
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt()
+        ByteBuffer string = data.slice(data.position(), length)
+        data.position(data.position() + length)
+        return utf8(string)
+    }
+
+    private static String utf8(ByteBuffer bytes) {
+        byte[] result = new byte[bytes.remaining()]
+        bytes.get(result)
+        return new String(result, StandardCharsets.UTF_8)
+    }
+
 }
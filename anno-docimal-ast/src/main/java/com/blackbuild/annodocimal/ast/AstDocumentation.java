@@ -30,6 +30,7 @@ import com.blackbuild.annodocimal.ast.formatting.AnnoDocUtil;
 import com.blackbuild.annodocimal.ast.formatting.DocText;
 import org.codehaus.groovy.ast.AnnotatedNode;
 import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CompileUnit;
 import org.codehaus.groovy.ast.ConstructorNode;
 import org.codehaus.groovy.ast.FieldNode;
 import org.codehaus.groovy.ast.MethodNode;
@@ -62,9 +63,28 @@ public final class AstDocumentation {
      * @throws NullPointerException when {@code node} is {@code null}
      */
     public static Optional<Documentation> extractExact(AnnotatedNode node) {
+        return extract(Objects.requireNonNull(node, "node"), null);
+    }
+
+    /**
+     * Extracts documentation attached directly to a declaration, without hierarchy resolution, reading the
+     * documentation resources of precompiled classes through the class loader of the running compilation. Unlike
+     * {@link #extractExact(AnnotatedNode)}, this never loads a precompiled class that the compiler read from its class
+     * file. Looked-up resources, including missing ones, are remembered for the rest of the compilation.
+     *
+     * @param node the declaration to inspect
+     * @param compileUnit the compile unit of the running compilation
+     * @return exact documentation when present
+     * @throws NullPointerException when either argument is {@code null}
+     */
+    public static Optional<Documentation> extractExact(AnnotatedNode node, CompileUnit compileUnit) {
         Objects.requireNonNull(node, "node");
+        return extract(node, Objects.requireNonNull(compileUnit, "compileUnit"));
+    }
+
+    private static Optional<Documentation> extract(AnnotatedNode node, @Nullable CompileUnit compileUnit) {
         String text = AnnoDocUtil.getDocumentationCarrierValue(node);
-        if (text == null) text = ClassDocExtractor.extractDocumentation(node);
+        if (text == null) text = ClassDocExtractor.extractDocumentation(node, null, compileUnit);
         return text == null || text.isBlank() ? Optional.empty() : Optional.of(Documentation.parse(text));
     }
 
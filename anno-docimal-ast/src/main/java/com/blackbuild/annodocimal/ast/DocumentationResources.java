@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.ast;
+
+import com.blackbuild.annodocimal.ast.extractor.ClassDocExtractor;
+import com.blackbuild.annodocimal.ast.formatting.AnnoDocUtil;
+import com.blackbuild.annodocimal.ast.parser.GroovyVersionHandler;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CompileUnit;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.syntax.SyntaxException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Keeps captured documentation out of the compiled classes' ABI.
+ *
+ * <p>When the optimization option {@value #OPTION} is set and the compilation writes class files, the {@code AnnoDoc}
+ * carriers of every compiled class are moved into the class's documentation-properties resource right before class
+ * generation. Until then, the carriers stay on the AST, so transformations read and attach documentation as usual. Other
+ * compilations and source projection read the resource instead of the annotation; a documentation-only change then only
+ * changes a resource, which compile avoidance ignores.</p>
+ */
+final class DocumentationResources {
+
+    static final String OPTION = "annodocimalDocumentationResources";
+
+    private static final String REGISTERED_METADATA_KEY = DocumentationResources.class.getName() + ".registered";
+
+    private DocumentationResources() {
+        // Utility class
+    }
+
+    /**
+     * Registers the move of the documentation carriers once per compilation, if the compilation enables it.
+     */
+    static void register(@Nullable CompilationUnit compilationUnit) {
+        if (compilationUnit == null) return;
+        CompilerConfiguration configuration = compilationUnit.getConfiguration();
+        Map<String, Boolean> options = configuration.getOptimizationOptions();
+        File targetDirectory = configuration.getTargetDirectory();
+        if (options == null || !Boolean.TRUE.equals(options.get(OPTION)) || targetDirectory == null) return;
+
+        CompileUnit ast = compilationUnit.getAST();
+        if (GroovyVersionHandler.getCompileUnitMetadata(ast, REGISTERED_METADATA_KEY) != null) return;
+        GroovyVersionHandler.setCompileUnitMetadata(ast, REGISTERED_METADATA_KEY, Boolean.TRUE);
+
+        Path target = targetDirectory.toPath();
+        // the latest phase in which the AST is complete and class generation has not started
+        compilationUnit.addPhaseOperation((CompilationUnit.IPrimaryClassNodeOperation) (source, context, classNode) ->
+                moveDocumentation(source, classNode, target), Phases.INSTRUCTION_SELECTION);
+    }
+
+    private static void moveDocumentation(SourceUnit source, ClassNode classNode, Path targetDirectory) {
+        Map<String, String> entries = new TreeMap<>();
+        List<AnnotatedNode> members = new ArrayList<>();
+        members.add(classNode);
+        members.addAll(classNode.getFields());
+        members.addAll(classNode.getDeclaredConstructors());
+        members.addAll(classNode.getMethods());
+        for (AnnotatedNode member : members) {
+            String documentation = removeDocumentation(member);
+            String key = ClassDocExtractor.getDocumentationKey(member);
+            if (documentation != null && key != null) entries.putIfAbsent(key, documentation);
+        }
+
+        Path resource = targetDirectory.resolve(ClassDocExtractor.getPropertiesResourceName(classNode.getName()));
+        try {
+            if (entries.isEmpty()) {
+                // documentation of an earlier compilation must not outlive it
+                Files.deleteIfExists(resource);
+            } else {
+                Files.createDirectories(resource.getParent());
+                Files.write(resource, toProperties(entries));
+            }
+        } catch (IOException e) {
+            source.addError(new SyntaxException("Could not write documentation resource " + resource + ": " + e,
+                    classNode.getLineNumber(), classNode.getColumnNumber()));
+        }
+    }
+
+    private static @Nullable String removeDocumentation(AnnotatedNode node) {
+        String result = null;
+        for (Iterator<AnnotationNode> iterator = node.getAnnotations().iterator(); iterator.hasNext(); ) {
+            AnnotationNode annotation = iterator.next();
+            if (!annotation.getClassNode().getName().equals(AnnoDocUtil.ANNODOC_ANNOTATION.getName())) continue;
+            Expression value = annotation.getMember("value");
+            if (!(value instanceof ConstantExpression constant) || !(constant.getValue() instanceof String text)) continue;
+            iterator.remove();
+            if (result == null && !text.isBlank()) result = text;
+        }
+        return result;
+    }
+
+    // Properties.store adds the current date, which would make the resource differ on every compilation
+    private static byte[] toProperties(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            Properties properties = new Properties();
+            properties.setProperty(entry.getKey(), entry.getValue());
+            ByteArrayOutputStream stored = new ByteArrayOutputStream();
+            properties.store(stored, null);
+            byte[] bytes = stored.toByteArray();
+            int dateLineEnd = 0;
+            while (bytes[dateLineEnd] != '\n') dateLineEnd++;
+            result.write(bytes, dateLineEnd + 1, bytes.length - dateLineEnd - 1);
+        }
+        return result.toByteArray();
+    }
+}
@@ -23,8 +23,10 @@
  */
 package com.blackbuild.annodocimal.ast;
 
+import groovy.transform.CompilationUnitAware;
 import org.codehaus.groovy.GroovyBugError;
 import org.codehaus.groovy.ast.*;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilePhase;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.transform.AbstractASTTransformation;
@@ -38,13 +40,24 @@ import java.util.Arrays;
  * with <code>{@literal @}GroovyASTTransformationClass("com.blackbuild.annodocimal.ast.InlineJavadocsTransformation")</code>
  * or using the <code>{@literal @}InlineJavadocs</code> annotation,
  * or as global transformation by including the {@code anno-docimal-global-ast} artifact as a compile-time dependency.
+ * <p>
+ * With the optimization option {@code annodocimalDocumentationResources}, the captured documentation is written to
+ * documentation-properties resources instead of into the class files, see {@link DocumentationResources}.
  */
 @GroovyASTTransformation(phase = CompilePhase.SEMANTIC_ANALYSIS)
-public class InlineJavadocsTransformation extends AbstractASTTransformation {
+public class InlineJavadocsTransformation extends AbstractASTTransformation implements CompilationUnitAware {
+
+    private CompilationUnit compilationUnit;
+
+    @Override
+    public void setCompilationUnit(CompilationUnit unit) {
+        this.compilationUnit = unit;
+    }
 
     @Override
     public void visit(ASTNode[] nodes, SourceUnit source) {
         this.sourceUnit = source;
+        DocumentationResources.register(compilationUnit);
         InlineJavadocsVisitor visitor = new InlineJavadocsVisitor(source);
         if (nodes != null && nodes.length == 2 && nodes[0] instanceof AnnotationNode && nodes[1] instanceof AnnotatedNode) {
             visitor.visitClass((ClassNode) nodes[1]);
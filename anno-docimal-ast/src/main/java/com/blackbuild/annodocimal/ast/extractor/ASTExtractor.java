@@ -28,6 +28,7 @@ import com.blackbuild.annodocimal.ast.formatting.DocText;
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.expr.ConstantExpression;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
@@ -49,12 +50,28 @@ public class ASTExtractor {
     }
 
     public static String extractDocumentation(AnnotatedNode element, String defaultValue) {
+        return extractDocumentation(element, defaultValue, null);
+    }
+
+    /**
+     * Extracts the documentation of an element, reading the documentation properties of classes read from class files
+     * through the class loader of the given compile unit, so that they are not loaded. Without a compile unit, the
+     * compile unit of the element's own class is used when it is being compiled; only a class read from class files
+     * outside any known compile unit is loaded to find its class loader.
+     *
+     * @param element the element to document
+     * @param defaultValue value returned when no documentation exists
+     * @param compileUnit compile unit of the running compilation, for example {@code sourceUnit.getAST().getUnit()},
+     *                    may be null
+     * @return the documentation, or {@code defaultValue}
+     */
+    public static String extractDocumentation(AnnotatedNode element, String defaultValue, @Nullable CompileUnit compileUnit) {
         String existingMetaData = element.getNodeMetaData(DOC_METADATA_KEY);
 
         if (EMPTY_DOC.equals(existingMetaData)) return defaultValue;
         else if (existingMetaData != null) return existingMetaData;
 
-        String doc = extractDocumentationFromElement(element);
+        String doc = extractDocumentationFromElement(element, compileUnit != null ? compileUnit : compileUnitOf(element));
         if (doc != null) {
             element.putNodeMetaData(DOC_METADATA_KEY, doc);
             return doc;
@@ -64,9 +81,22 @@ public class ASTExtractor {
     }
 
     public static DocText extractDocText(AnnotatedNode element) {
+        return extractDocText(element, (CompileUnit) null);
+    }
+
+    /**
+     * Extracts the parsed documentation of an element, reading the documentation properties of classes read from class
+     * files through the class loader of the given compile unit, see
+     * {@link #extractDocumentation(AnnotatedNode, String, CompileUnit)}.
+     *
+     * @param element the element to document
+     * @param compileUnit compile unit of the running compilation, may be null
+     * @return the documentation, empty if there is none
+     */
+    public static DocText extractDocText(AnnotatedNode element, @Nullable CompileUnit compileUnit) {
         DocText docText = element.getNodeMetaData(DOCTEXT_METADATA_KEY);
         if (docText != null) return docText;
-        docText = DocText.fromRawText(extractDocumentation(element));
+        docText = DocText.fromRawText(extractDocumentation(element, null, compileUnit));
         element.putNodeMetaData(DOCTEXT_METADATA_KEY, docText);
         return docText;
     }
@@ -94,10 +124,22 @@ public class ASTExtractor {
     }
 
     private static String extractDocumentationFromElement(AnnotatedNode element) {
+        return extractDocumentationFromElement(element, compileUnitOf(element));
+    }
+
+    private static String extractDocumentationFromElement(AnnotatedNode element, @Nullable CompileUnit compileUnit) {
         String result = AnnoDocUtil.getDocumentationCarrierValue(element);
         if (result != null) return result;
 
-        return ClassDocExtractor.extractDocumentation(element);
+        return ClassDocExtractor.extractDocumentation(element, null, compileUnit);
+    }
+
+    // classes being compiled know their compile unit, classes read from class files do not
+    private static @Nullable CompileUnit compileUnitOf(AnnotatedNode element) {
+        ClassNode owner = element instanceof ClassNode classNode ? classNode : element.getDeclaringClass();
+        if (owner == null) return null;
+        if (owner.getCompileUnit() != null) return owner.getCompileUnit();
+        return owner.getModule() != null ? owner.getModule().getUnit() : null;
     }
 
     public static String getAnnoDocValue(@NotNull AnnotatedNode node) {
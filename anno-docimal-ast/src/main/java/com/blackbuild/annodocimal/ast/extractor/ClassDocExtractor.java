@@ -25,22 +25,50 @@ package com.blackbuild.annodocimal.ast.extractor;
 
 import com.blackbuild.annodocimal.annotations.AnnoDoc;
 import com.blackbuild.annodocimal.annotations.InlineJavadocs;
+import com.blackbuild.annodocimal.ast.parser.GroovyVersionHandler;
 import org.codehaus.groovy.ast.*;
-import org.jetbrains.annotations.NotNull;
+import org.codehaus.groovy.ast.decompiled.DecompiledClassNode;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Extracts the documentation from a class from either an existing {@link AnnoDoc}
  * annotation or existing AnnoDoc.properties.
+ * <p>
+ * The properties resource is looked up by the binary name of the class. For a class read from class files, it is
+ * found through the class loader of the compile unit when one is known, so that the class is not loaded for it. Each
+ * resource is parsed once: the parsed entries, or the fact that no resource exists, are kept per class name in the
+ * compile unit's metadata, or per loaded class for class-backed {@link ClassNode}s.
+ * </p>
+ * <p>
+ * Classes without a properties resource are looked up in the documentation bundles next to their class file, see
+ * {@link DocumentationBundles}.
+ * </p>
  */
 public class ClassDocExtractor {
+
+    // parsed documentation properties, per class name in a compile unit or on a class node read outside any compile unit
+    private static final String CLASS_DOC_METADATA_KEY = ClassDocExtractor.class.getName() + ".classDoc";
+
+    // marks a class without documentation properties; compared by identity, so it must not be a shared empty map
+    private static final Map<String, String> NO_CLASS_DOC = Collections.unmodifiableMap(new HashMap<>());
+
+    private static final ClassValue<Map<String, String>> CLASS_DOCS = new ClassValue<>() {
+        @Override
+        protected Map<String, String> computeValue(Class<?> type) {
+            return readClassDoc(type.getClassLoader(), type.getName());
+        }
+    };
+
     private ClassDocExtractor() {
         // Utility class
     }
@@ -50,13 +78,27 @@ public class ClassDocExtractor {
     }
 
     public static String extractDocumentation(AnnotatedNode element, String defaultValue) {
+        return extractDocumentation(element, defaultValue, null);
+    }
+
+    /**
+     * Extracts the documentation of an element, looking up the properties of classes read from class files through
+     * the class loader of the given compile unit. Without a compile unit, such a class is loaded to find its class
+     * loader.
+     *
+     * @param element the element to document
+     * @param defaultValue value returned when no documentation exists
+     * @param compileUnit compile unit whose class loader sees the element's class, may be null
+     * @return the documentation, or {@code defaultValue}
+     */
+    public static String extractDocumentation(AnnotatedNode element, String defaultValue, @Nullable CompileUnit compileUnit) {
         String result;
         if (element instanceof ClassNode classNode) {
-            result = extractDocumentationFromClass(classNode);
+            result = extractDocumentationFromClass(classNode, compileUnit);
         } else if (element instanceof MethodNode methodNode) {
-            result = extractDocumentationFromExecutable(methodNode);
+            result = extractDocumentationFromExecutable(methodNode, compileUnit);
         } else if (element instanceof FieldNode fieldNode) {
-            result = extractDocumentationFromField(fieldNode);
+            result = extractDocumentationFromField(fieldNode, compileUnit);
         } else {
             return defaultValue;
         }
@@ -64,13 +106,40 @@ public class ClassDocExtractor {
         return result == null ? defaultValue : result;
     }
 
-    private static @Nullable String extractDocumentationFromExecutable(MethodNode method) {
-        Map<String, String> classDoc = getClassDoc(method.getDeclaringClass());
+    /**
+     * Returns the key under which the documentation of an element is stored in its class's documentation properties.
+     *
+     * @param element a class, method, constructor, or field
+     * @return the key, or {@code null} for other elements
+     */
+    public static @Nullable String getDocumentationKey(AnnotatedNode element) {
+        if (element instanceof ClassNode) {
+            return "classDoc";
+        } else if (element instanceof MethodNode method) {
+            String argType = Arrays.stream(method.getParameters())
+                    .map(ClassDocExtractor::argTypeString)
+                    .collect(Collectors.joining(","));
+            return "method." + method.getName() + "(" + argType + ")";
+        } else if (element instanceof FieldNode field) {
+            return "field." + field.getName();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the path of the documentation-properties resource of a class.
+     *
+     * @param className the binary name of the class
+     * @return the resource path, relative to the class path root
+     */
+    public static String getPropertiesResourceName(String className) {
+        return className.replace('.', '/') + InlineJavadocs.JAVADOC_PROPERTIES_SUFFIX;
+    }
+
+    private static @Nullable String extractDocumentationFromExecutable(MethodNode method, @Nullable CompileUnit compileUnit) {
+        Map<String, String> classDoc = getClassDoc(method.getDeclaringClass(), compileUnit);
         if (classDoc == null) return null;
-        String argType = Arrays.stream(method.getParameters())
-                .map(ClassDocExtractor::argTypeString)
-                .collect(Collectors.joining(","));
-        return classDoc.get("method." + method.getName() + "(" + argType + ")");
+        return classDoc.get(getDocumentationKey(method));
     }
 
     private static String argTypeString(Parameter param) {
@@ -78,42 +147,66 @@ public class ClassDocExtractor {
         return type.isArray() ? type.toString() : type.getName();
     }
 
-    private static @Nullable String extractDocumentationFromField(FieldNode field) {
-        Map<String, String> classDoc = getClassDoc(field.getOwner());
+    private static @Nullable String extractDocumentationFromField(FieldNode field, @Nullable CompileUnit compileUnit) {
+        Map<String, String> classDoc = getClassDoc(field.getOwner(), compileUnit);
         if (classDoc == null) return null;
-        return classDoc.get("field." + field.getName());
+        return classDoc.get(getDocumentationKey(field));
     }
 
-    private static @Nullable String extractDocumentationFromClass(ClassNode element) {
-        Map<String, String> classDoc = getClassDoc(element);
+    private static @Nullable String extractDocumentationFromClass(ClassNode element, @Nullable CompileUnit compileUnit) {
+        Map<String, String> classDoc = getClassDoc(element, compileUnit);
         if (classDoc == null) return null;
-        return classDoc.get("classDoc");
+        return classDoc.get(getDocumentationKey(element));
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    private static @Nullable Map<String, String> getClassDoc(ClassNode element) {
+    private static @Nullable Map<String, String> getClassDoc(ClassNode element, @Nullable CompileUnit compileUnit) {
         if (element == null) return null;
-        if (!element.isResolved()) return null;
-        Class<?> type = element.getTypeClass();
-        Properties result;
-        try (InputStream stream = type.getResourceAsStream(getPropertiesFileName(type))) {
-            if (stream == null) return null;
-            result = new Properties();
-            result.load(stream);
-            return (Map) result;
-        } catch (IOException e) {
-            return null;
+        ClassNode type = element.redirect();
+        if (!type.isResolved()) return null;
+
+        Map<String, String> result;
+        if (!(type instanceof DecompiledClassNode)) {
+            // a class-backed node already holds its class
+            result = CLASS_DOCS.get(type.getTypeClass());
+        } else if (compileUnit != null) {
+            result = compileUnitClassDocs(compileUnit)
+                    .computeIfAbsent(type.getName(), name -> readClassDoc(compileUnit.getClassLoader(), name));
+        } else {
+            result = type.getNodeMetaData(CLASS_DOC_METADATA_KEY);
+            if (result == null) {
+                result = readClassDoc(type.getTypeClass().getClassLoader(), type.getName());
+                type.setNodeMetaData(CLASS_DOC_METADATA_KEY, result);
+            }
         }
+        return result == NO_CLASS_DOC ? null : result;
     }
 
-    private static @NotNull String getPropertiesFileName(Class<?> element) {
-        return getSimpleName(element) + InlineJavadocs.JAVADOC_PROPERTIES_SUFFIX;
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, String>> compileUnitClassDocs(CompileUnit compileUnit) {
+        Map<String, Map<String, String>> result =
+                GroovyVersionHandler.getCompileUnitMetadata(compileUnit, CLASS_DOC_METADATA_KEY, Map.class);
+        if (result == null) {
+            result = new ConcurrentHashMap<>();
+            GroovyVersionHandler.setCompileUnitMetadata(compileUnit, CLASS_DOC_METADATA_KEY, result);
+        }
+        return result;
     }
 
-    private static String getSimpleName(Class<?> element) {
-        if (element.getDeclaringClass() == null)
-            return element.getSimpleName();
-        return getSimpleName(element.getDeclaringClass()) + "$" + element.getSimpleName();
+    private static Map<String, String> readClassDoc(@Nullable ClassLoader loader, String className) {
+        if (loader == null) return NO_CLASS_DOC;
+        try (InputStream stream = loader.getResourceAsStream(getPropertiesResourceName(className))) {
+            if (stream == null) {
+                Map<String, String> bundled = DocumentationBundles.find(loader, className);
+                return bundled == null ? NO_CLASS_DOC : bundled;
+            }
+            Properties properties = new Properties();
+            properties.load(stream);
+            Map<String, String> result = new HashMap<>(properties.size() * 2);
+            properties.forEach((key, value) -> result.put(key.toString(), value.toString()));
+            return result;
+        } catch (IOException e) {
+            return NO_CLASS_DOC;
+        }
     }
 
 }
@@ -0,0 +1,295 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.ast.extractor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads documentation from the indexed bundles the annotation processor writes to {@code META-INF/annodocimal/} when
+ * its {@code annodocimal.output} option is {@code bundle}.
+ *
+ * <p>A class is looked up in the bundles of the classes directory or JAR its class file comes from. The bundles of a
+ * location are read into memory when a class of that location is first looked up, and stay cached until their files
+ * change. Bundles are not memory-mapped, so that a build can replace them in a classes directory while they are cached.
+ * Lookups binary-search the class table in place and only decode the documentation of the class found.</p>
+ *
+ * <p>The layout is described and written by the processor's {@code DocumentationBundleWriter} and also read by the
+ * generator's {@code DocumentationStripper}; all sides must change together.</p>
+ */
+final class DocumentationBundles {
+
+    private static final String BUNDLE_DIRECTORY = "META-INF/annodocimal/";
+    private static final String BUNDLE_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x41444442;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private static final int MAXIMUM_LOCATIONS = 256;
+
+    // bundles per classes directory or JAR, least recently used locations are read again when needed
+    private static final Map<Path, Location> LOCATIONS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Location> eldest) {
+            return size() > MAXIMUM_LOCATIONS;
+        }
+    };
+
+    private DocumentationBundles() {
+        // Utility class
+    }
+
+    /**
+     * Returns the bundled documentation of a class, or {@code null} if no bundle next to its class file contains it.
+     */
+    static @Nullable Map<String, String> find(ClassLoader loader, String className) {
+        String classResource = className.replace('.', '/') + ".class";
+        URL url = loader.getResource(classResource);
+        if (url == null) return null;
+        Path location = location(url, classResource);
+        if (location == null) return null;
+
+        try {
+            for (Bundle bundle : bundles(location)) {
+                Map<String, String> result = bundle.find(className);
+                if (result != null) return result;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static List<Bundle> bundles(Path location) throws IOException {
+        String stamp = stamp(location);
+        synchronized (LOCATIONS) {
+            Location cached = LOCATIONS.get(location);
+            if (cached != null && cached.stamp.equals(stamp)) return cached.bundles;
+        }
+        List<Bundle> bundles = Files.isDirectory(location) ? readDirectory(location) : readJar(location);
+        synchronized (LOCATIONS) {
+            LOCATIONS.put(location, new Location(stamp, bundles));
+        }
+        return bundles;
+    }
+
+    // Classes directory or JAR of a class file URL, or null for locations that cannot hold bundles
+    private static @Nullable Path location(URL url, String classResource) {
+        try {
+            switch (url.getProtocol()) {
+                case "file": {
+                    Path path = Path.of(url.toURI());
+                    for (int segments = classResource.split("/").length; segments > 0 && path != null; segments--) {
+                        path = path.getParent();
+                    }
+                    return path;
+                }
+                case "jar": {
+                    String spec = url.getPath();
+                    int separator = spec.indexOf("!/");
+                    if (separator < 0) return null;
+                    URI jar = new URI(spec.substring(0, separator));
+                    return "file".equals(jar.getScheme()) ? Path.of(jar) : null;
+                }
+                default:
+                    return null;
+            }
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static String stamp(Path location) throws IOException {
+        if (!Files.isDirectory(location)) return stamp(location, Files.readAttributes(location, BasicFileAttributes.class));
+        Map<String, String> stamps = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(location.resolve(BUNDLE_DIRECTORY), "*" + BUNDLE_SUFFIX)) {
+            for (Path file : files) {
+                stamps.put(file.getFileName().toString(), stamp(file, Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        } catch (NoSuchFileException e) {
+            return "";
+        }
+        return stamps.toString();
+    }
+
+    private static String stamp(Path file, BasicFileAttributes attributes) {
+        return file + ":" + attributes.size() + ":" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static List<Bundle> readDirectory(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.resolve(BUNDLE_DIRECTORY), "*" + BUNDLE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        files.sort(null);
+        List<Bundle> result = new ArrayList<>(files.size());
+        for (Path file : files) {
+            addBundle(result, file.toString(), Files.readAllBytes(file));
+        }
+        return result;
+    }
+
+    private static List<Bundle> readJar(Path jar) throws IOException {
+        Map<String, byte[]> contents = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.startsWith(BUNDLE_DIRECTORY) || !name.endsWith(BUNDLE_SUFFIX)
+                        || name.indexOf('/', BUNDLE_DIRECTORY.length()) >= 0) continue;
+                try (InputStream stream = zip.getInputStream(entry)) {
+                    contents.put(name, stream.readAllBytes());
+                }
+            }
+        }
+        List<Bundle> result = new ArrayList<>(contents.size());
+        contents.forEach((name, content) -> addBundle(result, jar + "!/" + name, content));
+        return result;
+    }
+
+    private static void addBundle(List<Bundle> bundles, String source, byte[] content) {
+        try {
+            bundles.add(new Bundle(source, ByteBuffer.wrap(content)));
+        } catch (IOException invalid) {
+            // An unreadable bundle documents nothing.
+        }
+    }
+
+    private record Location(String stamp, List<Bundle> bundles) {
+    }
+
+    private static final class Bundle {
+
+        private final String source;
+        private final ByteBuffer buffer;
+        private final int count;
+
+        Bundle(String source, ByteBuffer buffer) throws IOException {
+            this.source = source;
+            this.buffer = buffer;
+            count = validate(buffer);
+        }
+
+        @Nullable Map<String, String> find(String className) throws IOException {
+            byte[] key = className.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int entry = HEADER_SIZE + middle * ENTRY_SIZE;
+                int comparison = compare(buffer.getInt(entry), buffer.getInt(entry + 4), key);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return decode(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+                }
+            }
+            return null;
+        }
+
+        private Map<String, String> decode(int offset, int length) throws IOException {
+            ByteBuffer data = buffer.slice(offset, length);
+            try {
+                int size = data.getInt();
+                if (size < 0 || size > length / 8) throw new IOException("Invalid entry count " + size);
+                Map<String, String> result = new HashMap<>(size * 2);
+                for (int index = 0; index < size; index++) {
+                    result.put(readString(data), readString(data));
+                }
+                return result;
+            } catch (RuntimeException corrupt) {
+                throw new IOException("Corrupt documentation bundle " + source, corrupt);
+            }
+        }
+
+        private static String readString(ByteBuffer data) throws IOException {
+            int length = data.getInt();
+            if (length < 0 || length > data.remaining()) throw new IOException("Invalid string length " + length);
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int compare(int offset, int length, byte[] key) {
+            int shared = Math.min(length, key.length);
+            for (int index = 0; index < shared; index++) {
+                int difference = Byte.toUnsignedInt(buffer.get(offset + index)) - Byte.toUnsignedInt(key[index]);
+                if (difference != 0) return difference;
+            }
+            return length - key.length;
+        }
+
+        private static int validate(ByteBuffer buffer) throws IOException {
+            int limit = buffer.limit();
+            if (limit < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a documentation bundle");
+            }
+            int count = buffer.getInt(8);
+            if (count < 0 || count > (limit - HEADER_SIZE) / ENTRY_SIZE) {
+                throw new IOException("Truncated documentation bundle");
+            }
+            for (int index = 0; index < count; index++) {
+                int entry = HEADER_SIZE + index * ENTRY_SIZE;
+                for (int field = 0; field < ENTRY_SIZE; field += 8) {
+                    int offset = buffer.getInt(entry + field);
+                    int length = buffer.getInt(entry + field + 4);
+                    if (offset < 0 || length < 0 || offset > limit - length) {
+                        throw new IOException("Truncated documentation bundle");
+                    }
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.codehaus.groovy.ast.FieldNode
 import org.codehaus.groovy.ast.MethodNode
 import org.codehaus.groovy.ast.Parameter
 import org.codehaus.groovy.ast.expr.ConstantExpression
+import org.codehaus.groovy.control.ClassNodeResolver
+import org.codehaus.groovy.control.CompilationUnit
 import spock.lang.Issue
 import spock.lang.Specification
 
@@ -173,6 +175,18 @@ class AstDocumentationTest extends Specification {
         AstDocumentation.referenceTo(nested).target == 'example.Owner.Nested'
     }
 
+    def "exact extraction reads properties of classes compiled against through the compile unit"() {
+        given:
+        def compilationUnit = new CompilationUnit(new GroovyClassLoader(AClass.classLoader))
+        def provider = new ClassNodeResolver().resolveName(AClass.name, compilationUnit).classNode
+
+        expect:
+        AstDocumentation.extractExact(provider, compilationUnit.AST).orElseThrow().render() == 'A class for testing.'
+        AstDocumentation.extractExact(provider.getDeclaredMethod('aMethod'), compilationUnit.AST).orElseThrow().render() ==
+                'A method that does nothing.'
+        !AstDocumentation.extractExact(provider.getDeclaredMethod('noJavaDocMethod'), compilationUnit.AST).present
+    }
+
     def "rejects null input for #operationName"() {
         when:
         operation.call()
@@ -183,6 +197,8 @@ class AstDocumentationTest extends Specification {
         where:
         operationName        | operation
         'exact extraction'   | { AstDocumentation.extractExact(null) }
+        'compiled extraction'| { AstDocumentation.extractExact(null, new CompilationUnit().AST) }
+        'compile unit'       | { AstDocumentation.extractExact(method('copy', 'source'), null) }
         'attachment target'  | { AstDocumentation.attach(null, Documentation.empty()) }
         'documentation'      | { AstDocumentation.attach(method('copy', 'source'), null) }
         'text target'        | { AstDocumentation.attachText(null, '') }
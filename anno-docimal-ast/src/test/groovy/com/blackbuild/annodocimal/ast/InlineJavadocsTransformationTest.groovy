@@ -25,7 +25,10 @@
 package com.blackbuild.annodocimal.ast
 
 import com.blackbuild.annodocimal.annotations.AnnoDoc
+import com.blackbuild.annodocimal.ast.extractor.ClassDocExtractor
 import groovy.lang.Groovydoc
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.Parameter
 import org.intellij.lang.annotations.Language
 import spock.lang.Issue
 
@@ -344,4 +347,58 @@ class PropertyDocumentation {
         clazz.getMethod('getTitle').getAnnotation(AnnoDoc).value() == 'Explicit getter documentation.'
         clazz.getMethod('setTitle', String).getAnnotation(AnnoDoc).value() == 'Property documentation.'
     }
+
+    def "documentation resources keep the documentation out of the class files"() {
+        given:
+        compilerConfiguration.optimizationOptions[DocumentationResources.OPTION] = Boolean.TRUE
+        loader.addClasspath(compilerConfiguration.targetDirectory.path)
+
+        when:
+        createClass "dummy/ResourceDocumentation.groovy", '''
+package dummy
+
+import com.blackbuild.annodocimal.annotations.InlineJavadocs
+
+/** A documented class. */
+@InlineJavadocs
+class ResourceDocumentation {
+    /** Creates it. */
+    ResourceDocumentation(String name, int[] values) {}
+
+    /** A name */
+    String name
+
+    /** A method */
+    void method(List<String> values) {}
+
+    /** Inner class */
+    static class Inner {}
+}
+'''
+        def resource = new File(compilerConfiguration.targetDirectory, 'dummy/ResourceDocumentation__annodoc.properties')
+        def properties = new Properties()
+        resource.withInputStream { properties.load(it) }
+
+        then: 'the class files carry no documentation'
+        clazz.getAnnotation(AnnoDoc) == null
+        clazz.getDeclaredConstructor(String, int[]).getAnnotation(AnnoDoc) == null
+        clazz.getDeclaredField('name').getAnnotation(AnnoDoc) == null
+        clazz.getMethod('setName', String).getAnnotation(AnnoDoc) == null
+        clazz.getMethod('method', List).getAnnotation(AnnoDoc) == null
+
+        and: 'the documentation-properties resource does'
+        properties == [
+                'classDoc'                             : 'A documented class.',
+                'method.<init>(java.lang.String,int[])': 'Creates it.',
+                'field.name'                           : 'A name',
+                'method.method(java.util.List)'        : 'A method',
+        ]
+        new File(compilerConfiguration.targetDirectory, 'dummy/ResourceDocumentation$Inner__annodoc.properties').text
+                .contains('classDoc=Inner class')
+        !resource.text.startsWith('#')
+
+        and: 'extraction reads the resource transparently'
+        ClassDocExtractor.extractDocumentation(ClassHelper.make(clazz)) == 'A documented class.'
+        ClassDocExtractor.extractDocumentation(ClassHelper.make(clazz).getDeclaredMethod('method', [new Parameter(ClassHelper.make(List), 'values')] as Parameter[])) == 'A method'
+    }
 }
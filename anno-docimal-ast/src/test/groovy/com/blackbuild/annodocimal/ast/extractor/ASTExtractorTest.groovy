@@ -27,8 +27,13 @@ package com.blackbuild.annodocimal.ast.extractor
 
 import com.blackbuild.annodocimal.ast.ClassGeneratingSpecification
 import com.blackbuild.annodocimal.ast.MockableTransformation
+import com.blackbuild.annodocimal.annotations.InlineJavadocs
+import com.blackbuild.annodocimal.ast.extractor.mock.AClass
 import org.codehaus.groovy.ast.AnnotatedNode
 import org.codehaus.groovy.ast.AnnotationNode
+import org.codehaus.groovy.ast.decompiled.DecompiledClassNode
+import org.codehaus.groovy.control.ClassNodeResolver
+import org.codehaus.groovy.control.CompilationUnit
 import org.codehaus.groovy.control.SourceUnit
 
 class ASTExtractorTest extends ClassGeneratingSpecification {
@@ -82,6 +87,27 @@ This comment is longer than the comment of the field above.
         astData.keySet().findAll { it.endsWith("Doc") }.each { astData[it] == astData[it] + "2" }
     }
 
+    def "documentation of classes read from class files is extracted through the compile unit without loading them"() {
+        given:
+        def loader = new ClassDocExtractorTest.RecordingClassLoader([
+                AClass.protectionDomain.codeSource.location,
+                InlineJavadocs.protectionDomain.codeSource.location
+        ] as URL[])
+        def compilationUnit = new CompilationUnit(new GroovyClassLoader(loader))
+        def aClass = new ClassNodeResolver().resolveName(AClass.name, compilationUnit).classNode
+        def unit = compilationUnit.AST
+
+        expect:
+        aClass instanceof DecompiledClassNode
+        ASTExtractor.extractDocumentation(aClass, "bla", unit) == "A class for testing."
+        ASTExtractor.extractDocumentation(aClass.getDeclaredMethod("aMethod"), "bla", unit) == "A method that does nothing."
+        ASTExtractor.extractDocText(aClass.getDeclaredField("field"), unit).rawText == "A field."
+        !loader.loadedClasses.contains(AClass.name)
+
+        cleanup:
+        loader?.close()
+    }
+
     static class MyAction implements MockableTransformation.Action {
 
         @Override
@@ -24,9 +24,19 @@
 package com.blackbuild.annodocimal.ast.extractor
 
 import com.blackbuild.annodocimal.ast.extractor.mock.AClass
+import com.blackbuild.annodocimal.annotations.InlineJavadocs
 import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.decompiled.DecompiledClassNode
+import org.codehaus.groovy.control.ClassNodeResolver
+import org.codehaus.groovy.control.CompilationUnit
 import spock.lang.Specification
 
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
 class ClassDocExtractorTest extends Specification {
 
     def "extraction from AClass"() {
@@ -45,6 +55,149 @@ class ClassDocExtractorTest extends Specification {
         ClassDocExtractor.extractDocumentation(clazz.getDeclaredField("privateDeprecatedField"), "bla") == "A private deprecated field.\n@deprecated Do something else instead."
     }
 
+    def "classes read from class files are documented through the compile unit without being loaded"() {
+        given:
+        def loader = new RecordingClassLoader([
+                AClass.protectionDomain.codeSource.location,
+                InlineJavadocs.protectionDomain.codeSource.location
+        ] as URL[])
+        def compilationUnit = new CompilationUnit(new GroovyClassLoader(loader))
+        def resolver = new ClassNodeResolver()
+        def aClass = resolver.resolveName(AClass.name, compilationUnit).classNode
+        def undocumented = resolver.resolveName(java.util.zip.CRC32.name, compilationUnit).classNode
+        def unit = compilationUnit.AST
+
+        expect:
+        aClass instanceof DecompiledClassNode
+        ClassDocExtractor.extractDocumentation(aClass, "bla", unit) == "A class for testing."
+        ClassDocExtractor.extractDocumentation(aClass.getDeclaredMethod("aMethod"), "bla", unit) == "A method that does nothing."
+        ClassDocExtractor.extractDocumentation(aClass.getDeclaredField("field"), "bla", unit) == "A field."
+        ClassDocExtractor.extractDocumentation(aClass.getDeclaredMethod("noJavaDocMethod"), "bla", unit) == "bla"
+        undocumented instanceof DecompiledClassNode
+        ClassDocExtractor.extractDocumentation(undocumented, "none", unit) == "none"
+        ClassDocExtractor.extractDocumentation(undocumented.getDeclaredMethod("getValue"), "none", unit) == "none"
+
+        and: 'each properties resource is looked up once, including the missing one, and no class is loaded'
+        loader.resources.count { it.endsWith(InlineJavadocs.JAVADOC_PROPERTIES_SUFFIX) } == 2
+        loader.resources.toSet().size() == loader.resources.size()
+        !loader.loadedClasses.contains(AClass.name)
+    }
+
+    def "classes without properties are documented from the bundles of their classes directory or JAR"() {
+        given:
+        Path classes = Files.createTempDirectory("bundled")
+        String classFile = AClass.name.replace('.', '/') + ".class"
+        Files.createDirectories(classes.resolve(classFile).parent)
+        Files.copy(Path.of(AClass.protectionDomain.codeSource.location.toURI()).resolve(classFile), classes.resolve(classFile))
+        writeBundle(classes.resolve("META-INF/annodocimal/other.idx"), ["a.B": [classDoc: "Another class."]])
+        writeBundle(classes.resolve("META-INF/annodocimal/test.idx"), [
+                (AClass.name): [classDoc: "A bundled class.", "method.aMethod()": "A bundled method."],
+                "zzz.Last"   : [classDoc: "Last."]
+        ])
+        Path jar = classes.resolveSibling(classes.fileName.toString() + ".jar")
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable { output ->
+            [classFile, "META-INF/annodocimal/test.idx"].each {
+                output.putNextEntry(new JarEntry(it))
+                output.write(Files.readAllBytes(classes.resolve(it)))
+            }
+        }
+
+        expect:
+        documentation(classes.toUri().toURL()) == ["A bundled class.", "A bundled method.", "bla"]
+        documentation(jar.toUri().toURL()) == ["A bundled class.", "A bundled method.", "bla"]
+
+        when: 'a later build replaces the bundle of the classes directory'
+        writeBundle(classes.resolve("META-INF/annodocimal/test.idx"), [(AClass.name): [classDoc: "A rebuilt class with a longer text."]])
+
+        then:
+        documentation(classes.toUri().toURL()) == ["A rebuilt class with a longer text.", "bla", "bla"]
+
+        when: 'the bundle is corrupt'
+        Files.write(classes.resolve("META-INF/annodocimal/test.idx"), [0x41, 0x44, 0x44, 0x42, 0, 0, 0, 1, 0, 0, 0, 9] as byte[])
+
+        then:
+        documentation(classes.toUri().toURL()) == ["bla", "bla", "bla"]
+
+        cleanup:
+        classes?.toFile()?.deleteDir()
+        if (jar) Files.deleteIfExists(jar)
+    }
+
+    private static List<String> documentation(URL location) {
+        def loader = new RecordingClassLoader([location, InlineJavadocs.protectionDomain.codeSource.location] as URL[])
+        def compilationUnit = new CompilationUnit(new GroovyClassLoader(loader))
+        def aClass = new ClassNodeResolver().resolveName(AClass.name, compilationUnit).classNode
+        def unit = compilationUnit.AST
+        try {
+            assert aClass instanceof DecompiledClassNode
+            return [
+                    ClassDocExtractor.extractDocumentation(aClass, "bla", unit),
+                    ClassDocExtractor.extractDocumentation(aClass.getDeclaredMethod("aMethod"), "bla", unit),
+                    ClassDocExtractor.extractDocumentation(aClass.getDeclaredField("field"), "bla", unit)
+            ]
+        } finally {
+            loader.close()
+        }
+    }
+
+    // writes the layout of the processor's DocumentationBundleWriter
+    private static void writeBundle(Path file, Map<String, Map<String, String>> classes) {
+        Files.createDirectories(file.parent)
+        def sorted = new TreeMap<byte[], byte[]>({ byte[] a, byte[] b -> Arrays.compareUnsigned(a, b) } as Comparator)
+        classes.each { name, documentation ->
+            def data = new ByteArrayOutputStream()
+            new DataOutputStream(data).withCloseable { output ->
+                output.writeInt(documentation.size())
+                new TreeMap(documentation).each { key, value ->
+                    [key, value].each {
+                        byte[] bytes = it.getBytes(StandardCharsets.UTF_8)
+                        output.writeInt(bytes.length)
+                        output.write(bytes)
+                    }
+                }
+            }
+            sorted[name.getBytes(StandardCharsets.UTF_8)] = data.toByteArray()
+        }
+        def table = new ByteArrayOutputStream()
+        def content = new ByteArrayOutputStream()
+        int contentStart = 12 + sorted.size() * 16
+        new DataOutputStream(table).withCloseable { output ->
+            output.writeInt(0x41444442)
+            output.writeInt(1)
+            output.writeInt(sorted.size())
+            sorted.each { name, data ->
+                [name, data].each { byte[] part ->
+                    output.writeInt(contentStart + content.size())
+                    output.writeInt(part.length)
+                    content.write(part)
+                }
+            }
+        }
+        content.writeTo(table)
+        Files.write(file, table.toByteArray())
+    }
+
+    static class RecordingClassLoader extends URLClassLoader {
+        final List<String> resources = []
+        final List<String> loadedClasses = []
+
+        RecordingClassLoader(URL[] urls) {
+            super(urls, ClassLoader.platformClassLoader)
+        }
+
+        @Override
+        URL getResource(String name) {
+            if (name.endsWith(InlineJavadocs.JAVADOC_PROPERTIES_SUFFIX)) resources << name
+            super.getResource(name)
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) {
+            loadedClasses << name
+            super.loadClass(name, resolve)
+        }
+    }
+
 
 
 
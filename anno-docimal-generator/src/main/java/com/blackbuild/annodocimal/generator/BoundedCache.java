@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, size-bounded map evicting its least recently used entries.
+ *
+ * <p>All entries are kept in one access-ordered map, so the cache never holds more than the maximum number of entries,
+ * whatever their keys, and always evicts the entry that was used least recently. Every lookup takes the map's lock
+ * only for the map access itself. Values are never computed under the lock; two threads missing the same key at once
+ * may both compute it, and the first stored value wins. Hits, misses, and evictions are counted for sizing.</p>
+ */
+final class BoundedCache<K, V> {
+
+    private final int maximumEntries;
+    private final LinkedHashMap<K, V> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    BoundedCache(int maximumEntries) {
+        if (maximumEntries < 1) throw new IllegalArgumentException("maximumEntries must be positive: " + maximumEntries);
+        this.maximumEntries = maximumEntries;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= BoundedCache.this.maximumEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    int maximumEntries() {
+        return maximumEntries;
+    }
+
+    /**
+     * Returns the cached value, or {@code null} on a miss.
+     */
+    V get(K key) {
+        V result;
+        synchronized (entries) {
+            result = entries.get(key);
+        }
+        (result == null ? misses : hits).increment();
+        return result;
+    }
+
+    /**
+     * Stores a value unless another thread stored one first, and returns the value that is cached now.
+     */
+    V putIfAbsent(K key, V value) {
+        synchronized (entries) {
+            V existing = entries.putIfAbsent(key, value);
+            return existing == null ? value : existing;
+        }
+    }
+
+    /**
+     * Stores a value, replacing the cached one.
+     */
+    void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Removes the cached value of a key.
+     */
+    void remove(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes every cached value. The counts are kept.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directories and JARs holding the documentation-properties resources of projected classes that have none next to
+ * their class file, such as the documentation JARs written by {@link DocumentationStripper}.
+ *
+ * <p>Entries are consulted in order. Each JAR is opened on its first lookup and stays open until {@link #close()},
+ * which the projector calls when its last running projection call returns; missing entries are ignored.</p>
+ */
+final class DocumentationClasspath implements Closeable {
+
+    static final DocumentationClasspath EMPTY = new DocumentationClasspath(List.of());
+
+    private final List<Path> entries;
+    private final Map<Path, LazyJar> jars = new ConcurrentHashMap<>();
+
+    DocumentationClasspath(List<Path> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the documentation-properties resource of a class, or {@code null} if no entry has one.
+     */
+    byte[] find(String internalName) throws IOException {
+        String resourceName = DocumentationProperties.resourceName(internalName);
+        for (Path entry : entries) {
+            if (Files.isDirectory(entry)) {
+                Path resource = entry.resolve(resourceName);
+                if (Files.isRegularFile(resource)) return Files.readAllBytes(resource);
+                continue;
+            }
+            byte[] resource = jars.computeIfAbsent(entry, LazyJar::new).read(resourceName);
+            if (resource != null) return resource;
+        }
+        return null;
+    }
+
+    /**
+     * Closes the JARs opened so far, even if closing an earlier one fails. Later lookups open them again.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (LazyJar jar : jars.values()) {
+            try {
+                jar.close();
+            } catch (IOException exception) {
+                if (failure == null) failure = exception;
+                else failure.addSuppressed(exception);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    boolean hasOpenJars() {
+        return jars.values().stream().anyMatch(LazyJar::isOpen);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * The documentation-properties protocol as projection reads it and stripping writes it.
+ *
+ * <p>Each class has at most one {@code <binary name>__annodoc.properties} resource at the path of its class file. Its
+ * keys are {@code classDoc}, {@code field.<name>}, and {@code method.<name>(<parameter types>)}, where constructors are
+ * named {@code <init>} and the parameter types are the comma-separated source parameter types, arrays written as
+ * component type followed by {@code []}.</p>
+ */
+final class DocumentationProperties {
+
+    static final String SUFFIX = "__annodoc.properties";
+    static final String CLASS_KEY = "classDoc";
+
+    private DocumentationProperties() {}
+
+    /**
+     * The resource name of a class, for example {@code com/example/Api$Nested__annodoc.properties}.
+     */
+    static String resourceName(String internalName) {
+        return internalName + SUFFIX;
+    }
+
+    /**
+     * The resource of a class file, next to it, whether it exists or not.
+     */
+    static Path resourceOf(Path classFile) {
+        String fileName = classFile.getFileName().toString();
+        return classFile.resolveSibling(fileName.substring(0, fileName.length() - ".class".length()) + SUFFIX);
+    }
+
+    static String fieldKey(String name) {
+        return "field." + name;
+    }
+
+    /**
+     * The key of a method or constructor; argument types before {@code firstSourceParameter}, such as the implicit
+     * outer instance of an inner-class constructor, are not source parameters.
+     */
+    static String methodKey(String name, Type[] argumentTypes, int firstSourceParameter) {
+        StringJoiner parameters = new StringJoiner(",", "method." + name + "(", ")");
+        for (int index = firstSourceParameter; index < argumentTypes.length; index++) {
+            parameters.add(argumentTypes[index].getClassName());
+        }
+        return parameters.toString();
+    }
+
+    static Map<String, String> read(byte[] bytes) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(bytes));
+        Map<String, String> result = new HashMap<>();
+        properties.forEach((key, value) -> result.put(key.toString(), value.toString()));
+        return result;
+    }
+
+    /**
+     * Writes entries in key order and without the date comment of {@link Properties#store}, so that equal entries
+     * yield equal bytes.
+     */
+    static byte[] write(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> entry : new TreeMap<>(entries).entrySet()) {
+            Properties properties = new Properties();
+            properties.setProperty(entry.getKey(), entry.getValue());
+            ByteArrayOutputStream stored = new ByteArrayOutputStream();
+            properties.store(stored, null);
+            byte[] bytes = stored.toByteArray();
+            int dateLineEnd = 0;
+            while (bytes[dateLineEnd] != '\n') dateLineEnd++;
+            result.write(bytes, dateLineEnd + 1, bytes.length - dateLineEnd - 1);
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.jspecify.annotations.NullMarked;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Moves documentation out of the class files of a built JAR into a separate documentation JAR.
+ *
+ * <p>{@code AnnoDoc} is retained at runtime, so captured documentation costs constant-pool bytes, metaspace, and
+ * annotation parsing in production although only projection and tooling read it. Stripping removes every
+ * {@code AnnoDoc} and {@code GroovyPropertyDocumentation} carrier and writes the documentation as
+ * {@code __annodoc.properties} resources to the documentation JAR instead, together with the documentation of the
+ * annotation processor's bundles. Put the documentation JAR on the class path
+ * of compilations that extract documentation, and on the
+ * {@linkplain SourceProjector.Builder#documentationClasspath(java.util.Collection) documentation classpath} of
+ * projections, to read the documentation as before.</p>
+ */
+@NullMarked
+public final class DocumentationStripper {
+
+    private static final String ANNO_DOC_DESCRIPTOR = descriptor(JavaPoetClassVisitor.ANNO_DOC_CLASS);
+    private static final String GROOVY_PROPERTY_DOCUMENTATION_DESCRIPTOR =
+            descriptor(JavaPoetClassVisitor.GROOVY_PROPERTY_DOCUMENTATION_CLASS);
+    private static final String GROOVYDOC_DESCRIPTOR = descriptor(JavaPoetClassVisitor.GROOVYDOC_CLASS);
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    // Layout of the annotation processor's documentation bundles, see its DocumentationBundleWriter.
+    private static final String BUNDLE_DIRECTORY = "META-INF/annodocimal/";
+    private static final String BUNDLE_SUFFIX = ".idx";
+    private static final int BUNDLE_MAGIC = 0x41444442;
+    private static final int BUNDLE_VERSION = 1;
+    private static final int BUNDLE_HEADER_SIZE = 12;
+    private static final int BUNDLE_ENTRY_SIZE = 16;
+
+    private DocumentationStripper() {}
+
+    /**
+     * Copies a classes JAR without its documentation carriers and writes the documentation to a documentation JAR.
+     *
+     * <p>Entries keep their order and timestamps. Class files without documentation carriers are copied unchanged;
+     * other class files are rewritten without them, which also drops their documentation text from the constant pool.
+     * The documentation of Groovy properties is written for the accessors it documented, so that the property
+     * association is not needed afterwards. An {@code AnnoDoc} on a declaration that also carries a runtime
+     * {@code Groovydoc} stays in place, because it would otherwise lose its precedence over that carrier.
+     * {@code __annodoc.properties} resources already in the JAR move to the
+     * documentation JAR as well; documentation from class files takes precedence over theirs. The documentation of the
+     * annotation processor's {@code META-INF/annodocimal/*.idx} bundles moves there too, as the resources of its
+     * classes, because bundles are only looked up next to the class files they document; a resource already in the JAR
+     * takes precedence over a bundle, as it does when documentation is extracted. The documentation JAR holds one
+     * resource per documented class in entry-name order with fixed timestamps.</p>
+     *
+     * <p>Rewritten class files no longer match the signature of a signed JAR, so the signature files are dropped and
+     * the entry digests are removed from the manifest; sign the stripped JAR again if it has to be signed. Both JARs
+     * are replaced only after the whole JAR was processed; the stripped JAR may replace the input JAR.</p>
+     *
+     * @param jar classes JAR
+     * @param strippedJar JAR to create or replace with the stripped classes and all other entries
+     * @param documentationJar documentation JAR to create or replace
+     * @return the resource entry names written to the documentation JAR, in entry order
+     * @throws IOException if the JAR or one of its documentation bundles cannot be read, or either output cannot be
+     *         written
+     * @throws SourceProjectionException if a class file cannot be read
+     */
+    public static List<String> stripJar(Path jar, Path strippedJar, Path documentationJar) throws IOException {
+        Objects.requireNonNull(jar, "jar");
+        Path strippedTarget = Objects.requireNonNull(strippedJar, "strippedJar").toAbsolutePath().normalize();
+        Path documentationTarget = Objects.requireNonNull(documentationJar, "documentationJar")
+                .toAbsolutePath().normalize();
+        Files.createDirectories(strippedTarget.getParent());
+        Files.createDirectories(documentationTarget.getParent());
+        Path strippedTemporary = Files.createTempFile(strippedTarget.getParent(),
+                strippedTarget.getFileName().toString(), ".tmp");
+        Path documentationTemporary = null;
+        try {
+            documentationTemporary = Files.createTempFile(documentationTarget.getParent(),
+                    documentationTarget.getFileName().toString(), ".tmp");
+            Map<String, Map<String, String>> documentation = new TreeMap<>();
+            try (ZipFile classes = new ZipFile(jar.toFile());
+                 ZipOutputStream stripped = new ZipOutputStream(
+                         new BufferedOutputStream(Files.newOutputStream(strippedTemporary)))) {
+                // Resources may follow their class files, but property documentation needs them while stripping.
+                Map<String, byte[]> bundles = new TreeMap<>();
+                for (Enumeration<? extends ZipEntry> entries = classes.entries(); entries.hasMoreElements(); ) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (isBundle(entry)) {
+                        bundles.put(name, read(classes, entry));
+                    } else if (!entry.isDirectory() && name.endsWith(DocumentationProperties.SUFFIX)) {
+                        documentation.put(name.substring(0, name.length() - DocumentationProperties.SUFFIX.length()),
+                                DocumentationProperties.read(read(classes, entry)));
+                    }
+                }
+                // Like extraction, the first bundle in name order documenting a class wins, after any resource.
+                for (Map.Entry<String, byte[]> bundle : bundles.entrySet()) {
+                    readBundle(bundle.getKey(), bundle.getValue()).forEach(documentation::putIfAbsent);
+                }
+                for (Enumeration<? extends ZipEntry> entries = classes.entries(); entries.hasMoreElements(); ) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if ((!entry.isDirectory() && name.endsWith(DocumentationProperties.SUFFIX))
+                            || isBundle(entry) || isSignatureFile(entry)) continue;
+                    byte[] bytes = read(classes, entry);
+                    if (name.equals(JarFile.MANIFEST_NAME)) bytes = withoutDigests(bytes);
+                    if (isStrippable(entry)) {
+                        String internalName = name.substring(0, name.length() - ".class".length());
+                        ClassStripper stripper = ClassStripper.strip(Path.of(name), bytes,
+                                documentation.getOrDefault(internalName, Map.of()));
+                        if (stripper.changed) {
+                            bytes = stripper.toByteArray();
+                            documentation.put(stripper.name, stripper.documentation);
+                        }
+                    }
+                    stripped.putNextEntry(copyOf(entry));
+                    stripped.write(bytes);
+                    stripped.closeEntry();
+                }
+            }
+            List<String> result = new ArrayList<>();
+            try (ZipOutputStream output = new ZipOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(documentationTemporary)))) {
+                for (Map.Entry<String, Map<String, String>> classDocumentation : documentation.entrySet()) {
+                    if (classDocumentation.getValue().isEmpty()) continue;
+                    String entryName = DocumentationProperties.resourceName(classDocumentation.getKey());
+                    output.putNextEntry(JarProjection.sourceEntry(entryName));
+                    output.write(DocumentationProperties.write(classDocumentation.getValue()));
+                    output.closeEntry();
+                    result.add(entryName);
+                }
+            }
+            replace(strippedTemporary, strippedTarget);
+            replace(documentationTemporary, documentationTarget);
+            return List.copyOf(result);
+        } finally {
+            Files.deleteIfExists(strippedTemporary);
+            if (documentationTemporary != null) Files.deleteIfExists(documentationTemporary);
+        }
+    }
+
+    private static boolean isStrippable(ZipEntry entry) {
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/")) return false;
+        String simpleName = name.substring(name.lastIndexOf('/') + 1);
+        return !simpleName.equals("module-info.class") && !simpleName.equals("package-info.class");
+    }
+
+    private static boolean isBundle(ZipEntry entry) {
+        String name = entry.getName();
+        return !entry.isDirectory() && name.startsWith(BUNDLE_DIRECTORY) && name.endsWith(BUNDLE_SUFFIX)
+                && name.indexOf('/', BUNDLE_DIRECTORY.length()) < 0;
+    }
+
+    // The signature-related files the JDK verifies a signed JAR with.
+    private static boolean isSignatureFile(ZipEntry entry) {
+        String name = entry.getName().toUpperCase(Locale.ROOT);
+        if (entry.isDirectory() || !name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) >= 0) {
+            return false;
+        }
+        return name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC")
+                || name.startsWith("META-INF/SIG-");
+    }
+
+    /**
+     * Returns the manifest without the entry digests of its signature, unchanged if it has none.
+     */
+    private static byte[] withoutDigests(byte[] bytes) throws IOException {
+        Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
+        boolean changed = false;
+        for (Iterator<Attributes> sections = manifest.getEntries().values().iterator(); sections.hasNext(); ) {
+            Attributes section = sections.next();
+            changed |= section.keySet().removeIf(name -> name.toString().toUpperCase(Locale.ROOT).endsWith("-DIGEST"));
+            if (section.isEmpty()) sections.remove();
+        }
+        if (!changed) return bytes;
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        manifest.write(result);
+        return result.toByteArray();
+    }
+
+    /**
+     * Decodes the documentation of each class of a bundle, keyed by internal name.
+     */
+    private static Map<String, Map<String, String>> readBundle(String name, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.getInt() != BUNDLE_MAGIC || buffer.getInt() != BUNDLE_VERSION) {
+                throw new IOException("Not a documentation bundle: " + name);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > (bytes.length - BUNDLE_HEADER_SIZE) / BUNDLE_ENTRY_SIZE) {
+                throw new IOException("Truncated documentation bundle " + name);
+            }
+            Map<String, Map<String, String>> result = new TreeMap<>();
+            for (int index = 0; index < count; index++) {
+                int row = BUNDLE_HEADER_SIZE + index * BUNDLE_ENTRY_SIZE;
+                String binaryName = new String(bytes, buffer.getInt(row), buffer.getInt(row + 4),
+                        StandardCharsets.UTF_8);
+                ByteBuffer data = buffer.slice(buffer.getInt(row + 8), buffer.getInt(row + 12));
+                int size = data.getInt();
+                Map<String, String> entries = new HashMap<>();
+                for (int entry = 0; entry < size; entry++) {
+                    entries.put(readString(data), readString(data));
+                }
+                result.put(binaryName.replace('.', '/'), entries);
+            }
+            return result;
+        } catch (RuntimeException corrupt) {
+            throw new IOException("Corrupt documentation bundle " + name, corrupt);
+        }
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getInt()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream input = zip.getInputStream(entry)) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static ZipEntry copyOf(ZipEntry entry) {
+        ZipEntry result = new ZipEntry(entry.getName());
+        result.setTime(entry.getTime());
+        if (entry.getExtra() != null) result.setExtra(entry.getExtra());
+        if (entry.getComment() != null) result.setComment(entry.getComment());
+        return result;
+    }
+
+    private static void replace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ignored) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String descriptor(String className) {
+        return Type.getObjectType(className.replace('.', '/')).getDescriptor();
+    }
+
+    /**
+     * Drops the documentation carriers of one class file and collects their documentation under the keys of the
+     * documentation-properties protocol.
+     */
+    private static final class ClassStripper extends ClassVisitor {
+        private final ClassWriter writer;
+        private final Map<String, String> documentation;
+        private final List<PropertyAccessors> properties = new ArrayList<>();
+        private final List<Method> methods = new ArrayList<>();
+        private String name;
+        private String outerName;
+        private boolean changed;
+
+        private final Set<String> groovydocKeys;
+
+        private ClassStripper(ClassWriter writer, Map<String, String> resource, Set<String> groovydocKeys) {
+            super(CompilerConfiguration.ASM_API_VERSION, writer);
+            this.writer = writer;
+            this.groovydocKeys = groovydocKeys;
+            documentation = new HashMap<>(resource);
+        }
+
+        /**
+         * @param resource entries of the class's documentation-properties resource, which its carriers replace
+         */
+        static ClassStripper strip(Path classFile, byte[] bytes, Map<String, String> resource) {
+            ClassStripper result;
+            try {
+                ClassReader reader = new ClassReader(bytes);
+                GroovydocScanner scanner = new GroovydocScanner();
+                reader.accept(scanner, ClassReader.SKIP_CODE);
+                // Without the reader, the writer builds a new constant pool, which no longer holds the documentation.
+                result = new ClassStripper(new ClassWriter(0), resource, scanner.keys);
+                reader.accept(result, 0);
+            } catch (RuntimeException exception) {
+                throw new SourceProjectionException(classFile, null, "Could not read class file " + classFile,
+                        exception);
+            }
+            return result;
+        }
+
+        byte[] toByteArray() {
+            return writer.toByteArray();
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.name = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (isOuterInstance(this.name, name, outerName, access)) this.outerName = outerName;
+            super.visitInnerClass(name, outerName, innerName, access);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (!isStripped(descriptor, DocumentationProperties.CLASS_KEY)) {
+                return super.visitAnnotation(descriptor, visible);
+            }
+            changed = true;
+            return new DocumentationVisitor(text -> documentation.put(DocumentationProperties.CLASS_KEY, text));
+        }
+
+        private boolean isStripped(String descriptor, String key) {
+            return ANNO_DOC_DESCRIPTOR.equals(descriptor) && !groovydocKeys.contains(key);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            String key = DocumentationProperties.fieldKey(name);
+            return new FieldVisitor(api, super.visitField(access, name, descriptor, signature, value)) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    if (isStripped(annotationDescriptor, key)) {
+                        changed = true;
+                        return new DocumentationVisitor(text -> documentation.put(key, text));
+                    }
+                    if (GROOVY_PROPERTY_DOCUMENTATION_DESCRIPTOR.equals(annotationDescriptor)) {
+                        changed = true;
+                        PropertyAccessors accessors = new PropertyAccessors(key);
+                        properties.add(accessors);
+                        return accessors;
+                    }
+                    return super.visitAnnotation(annotationDescriptor, visible);
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            Type methodType = Type.getMethodType(descriptor);
+            Method method = new Method(name, methodType, methodKey(name, methodType, outerName));
+            methods.add(method);
+            return new MethodVisitor(api, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    if (!isStripped(annotationDescriptor, method.key)) {
+                        return super.visitAnnotation(annotationDescriptor, visible);
+                    }
+                    changed = true;
+                    return new DocumentationVisitor(text -> documentation.put(method.key, text));
+                }
+            };
+        }
+
+        @Override
+        public void visitEnd() {
+            // Projection documents an undocumented accessor with the documentation of its property.
+            for (Method method : methods) {
+                if (groovydocKeys.contains(method.key) || documentation.containsKey(method.key)) continue;
+                for (PropertyAccessors property : properties) {
+                    String propertyDocumentation = documentation.get(property.fieldKey);
+                    if (propertyDocumentation != null && property.documents(method)) {
+                        documentation.put(method.key, propertyDocumentation);
+                        break;
+                    }
+                }
+            }
+            super.visitEnd();
+        }
+    }
+
+    // Constructors of inner classes take their outer instance first, which is not a source parameter.
+    private static boolean isOuterInstance(String className, String innerClass, String outerName, int access) {
+        return innerClass.equals(className) && outerName != null && (access & Opcodes.ACC_STATIC) == 0;
+    }
+
+    private static String methodKey(String name, Type methodType, String outerName) {
+        Type[] argumentTypes = methodType.getArgumentTypes();
+        boolean implicitOuterParameter = CONSTRUCTOR_NAME.equals(name) && outerName != null
+                && argumentTypes.length > 0 && argumentTypes[0].getInternalName().equals(outerName);
+        return DocumentationProperties.methodKey(name, argumentTypes, implicitOuterParameter ? 1 : 0);
+    }
+
+    /**
+     * Collects the documentation-properties keys of the declarations of one class file that carry a runtime
+     * {@code Groovydoc}.
+     */
+    private static final class GroovydocScanner extends ClassVisitor {
+        private final Set<String> keys = new HashSet<>();
+        private String name;
+        private String outerName;
+
+        private GroovydocScanner() {
+            super(CompilerConfiguration.ASM_API_VERSION);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (isOuterInstance(this.name, name, outerName, access)) this.outerName = outerName;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (GROOVYDOC_DESCRIPTOR.equals(descriptor)) keys.add(DocumentationProperties.CLASS_KEY);
+            return null;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            String key = DocumentationProperties.fieldKey(name);
+            return new FieldVisitor(api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    if (GROOVYDOC_DESCRIPTOR.equals(annotationDescriptor)) keys.add(key);
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            String key = methodKey(name, Type.getMethodType(descriptor), outerName);
+            return new MethodVisitor(api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    if (GROOVYDOC_DESCRIPTOR.equals(annotationDescriptor)) keys.add(key);
+                    return null;
+                }
+            };
+        }
+    }
+
+    private static final class Method {
+        private final String name;
+        private final Type type;
+        private final String key;
+
+        private Method(String name, Type type, String key) {
+            this.name = name;
+            this.type = type;
+            this.key = key;
+        }
+    }
+
+    private static final class DocumentationVisitor extends AnnotationVisitor {
+        private final Consumer<String> target;
+
+        private DocumentationVisitor(Consumer<String> target) {
+            super(CompilerConfiguration.ASM_API_VERSION);
+            this.target = target;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            if ("value".equals(name) && value instanceof String text && !text.isBlank()) target.accept(text);
+        }
+    }
+
+    private static final class PropertyAccessors extends AnnotationVisitor {
+        private final String fieldKey;
+        private final List<String> getters = new ArrayList<>();
+        private final List<String> setters = new ArrayList<>();
+
+        private PropertyAccessors(String fieldKey) {
+            super(CompilerConfiguration.ASM_API_VERSION);
+            this.fieldKey = fieldKey;
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            List<String> target = name.equals("getters") ? getters : name.equals("setters") ? setters : null;
+            if (target == null) return null;
+            return new AnnotationVisitor(api) {
+                @Override
+                public void visit(String ignored, Object value) {
+                    if (value instanceof String accessor) target.add(accessor);
+                }
+            };
+        }
+
+        // Same accessor shapes as the projection of a property association.
+        private boolean documents(Method method) {
+            boolean returnsValue = method.type.getReturnType().getSort() != Type.VOID;
+            int parameters = method.type.getArgumentTypes().length;
+            return getters.contains(method.name) && parameters == 0 && returnsValue
+                    || setters.contains(method.name) && parameters == 1 && !returnsValue;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Root selection and entry layout for projecting a classes JAR into a sources JAR.
+ *
+ * <p>Class files are read in place through the JAR's zip file system, which resolves entries from the central
+ * directory, so neither the JAR nor the projected sources are ever expanded to disk.</p>
+ */
+final class JarProjection {
+
+    /** Fixed entry timestamp, matching Gradle's reproducible archives, so equal inputs yield byte-identical JARs. */
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+    private JarProjection() {}
+
+    /**
+     * Selects the top-level class files of a JAR in entry-name order.
+     *
+     * <p>{@code META-INF} entries, module descriptors, and package descriptors are never selected. Member, local, and
+     * anonymous classes are projected with their top-level class and are not selected either.</p>
+     *
+     * @param jar zip file system of the classes JAR
+     * @param entrySelection filter over slash-separated entry names such as {@code com/example/Api.class}
+     */
+    static List<Path> topLevelClasses(FileSystem jar, Predicate<String> entrySelection) throws IOException {
+        Path root = jar.getRootDirectories().iterator().next();
+        List<Path> candidates;
+        try (Stream<Path> entries = Files.walk(root)) {
+            candidates = entries
+                    .filter(entry -> isCandidate(entryName(root, entry), entrySelection))
+                    .sorted(Comparator.comparing(entry -> entryName(root, entry)))
+                    .toList();
+        }
+        List<Path> result = new ArrayList<>();
+        for (Path candidate : candidates) {
+            if (Files.isRegularFile(candidate) && isTopLevel(candidate)) result.add(candidate);
+        }
+        return result;
+    }
+
+    static ZipEntry sourceEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTimeLocal(ENTRY_TIME);
+        return entry;
+    }
+
+    private static String entryName(Path root, Path entry) {
+        return root.relativize(entry).toString();
+    }
+
+    private static boolean isCandidate(String entryName, Predicate<String> entrySelection) {
+        if (!entryName.endsWith(".class") || entryName.startsWith("META-INF/")) return false;
+        String simpleName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return !simpleName.equals("module-info.class") && !simpleName.equals("package-info.class")
+                && entrySelection.test(entryName);
+    }
+
+    private static boolean isTopLevel(Path classFile) throws IOException {
+        byte[] bytecode = Files.readAllBytes(classFile);
+        NestingVisitor visitor = new NestingVisitor();
+        try {
+            new ClassReader(bytecode).accept(visitor,
+                    ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        } catch (RuntimeException exception) {
+            throw new SourceProjectionException(classFile, null, "Could not read class metadata from " + classFile,
+                    exception);
+        }
+        return !visitor.nested;
+    }
+
+    private static final class NestingVisitor extends ClassVisitor {
+        private String name;
+        private boolean nested;
+
+        NestingVisitor() {
+            super(CompilerConfiguration.ASM_API_VERSION);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitOuterClass(String owner, String name, String descriptor) {
+            nested = true;
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (name.equals(this.name)) nested = true;
+        }
+    }
+}
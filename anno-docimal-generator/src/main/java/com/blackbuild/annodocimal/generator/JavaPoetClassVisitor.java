@@ -26,15 +26,11 @@ package com.blackbuild.annodocimal.generator;
 import com.squareup.javapoet.*;
 import org.codehaus.groovy.control.CompilerConfiguration;
 import org.objectweb.asm.*;
-import org.objectweb.asm.signature.SignatureReader;
-import org.objectweb.asm.signature.SignatureVisitor;
 
 import javax.lang.model.element.Modifier;
 import java.io.IOException;
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.util.stream.Collectors.joining;
@@ -46,27 +42,31 @@ class JavaPoetClassVisitor extends ClassVisitor {
             "com.blackbuild.annodocimal.annotations.GroovyPropertyDocumentation";
     static final String GROOVYDOC_CLASS = "groovy.lang.Groovydoc";
     private static final String CONSTRUCTOR_NAME = "<init>";
+    private static final Pattern PARAM_TAG = Pattern.compile("(?m)^\\s*@param\\s+(\\w+)");
     private final SpecConverter specConverter;
     private final ProjectionPolicy policy;
     private final Set<String> includedClasses;
     private final boolean groovyClass;
     private final Set<String> groovyRuntimeMethods;
     private final Set<String> groovyRuntimeFields;
+    // documentation-properties resource of this declaration, consulted when the class file carries no documentation
+    private final Map<String, String> resourceDocumentation;
     private TypeSpec.Builder typeBuilder;
-    private final MemberAnnotationVisitor.DocumentationCarrierSelection typeDocumentation =
-            new MemberAnnotationVisitor.DocumentationCarrierSelection();
+    private final MemberAnnotationVisitor.DocumentationCarrierSelection typeDocumentation;
     private TypeSpec type;
     private String internalName;
     private String packageName;
     private ClassName className;
     private TypeSpec.Kind kind;
     private boolean recordDeclaration;
-    private final List<RecordComponentShape> recordComponents = new ArrayList<>();
-    private final List<RecordShape> recordShapes = new ArrayList<>();
+    private final List<RecordComponent> recordComponents = new ArrayList<>();
+    // Selected nested declarations in InnerClasses order; they are read together once this declaration is complete.
+    private final List<String> nestedClassNames = new ArrayList<>();
     private final Map<String, GroovyPropertyMapping> groovyPropertyMappings = new LinkedHashMap<>();
 
     JavaPoetClassVisitor(SpecConverter specConverter, ProjectionPolicy policy, Set<String> includedClasses,
-                         boolean groovyClass, Set<String> groovyRuntimeMethods, Set<String> groovyRuntimeFields) {
+                         boolean groovyClass, Set<String> groovyRuntimeMethods, Set<String> groovyRuntimeFields,
+                         Map<String, String> resourceDocumentation) {
         super(CompilerConfiguration.ASM_API_VERSION);
         this.specConverter = specConverter;
         this.policy = policy;
@@ -74,6 +74,9 @@ class JavaPoetClassVisitor extends ClassVisitor {
         this.groovyClass = groovyClass;
         this.groovyRuntimeMethods = groovyRuntimeMethods;
         this.groovyRuntimeFields = groovyRuntimeFields;
+        this.resourceDocumentation = resourceDocumentation;
+        typeDocumentation = new MemberAnnotationVisitor.DocumentationCarrierSelection(
+                resourceDocumentation.get(DocumentationProperties.CLASS_KEY));
     }
 
     @Override
@@ -101,25 +104,37 @@ class JavaPoetClassVisitor extends ClassVisitor {
 
     @Override
     public RecordComponentVisitor visitRecordComponent(String name, String descriptor, String signature) {
-        final TypeName[] componentType = {null};
-        if (signature == null) {
-            componentType[0] = specConverter.toTypeName(Type.getType(descriptor));
-        } else {
-            new SignatureReader(signature).accept(new TypeSignatureParser(specConverter::toClassName) {
-                @Override
-                void finished(TypeName result) {
-                    componentType[0] = result;
-                }
-            });
-        }
-        recordComponents.add(new RecordComponentShape(name, descriptor, componentType[0]));
-        return null;
+        TypeName componentType = signature == null
+                ? specConverter.toTypeName(Type.getType(descriptor))
+                : specConverter.toTypeName(signature);
+        RecordComponent component = new RecordComponent(name, descriptor, componentType);
+        recordComponents.add(component);
+        return new RecordComponentVisitor(api) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                return new MemberAnnotationVisitor.Regular(Type.getType(annotationDescriptor), component.annotations,
+                        specConverter::toClassName);
+            }
+
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String annotationDescriptor,
+                                                         boolean visible) {
+                return componentTypeAnnotationVisitor(component, typePath, annotationDescriptor);
+            }
+        };
+    }
+
+    private AnnotationVisitor componentTypeAnnotationVisitor(RecordComponent component, TypePath typePath,
+                                                             String descriptor) {
+        if (typePath != null) return null; // only annotations of the component type itself are kept
+        return new MemberAnnotationVisitor.Regular(Type.getType(descriptor), component.typeAnnotations,
+                specConverter::toClassName);
     }
 
     private void prepareTypeBuilder(int access, String name) {
         className = specConverter.toClassName(name);
         kind = toJavaPoetKind(access);
-        if (kind == TypeSpec.Kind.ENUM)
+        if (kind == TypeSpec.Kind.ENUM || recordDeclaration)
             access &= ~Opcodes.ACC_FINAL;
         if (kind == TypeSpec.Kind.ANNOTATION || kind == TypeSpec.Kind.INTERFACE)
             access &= ~Opcodes.ACC_ABSTRACT;
@@ -177,7 +192,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
         if (name.replace('/', '.').equals(className.reflectionName())) {
             typeBuilder.modifiers.clear();
             kind = toJavaPoetKind(access);
-            if (kind == TypeSpec.Kind.ENUM)
+            if (kind == TypeSpec.Kind.ENUM || recordDeclaration)
                 access &= ~Opcodes.ACC_FINAL;
             if (kind == TypeSpec.Kind.ANNOTATION || kind == TypeSpec.Kind.INTERFACE)
                 access &= ~Opcodes.ACC_ABSTRACT;
@@ -192,9 +207,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
 
         if (!includedClasses.contains(name)) return;
 
-        JavaPoetClassVisitor innerReader = specConverter.readClass(name);
-        typeBuilder.addType(innerReader.getType());
-        recordShapes.addAll(innerReader.recordShapes);
+        nestedClassNames.add(name);
 
 
         /*
@@ -223,7 +236,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
         boolean hasImplicitOuterParameter = hasImplicitOuterParameter(name, argumentTypes);
         boolean canonicalRecordConstructor = recordDeclaration && name.equals(CONSTRUCTOR_NAME)
                 && desc.equals("(" + recordComponents.stream()
-                .map(RecordComponentShape::descriptor)
+                .map(component -> component.descriptor)
                 .collect(joining()) + ")V");
         List<TypeName> parameterTypes = new ArrayList<>(argumentTypes.length);
         List<String> argumentNames = new ArrayList<>(argumentTypes.length);
@@ -233,46 +246,16 @@ class JavaPoetClassVisitor extends ClassVisitor {
         if (signature != null) {
             Map<String, TypeName> inheritedVariables = specConverter.inheritedTypeVariables(
                     internalName, name, desc, signature);
-            Function<String, TypeName> variableResolver = variable -> inheritedVariables.getOrDefault(
-                    variable, TypeVariableName.get(variable));
-            FormalParameterParser v = new FormalParameterParser(specConverter::toClassName, variableResolver) {
-                @Override
-                public SignatureVisitor visitParameterType() {
-                    return new TypeSignatureParser(specConverter::toClassName, variableResolver) {
-                        @Override
-                        void finished(TypeName result) {
-                            parameterTypes.add(result);
-                        }
-                    };
-                }
-
-                @Override
-                public SignatureVisitor visitReturnType() {
-                    return new TypeSignatureParser(specConverter::toClassName, variableResolver) {
-                        @Override
-                        void finished(TypeName result) {
-                            if (!name.equals(CONSTRUCTOR_NAME)) {
-                                methodBuilder.returns(result);
-                            }
-                        }
-                    };
-                }
-
-                @Override
-                public SignatureVisitor visitExceptionType() {
-                    return new TypeSignatureParser(specConverter::toClassName, variableResolver) {
-                        @Override
-                        void finished(TypeName result) {
-                            exceptionTypes.add(result);
-                        }
-                    };
-                }
-            };
-            new SignatureReader(signature).accept(v);
+            SpecConverter.MethodSignature parsed = specConverter.methodSignature(signature, inheritedVariables);
+            parameterTypes.addAll(parsed.parameterTypes());
+            if (!name.equals(CONSTRUCTOR_NAME)) {
+                methodBuilder.returns(parsed.returnType());
+            }
+            exceptionTypes.addAll(parsed.exceptionTypes());
             if (hasImplicitOuterParameter && parameterTypes.size() == argumentTypes.length) {
                 parameterTypes.remove(0);
             }
-            v.getTypeParameters().entrySet().stream()
+            parsed.typeParameters().entrySet().stream()
                     .map(ClassSignatureParser::toTypeVariable)
                     .forEach(methodBuilder::addTypeVariable);
             if (exceptionTypes.isEmpty() && exceptions != null) {
@@ -295,9 +278,10 @@ class JavaPoetClassVisitor extends ClassVisitor {
         }
         exceptionTypes.forEach(methodBuilder::addException);
 
+        String resourceKey = DocumentationProperties.methodKey(name, argumentTypes, hasImplicitOuterParameter ? 1 : 0);
         return new MethodVisitor(api) {
             final MemberAnnotationVisitor.DocumentationCarrierSelection documentation =
-                    new MemberAnnotationVisitor.DocumentationCarrierSelection();
+                    new MemberAnnotationVisitor.DocumentationCarrierSelection(resourceDocumentation.get(resourceKey));
             int visitedParameters;
 
             @Override
@@ -346,7 +330,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
                 for (int i = 0; i < parameterTypes.size(); i++) {
                     String paramName;
                     if (canonicalRecordConstructor && recordComponents.size() > i) {
-                        paramName = recordComponents.get(i).name();
+                        paramName = recordComponents.get(i).name;
                     } else if (argumentNames.size() > i) {
                         paramName = argumentNames.get(i);
                     } else {
@@ -359,6 +343,16 @@ class JavaPoetClassVisitor extends ClassVisitor {
                             parameterBuilder.addAnnotation(annotation);
                     methodBuilder.addParameter(parameterBuilder.build());
                 }
+                if (canonicalRecordConstructor) {
+                    for (RecordComponent component : recordComponents) {
+                        methodBuilder.addStatement("this.$N = $N", component.name, component.name);
+                    }
+                } else if (recordDeclaration && CONSTRUCTOR_NAME.equals(name)) {
+                    methodBuilder.addStatement("this($L)", recordComponents.stream()
+                            .map(component -> CodeBlock.of("($T) $L", component.type,
+                                    fieldInitializer(Type.getType(component.descriptor), null)))
+                            .collect(CodeBlock.joining(", ")));
+                }
 
                 String selectedDocumentation = documentation.selected();
                 if (selectedDocumentation == null) {
@@ -409,6 +403,11 @@ class JavaPoetClassVisitor extends ClassVisitor {
         };
     }
 
+    private MemberAnnotationVisitor.DocumentationCarrierSelection fieldDocumentation(String name) {
+        return new MemberAnnotationVisitor.DocumentationCarrierSelection(
+                resourceDocumentation.get(DocumentationProperties.fieldKey(name)));
+    }
+
     private boolean hasImplicitOuterParameter(String methodName, Type[] argumentTypes) {
         if (!CONSTRUCTOR_NAME.equals(methodName) || typeBuilder.modifiers.contains(Modifier.STATIC)
                 || className.enclosingClassName() == null || argumentTypes.length == 0) {
@@ -419,12 +418,41 @@ class JavaPoetClassVisitor extends ClassVisitor {
 
     @Override
     public void visitEnd() {
+        for (JavaPoetClassVisitor innerReader : specConverter.readClasses(nestedClassNames)) {
+            typeBuilder.addType(innerReader.getType());
+        }
         String selectedDocumentation = typeDocumentation.selected();
+        if (recordDeclaration) {
+            selectedDocumentation = withComponentDocumentation(selectedDocumentation);
+            typeBuilder.superclass(ProjectedSourceWriter.recordHeader(recordComponents.stream()
+                    .map(RecordComponent::declaration)
+                    .collect(CodeBlock.joining(", "))));
+        }
         if (selectedDocumentation != null) typeBuilder.addJavadoc(selectedDocumentation);
         type = typeBuilder.build();
-        if (recordDeclaration) {
-            recordShapes.add(new RecordShape(className.simpleName(), List.copyOf(recordComponents)));
+    }
+
+    /**
+     * Adds the documentation of record components to the record documentation as {@code @param} tags, unless the
+     * record documents them itself.
+     */
+    private String withComponentDocumentation(String documentation) {
+        Set<String> documentedComponents = documentation == null ? Set.of() : PARAM_TAG.matcher(documentation)
+                .results()
+                .map(match -> match.group(1))
+                .collect(toSet());
+        StringBuilder result = new StringBuilder(documentation == null ? "" : documentation);
+        // block tags follow the description after a blank line
+        String separator = documentation == null || documentation.lines().anyMatch(line -> line.strip().startsWith("@"))
+                ? "\n" : "\n\n";
+        for (RecordComponent component : recordComponents) {
+            String componentDocumentation = component.documentation == null ? null : component.documentation.selected();
+            if (componentDocumentation == null || documentedComponents.contains(component.name)) continue;
+            if (!result.isEmpty()) result.append(separator);
+            separator = "\n";
+            result.append("@param ").append(component.name).append(' ').append(componentDocumentation);
         }
+        return result.isEmpty() ? null : result.toString();
     }
 
     @Override
@@ -438,6 +466,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
 
     @Override
     public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        if (recordDeclaration && (access & Opcodes.ACC_STATIC) == 0) return recordComponentFieldVisitor(name, desc);
         boolean included = ProjectionSelection.includesField(policy, access, name, typeAccess(),
                 groovyRuntimeFields.contains(ProjectionSelection.memberKey(name, desc)));
 
@@ -451,26 +480,41 @@ class JavaPoetClassVisitor extends ClassVisitor {
     }
 
     private TypeName fieldType(String descriptor, String signature) {
-        final TypeName[] fieldType = {null}; // Array to allow write access from inner class
-        if (signature != null) {
-            TypeSignatureParser signatureParser = new TypeSignatureParser(specConverter::toClassName) {
-                @Override
-                void finished(TypeName result) {
-                    fieldType[0] = result;
-                }
-            };
-            new SignatureReader(signature).accept(signatureParser);
-        } else {
-            fieldType[0] = specConverter.toTypeName(Type.getType(descriptor));
-        }
-        return fieldType[0];
+        return signature == null
+                ? specConverter.toTypeName(Type.getType(descriptor))
+                : specConverter.toTypeName(signature);
+    }
+
+    /**
+     * The private field of a record component is implied by the record header, so its annotations and documentation
+     * move to the component.
+     */
+    private FieldVisitor recordComponentFieldVisitor(String name, String descriptor) {
+        RecordComponent component = recordComponents.stream()
+                .filter(candidate -> candidate.name.equals(name) && candidate.descriptor.equals(descriptor))
+                .findFirst()
+                .orElse(null);
+        if (component == null) return null;
+        component.documentation = fieldDocumentation(name);
+        return new FieldVisitor(api) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                return fieldAnnotationVisitor(annotationDescriptor, component.documentation, component.annotations);
+            }
+
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String annotationDescriptor,
+                                                         boolean visible) {
+                return componentTypeAnnotationVisitor(component, typePath, annotationDescriptor);
+            }
+        };
     }
 
     private FieldVisitor enumConstantVisitor(String name) {
         return new FieldVisitor(api) {
             private final TypeSpec.Builder enumClass = TypeSpec.anonymousClassBuilder(CodeBlock.builder().build());
             private final MemberAnnotationVisitor.DocumentationCarrierSelection documentation =
-                    new MemberAnnotationVisitor.DocumentationCarrierSelection();
+                    fieldDocumentation(name);
 
             @Override
             public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
@@ -490,7 +534,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
         return new FieldVisitor(api) {
             private final FieldSpec.Builder field = createField();
             private final MemberAnnotationVisitor.DocumentationCarrierSelection documentation =
-                    new MemberAnnotationVisitor.DocumentationCarrierSelection();
+                    fieldDocumentation(name);
             private final GroovyPropertyMappingVisitor propertyMapping = new GroovyPropertyMappingVisitor();
 
             private FieldSpec.Builder createField() {
@@ -521,7 +565,7 @@ class JavaPoetClassVisitor extends ClassVisitor {
     private FieldVisitor documentationOnlyFieldVisitor(String name) {
         return new FieldVisitor(api) {
             private final MemberAnnotationVisitor.DocumentationCarrierSelection documentation =
-                    new MemberAnnotationVisitor.DocumentationCarrierSelection();
+                    fieldDocumentation(name);
             private final GroovyPropertyMappingVisitor propertyMapping = new GroovyPropertyMappingVisitor();
 
             @Override
@@ -656,90 +700,38 @@ class JavaPoetClassVisitor extends ClassVisitor {
         return packageName;
     }
 
-    String finishSource(String source) {
-        for (RecordShape shape : recordShapes) {
-            source = finishRecordSource(source, shape);
+    /**
+     * Record component with the annotations found on the component and on its private field.
+     */
+    private static final class RecordComponent {
+        private final String name;
+        private final String descriptor;
+        private final TypeName type;
+        private final List<AnnotationSpec> annotations = new ArrayList<>();
+        private final List<AnnotationSpec> typeAnnotations = new ArrayList<>();
+        private MemberAnnotationVisitor.DocumentationCarrierSelection documentation;
+
+        private RecordComponent(String name, String descriptor, TypeName type) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.type = type;
         }
-        return source;
-    }
-
-    private static String finishRecordSource(String source, RecordShape shape) {
-        String sourceForTypes = source;
-        String components = shape.components().stream()
-                .map(component -> sourceType(component.type(), sourceForTypes) + " " + component.name())
-                .collect(joining(", "));
-
-        String classDeclaration = "class " + shape.simpleName();
-        int classStart = source.indexOf(classDeclaration);
-        int declarationStart = source.lastIndexOf('\n', classStart) + 1;
-        int declarationEnd = source.indexOf(" {", declarationStart);
-        if (classStart < 0 || declarationEnd < 0) {
-            throw new IllegalStateException("Projected record is missing its type declaration: " + shape.simpleName());
-        }
-        String declaration = source.substring(declarationStart, declarationEnd);
-        String recordDeclaration = declaration.replaceFirst(
-                "\\bfinal class " + Pattern.quote(shape.simpleName()) + "\\b", "record " + shape.simpleName());
-        int interfacesStart = recordDeclaration.indexOf(" implements ");
-        int componentsPosition = interfacesStart < 0 ? recordDeclaration.length() : interfacesStart;
-        recordDeclaration = recordDeclaration.substring(0, componentsPosition)
-                + "(" + components + ")"
-                + recordDeclaration.substring(componentsPosition);
-        source = source.substring(0, declarationStart) + recordDeclaration + source.substring(declarationEnd);
-
-        String constructorToken = shape.simpleName() + "(";
-        int recordBodyStart = source.indexOf(" {", declarationStart) + 2;
-        ConstructorRange constructor = findCanonicalConstructor(source, constructorToken, recordBodyStart, components);
-        if (constructor == null) return source;
-
-        int constructorBody = constructor.parametersEnd() + 3;
-        int constructorLineStart = source.lastIndexOf('\n', constructor.start()) + 1;
-        int indentationEnd = constructorLineStart;
-        while (indentationEnd < constructor.start() && Character.isWhitespace(source.charAt(indentationEnd))) {
-            indentationEnd++;
-        }
-        String assignmentIndent = source.substring(constructorLineStart, indentationEnd) + "  ";
-        String assignments = shape.components().stream()
-                .map(component -> assignmentIndent + "this." + component.name()
-                        + " = " + component.name() + ";\n")
-                .collect(joining());
-        return source.substring(0, constructorBody) + "\n" + assignments + source.substring(constructorBody);
-    }
-
-    private static ConstructorRange findCanonicalConstructor(String source, String constructorToken,
-                                                              int searchStart, String components) {
-        String normalizedComponents = normalizeParameters(components);
-        int constructorStart = source.indexOf(constructorToken, searchStart);
-        while (constructorStart >= 0) {
-            int parametersEnd = source.indexOf(") {", constructorStart + constructorToken.length());
-            if (parametersEnd < 0) return null;
-            String candidateParameters = source.substring(
-                    constructorStart + constructorToken.length(), parametersEnd);
-            if (normalizeParameters(candidateParameters).equals(normalizedComponents)) {
-                return new ConstructorRange(constructorStart, parametersEnd);
-            }
-            constructorStart = source.indexOf(constructorToken, parametersEnd);
-        }
-        return null;
-    }
-
-    private static String normalizeParameters(String parameters) {
-        return parameters.replaceAll("\\s+", " ").trim();
-    }
 
-    private static String sourceType(TypeName type, String source) {
-        String result = type.toString();
-        Matcher imports = Pattern.compile("(?m)^import ([\\w.$]+);$").matcher(source);
-        while (imports.find()) {
-            String importedType = imports.group(1);
-            result = result.replace(importedType, importedType.substring(importedType.lastIndexOf('.') + 1));
+        /**
+         * The component as written in the record header. Annotations present on both the component and its field
+         * are written once, and a type annotation that is also a declaration annotation is written as the latter.
+         */
+        private CodeBlock declaration() {
+            CodeBlock.Builder result = CodeBlock.builder();
+            List<AnnotationSpec> declarationAnnotations = annotations.stream().distinct().toList();
+            declarationAnnotations.forEach(annotation -> result.add("$L ", annotation));
+            List<AnnotationSpec> typeOnlyAnnotations = typeAnnotations.stream()
+                    .distinct()
+                    .filter(annotation -> !declarationAnnotations.contains(annotation))
+                    .toList();
+            return result.add("$T $N", typeOnlyAnnotations.isEmpty() ? type : type.annotated(typeOnlyAnnotations), name)
+                    .build();
         }
-        return result;
     }
 
-    private record RecordComponentShape(String name, String descriptor, TypeName type) {}
-
-    private record RecordShape(String simpleName, List<RecordComponentShape> components) {}
-
-    private record ConstructorRange(int start, int parametersEnd) {}
-
 }
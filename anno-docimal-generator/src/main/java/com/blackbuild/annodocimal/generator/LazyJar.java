@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A JAR that is opened on its first read and released by {@link #close()}.
+ *
+ * <p>Closing waits for reads in progress, and the next read opens the JAR again, so a closed instance stays usable.
+ * Between a close and the next read the file is not held open and may be replaced or deleted.</p>
+ */
+final class LazyJar implements Closeable {
+
+    private final Path jar;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ZipFile zipFile;
+
+    LazyJar(Path jar) {
+        this.jar = jar;
+    }
+
+    /**
+     * Returns the content of an entry, or {@code null} if the JAR does not exist or has no such entry.
+     */
+    byte[] read(String entryName) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (zipFile != null) return read(zipFile, entryName);
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (zipFile == null) {
+                if (!Files.isRegularFile(jar)) return null;
+                zipFile = new ZipFile(jar.toFile());
+            }
+            return read(zipFile, entryName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether the JAR is currently held open.
+     */
+    boolean isOpen() {
+        lock.readLock().lock();
+        try {
+            return zipFile != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (zipFile == null) return;
+            ZipFile open = zipFile;
+            zipFile = null;
+            open.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String entryName) throws IOException {
+        ZipEntry entry = zip.getEntry(entryName);
+        if (entry == null) return null;
+        try (InputStream input = zip.getInputStream(entry)) {
+            return input.readAllBytes();
+        }
+    }
+}
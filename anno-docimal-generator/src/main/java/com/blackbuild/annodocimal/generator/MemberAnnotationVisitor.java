@@ -255,9 +255,22 @@ final class MemberAnnotationVisitor {
         private static final Pattern SOURCE_COMMENT = Pattern.compile(
                 "^\\s*/\\*\\*(@?)(.*)\\*/\\s*$", Pattern.DOTALL);
         private static final Pattern LINE_DECORATION = Pattern.compile("(?m)^[\\t ]*\\*[\\t ]?");
+        private final String resource;
         private String canonical;
         private String interoperable;
 
+        DocumentationCarrierSelection() {
+            this(null);
+        }
+
+        /**
+         * @param resource documentation of the declaration in its class's documentation-properties resource, used
+         *                 when the class file carries none
+         */
+        DocumentationCarrierSelection(String resource) {
+            this.resource = resource;
+        }
+
         AnnotationVisitor visitor(Type type) {
             boolean canonicalCarrier = type.getClassName().equals(JavaPoetClassVisitor.ANNO_DOC_CLASS);
             boolean interoperableCarrier = type.getClassName().equals(JavaPoetClassVisitor.GROOVYDOC_CLASS);
@@ -274,7 +287,8 @@ final class MemberAnnotationVisitor {
         }
 
         String selected() {
-            return canonical != null ? canonical : interoperable;
+            if (canonical != null) return canonical;
+            return interoperable != null ? interoperable : normalize(resource);
         }
 
         private static String normalize(String text) {
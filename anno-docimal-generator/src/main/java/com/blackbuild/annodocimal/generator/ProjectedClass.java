@@ -0,0 +1,427 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.RecordComponentVisitor;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.TypeAnnotationNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The part of a projected class file that selection and emission read, parsed in one pass.
+ *
+ * <p>Unlike an ASM {@code ClassNode}, the model keeps no method bodies, no instruction, local-variable, or try-catch
+ * lists, no module, nest, or debug attributes, and only the InnerClasses entries that name both their outer class and
+ * their simple name. Type annotations are replayed only for record components and fields, because emission reads
+ * them only to annotate record components; the others are kept for selection. {@link #accept(ClassVisitor)} replays the
+ * remaining declarations in class-file order.</p>
+ */
+final class ProjectedClass {
+
+    final int version;
+    final int access;
+    final String name;
+    final String signature;
+    final String superName;
+    final List<String> interfaces;
+    final boolean groovySource;
+    final boolean enclosedInMethod;
+    final List<InnerClass> innerClasses;
+    final Annotations annotations;
+    final List<RecordComponent> recordComponents;
+    final List<Field> fields;
+    final List<Method> methods;
+
+    private ProjectedClass(Reader reader) {
+        version = reader.version;
+        access = reader.access;
+        name = reader.name;
+        signature = reader.signature;
+        superName = reader.superName;
+        interfaces = reader.interfaces;
+        groovySource = reader.groovySource;
+        enclosedInMethod = reader.enclosedInMethod;
+        innerClasses = List.copyOf(reader.innerClasses);
+        annotations = reader.annotations;
+        recordComponents = List.copyOf(reader.recordComponents);
+        fields = List.copyOf(reader.fields);
+        methods = List.copyOf(reader.methods);
+    }
+
+    /**
+     * Parses a class file; method bodies and frames are skipped, and the bytes are not retained.
+     */
+    static ProjectedClass read(byte[] bytecode) {
+        Reader reader = new Reader();
+        new ClassReader(bytecode).accept(reader, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        return new ProjectedClass(reader);
+    }
+
+    /**
+     * Replays the declarations to a visitor in the order a {@link ClassReader} reports them: the header, annotations,
+     * InnerClasses entries, record components, fields, and methods.
+     */
+    void accept(ClassVisitor visitor) {
+        visitor.visit(version, access, name, signature, superName, interfaces.toArray(new String[0]));
+        annotations.accept(visitor::visitAnnotation);
+        for (InnerClass inner : innerClasses) {
+            visitor.visitInnerClass(inner.name(), inner.outerName(), inner.innerName(), inner.access());
+        }
+        for (RecordComponent component : recordComponents) {
+            RecordComponentVisitor componentVisitor =
+                    visitor.visitRecordComponent(component.name(), component.descriptor(), component.signature());
+            if (componentVisitor == null) continue;
+            component.annotations().accept(componentVisitor::visitAnnotation);
+            component.annotations().acceptTypeAnnotations(componentVisitor::visitTypeAnnotation);
+            componentVisitor.visitEnd();
+        }
+        for (Field field : fields) field.accept(visitor);
+        for (Method method : methods) method.accept(visitor);
+        visitor.visitEnd();
+    }
+
+    boolean hasAnnotation(String descriptor) {
+        return annotations.contains(descriptor);
+    }
+
+    /**
+     * An InnerClasses entry of a member declaration.
+     */
+    record InnerClass(String name, String outerName, String innerName, int access) {
+    }
+
+    record RecordComponent(String name, String descriptor, String signature, Annotations annotations) {
+    }
+
+    /**
+     * The declaration and type annotations of a class or member, each list empty unless the class file has some.
+     */
+    static final class Annotations {
+        private List<AnnotationNode> visible = List.of();
+        private List<AnnotationNode> invisible = List.of();
+        private List<TypeAnnotation> typeAnnotations = List.of();
+
+        List<AnnotationNode> visible() {
+            return visible;
+        }
+
+        List<AnnotationNode> invisible() {
+            return invisible;
+        }
+
+        /**
+         * Type annotations, visible and invisible; selection reads the types they name.
+         */
+        List<AnnotationNode> typeAnnotations() {
+            if (typeAnnotations.isEmpty()) return List.of();
+            return typeAnnotations.stream().<AnnotationNode>map(TypeAnnotation::annotation).toList();
+        }
+
+        boolean hasTypeAnnotations() {
+            return !typeAnnotations.isEmpty();
+        }
+
+        boolean contains(String descriptor) {
+            return visible.stream().anyMatch(annotation -> descriptor.equals(annotation.desc))
+                    || invisible.stream().anyMatch(annotation -> descriptor.equals(annotation.desc));
+        }
+
+        private AnnotationVisitor add(String descriptor, boolean visibleAnnotation) {
+            AnnotationNode annotation = new AnnotationNode(descriptor);
+            if (visibleAnnotation) {
+                visible = append(visible, annotation);
+            } else {
+                invisible = append(invisible, annotation);
+            }
+            return annotation;
+        }
+
+        private AnnotationVisitor addTypeAnnotation(int typeRef, TypePath typePath, String descriptor,
+                                                    boolean visibleAnnotation) {
+            TypeAnnotationNode annotation = new TypeAnnotationNode(typeRef, typePath, descriptor);
+            typeAnnotations = append(typeAnnotations, new TypeAnnotation(annotation, visibleAnnotation));
+            return annotation;
+        }
+
+        private void accept(AnnotationTarget target) {
+            for (AnnotationNode annotation : visible) annotation.accept(target.visitAnnotation(annotation.desc, true));
+            for (AnnotationNode annotation : invisible) annotation.accept(target.visitAnnotation(annotation.desc, false));
+        }
+
+        private void acceptTypeAnnotations(TypeAnnotationTarget target) {
+            for (TypeAnnotation typeAnnotation : typeAnnotations) {
+                TypeAnnotationNode annotation = typeAnnotation.annotation();
+                annotation.accept(target.visitTypeAnnotation(annotation.typeRef, annotation.typePath,
+                        annotation.desc, typeAnnotation.visible()));
+            }
+        }
+
+        private static <T> List<T> append(List<T> list, T annotation) {
+            List<T> result = list.isEmpty() ? new ArrayList<>(2) : list;
+            result.add(annotation);
+            return result;
+        }
+    }
+
+    static final class Field {
+        final int access;
+        final String name;
+        final String descriptor;
+        final String signature;
+        final Object value;
+        final Annotations annotations = new Annotations();
+
+        private Field(int access, String name, String descriptor, String signature, Object value) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.value = value;
+        }
+
+        private void accept(ClassVisitor visitor) {
+            FieldVisitor fieldVisitor = visitor.visitField(access, name, descriptor, signature, value);
+            if (fieldVisitor == null) return;
+            annotations.accept(fieldVisitor::visitAnnotation);
+            if (annotations.hasTypeAnnotations()) annotations.acceptTypeAnnotations(fieldVisitor::visitTypeAnnotation);
+            fieldVisitor.visitEnd();
+        }
+    }
+
+    static final class Method {
+        final int access;
+        final String name;
+        final String descriptor;
+        final String signature;
+        final List<String> exceptions;
+        final Annotations annotations = new Annotations();
+        private List<Parameter> parameters = List.of();
+        private List<ParameterAnnotation> parameterAnnotations = List.of();
+        // Holds the default value of an annotation member as the single unnamed value of a descriptor-less node.
+        private AnnotationNode annotationDefault;
+
+        private Method(int access, String name, String descriptor, String signature, String[] exceptions) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.exceptions = exceptions == null ? List.of() : Arrays.asList(exceptions);
+        }
+
+        /**
+         * Annotations of the formal parameters, visible ones first, each in parameter order.
+         */
+        List<AnnotationNode> parameterAnnotations() {
+            return parameterAnnotations.stream().map(ParameterAnnotation::annotation).toList();
+        }
+
+        /**
+         * The default value of an annotation member, or {@code null}.
+         */
+        Object annotationDefault() {
+            return annotationDefault == null || annotationDefault.values == null
+                    ? null
+                    : annotationDefault.values.get(1);
+        }
+
+        private void accept(ClassVisitor visitor) {
+            MethodVisitor methodVisitor =
+                    visitor.visitMethod(access, name, descriptor, signature, exceptions.toArray(new String[0]));
+            if (methodVisitor == null) return;
+            for (Parameter parameter : parameters) methodVisitor.visitParameter(parameter.name(), parameter.access());
+            if (annotationDefault != null) annotationDefault.accept(methodVisitor.visitAnnotationDefault());
+            annotations.accept(methodVisitor::visitAnnotation);
+            for (ParameterAnnotation parameterAnnotation : parameterAnnotations) {
+                AnnotationNode annotation = parameterAnnotation.annotation();
+                annotation.accept(methodVisitor.visitParameterAnnotation(parameterAnnotation.parameter(),
+                        annotation.desc, parameterAnnotation.visible()));
+            }
+            methodVisitor.visitEnd();
+        }
+    }
+
+    private record Parameter(String name, int access) {
+    }
+
+    private record ParameterAnnotation(int parameter, AnnotationNode annotation, boolean visible) {
+    }
+
+    private record TypeAnnotation(TypeAnnotationNode annotation, boolean visible) {
+    }
+
+    @FunctionalInterface
+    private interface AnnotationTarget {
+        AnnotationVisitor visitAnnotation(String descriptor, boolean visible);
+    }
+
+    @FunctionalInterface
+    private interface TypeAnnotationTarget {
+        AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible);
+    }
+
+    private static final class Reader extends ClassVisitor {
+        private int version;
+        private int access;
+        private String name;
+        private String signature;
+        private String superName;
+        private List<String> interfaces = List.of();
+        private boolean groovySource;
+        private boolean enclosedInMethod;
+        private final List<InnerClass> innerClasses = new ArrayList<>();
+        private final Annotations annotations = new Annotations();
+        private final List<RecordComponent> recordComponents = new ArrayList<>();
+        private final List<Field> fields = new ArrayList<>();
+        private final List<Method> methods = new ArrayList<>();
+
+        private Reader() {
+            super(CompilerConfiguration.ASM_API_VERSION);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.version = version;
+            this.access = access;
+            this.name = name;
+            this.signature = signature;
+            this.superName = superName;
+            this.interfaces = interfaces == null ? List.of() : List.of(interfaces);
+        }
+
+        @Override
+        public void visitSource(String source, String debug) {
+            groovySource = source != null && source.endsWith(".groovy");
+        }
+
+        @Override
+        public void visitOuterClass(String owner, String name, String descriptor) {
+            enclosedInMethod = true;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return annotations.add(descriptor, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor,
+                                                     boolean visible) {
+            return annotations.addTypeAnnotation(typeRef, typePath, descriptor, visible);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (outerName != null && innerName != null) {
+                innerClasses.add(new InnerClass(name, outerName, innerName, access));
+            }
+        }
+
+        @Override
+        public RecordComponentVisitor visitRecordComponent(String name, String descriptor, String signature) {
+            RecordComponent component = new RecordComponent(name, descriptor, signature, new Annotations());
+            recordComponents.add(component);
+            return new RecordComponentVisitor(api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    return component.annotations().add(annotationDescriptor, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath,
+                                                             String annotationDescriptor, boolean visible) {
+                    return component.annotations().addTypeAnnotation(typeRef, typePath, annotationDescriptor, visible);
+                }
+            };
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            Field field = new Field(access, name, descriptor, signature, value);
+            fields.add(field);
+            return new FieldVisitor(api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    return field.annotations.add(annotationDescriptor, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath,
+                                                             String annotationDescriptor, boolean visible) {
+                    return field.annotations.addTypeAnnotation(typeRef, typePath, annotationDescriptor, visible);
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            Method method = new Method(access, name, descriptor, signature, exceptions);
+            methods.add(method);
+            return new MethodVisitor(api) {
+                @Override
+                public void visitParameter(String parameterName, int parameterAccess) {
+                    if (method.parameters.isEmpty()) method.parameters = new ArrayList<>();
+                    method.parameters.add(new Parameter(parameterName, parameterAccess));
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotationDefault() {
+                    method.annotationDefault = new AnnotationNode("");
+                    return method.annotationDefault;
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    return method.annotations.add(annotationDescriptor, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath,
+                                                             String annotationDescriptor, boolean visible) {
+                    return method.annotations.addTypeAnnotation(typeRef, typePath, annotationDescriptor, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitParameterAnnotation(int parameter, String annotationDescriptor,
+                                                                  boolean visible) {
+                    AnnotationNode annotation = new AnnotationNode(annotationDescriptor);
+                    if (method.parameterAnnotations.isEmpty()) method.parameterAnnotations = new ArrayList<>();
+                    method.parameterAnnotations.add(new ParameterAnnotation(parameter, annotation, visible));
+                    return annotation;
+                }
+            };
+        }
+    }
+}
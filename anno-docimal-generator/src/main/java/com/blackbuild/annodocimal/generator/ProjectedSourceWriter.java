@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Line-buffering writer between JavaPoet and the projection target.
+ *
+ * <p>The writer normalizes CR and CRLF line endings to LF and completes record declarations while the source is
+ * emitted. JavaPoet has no record kind, so records are built as classes whose superclass is the placeholder from
+ * {@link #recordHeader(CodeBlock)}, annotated with the record components. JavaPoet writes a type header on a single
+ * line and names the component types there as in any other header, so the line carrying the placeholder is the record
+ * header: its {@code class} keyword becomes {@code record} and the placeholder gives way to the components. Only the
+ * current line is held in memory.</p>
+ */
+final class ProjectedSourceWriter extends Writer {
+
+    private static final ClassName RECORD_MARKER = ClassName.get("", "$AnnoDocimalRecord");
+    private static final String RECORD_HEADER_START = " extends @" + RECORD_MARKER.simpleName() + "(";
+    private static final String RECORD_HEADER_END = ") " + RECORD_MARKER.simpleName();
+
+    private final Writer target;
+    private final StringBuilder line = new StringBuilder();
+    private boolean afterCarriageReturn;
+
+    ProjectedSourceWriter(Writer target) {
+        this.target = target;
+    }
+
+    /**
+     * Placeholder superclass of a record declaration with the given components.
+     */
+    static TypeName recordHeader(CodeBlock components) {
+        return RECORD_MARKER.annotated(AnnotationSpec.builder(RECORD_MARKER).addMember("value", components).build());
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        append((char) c);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            append(buffer[i]);
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        if (c == '\r') {
+            endLine();
+            afterCarriageReturn = true;
+            return this;
+        }
+        boolean skip = c == '\n' && afterCarriageReturn;
+        afterCarriageReturn = false;
+        if (skip) return this;
+        if (c == '\n') {
+            endLine();
+        } else {
+            line.append(c);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a trailing unterminated line.
+     */
+    void finish() throws IOException {
+        if (line.length() > 0) {
+            target.write(completeLine(line.toString()));
+            line.setLength(0);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        target.close();
+    }
+
+    private void endLine() throws IOException {
+        target.write(completeLine(line.toString()));
+        target.write('\n');
+        line.setLength(0);
+    }
+
+    private String completeLine(String text) {
+        int headerStart = text.indexOf(RECORD_HEADER_START);
+        if (headerStart < 0) return text;
+        int headerEnd = text.lastIndexOf(RECORD_HEADER_END);
+        int classStart = text.indexOf("class ");
+        if (headerEnd < headerStart || classStart < 0 || classStart > headerStart) {
+            throw new IllegalStateException("Projected record placeholder is not a complete type header: " + text);
+        }
+        return text.substring(0, classStart) + "record" + text.substring(classStart + "class".length(), headerStart)
+                + text.substring(headerStart + RECORD_HEADER_START.length() - 1, headerEnd + 1)
+                + text.substring(headerEnd + RECORD_HEADER_END.length());
+    }
+}
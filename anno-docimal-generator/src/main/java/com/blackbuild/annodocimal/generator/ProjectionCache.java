@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Content-addressed, on-disk store of projected sources.
+ *
+ * <p>A projection is a function of the bytes of its root and nested class files, the policy, the generator, and the
+ * metadata of the referenced declarations it looked up. The input key hashes everything but the referenced
+ * declarations; an {@code <input key>.refs} file lists the referenced names the last projection of that input looked
+ * up. The result key additionally hashes the current metadata of each listed name, or its absence, and names the
+ * {@code <result key>.java} file holding the projected text. Entries are never modified in place, so any number of
+ * projectors and processes may share one directory, and the directory may be deleted at any time.</p>
+ *
+ * <p>Reading an entry refreshes its modification time at most once a day, like the referenced-class indexes. The first
+ * entry a cache instance writes deletes the entries and leftover temporary files that were not used for
+ * {@link ReferencedClassIndex#RETENTION}, so the directory only holds the projections of recently projected
+ * classes.</p>
+ *
+ * <p>Whatever cannot be read from or written to the cache is projected without it.</p>
+ */
+final class ProjectionCache {
+
+    /**
+     * Version of the cache layout. Increment whenever the format of the stored entries changes.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Resource written by the build, holding the project version and a hash of the generator's sources.
+     */
+    static final String GENERATOR_VERSION_RESOURCE = "generator.version";
+    private static final String GENERATOR = VERSION + ":" + generatorVersion();
+
+    private final Path directory;
+    private final AtomicBoolean pruned = new AtomicBoolean();
+
+    ProjectionCache(Path directory) {
+        this.directory = directory.resolve("v" + VERSION);
+    }
+
+    /**
+     * The build-time identity of the generator, so that a changed generator never serves projections of an older one.
+     * Without the resource, every JVM uses its own identity and shares nothing.
+     */
+    static String generatorVersion() {
+        try (InputStream input = ProjectionCache.class.getResourceAsStream(GENERATOR_VERSION_RESOURCE)) {
+            String version = input == null ? "" : new String(input.readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (!version.isEmpty()) return version;
+        } catch (IOException ignored) {
+            // Fall through to an identity that matches no other JVM.
+        }
+        return "unversioned-" + UUID.randomUUID();
+    }
+
+    SourceProjector.ProjectionResult project(Path classFile, ProjectionPolicy policy,
+                                             ReferencedClasspath referencedClasspath,
+                                             ReferencedClassCache referencedClassCache,
+                                             DocumentationClasspath documentationClasspath,
+                                             Executor nestedReads) throws IOException {
+        Inputs inputs;
+        try {
+            inputs = Inputs.read(classFile, documentationClasspath);
+        } catch (IOException | UncheckedIOException unreadable) {
+            // Let the projection itself report the problem.
+            return SpecConverter.project(classFile, Map.of(), policy, referencedClasspath, referencedClassCache,
+                    documentationClasspath, nestedReads);
+        }
+        String inputKey = inputs.key(policy);
+        Path classPathRoot = SpecConverter.classPathRoot(classFile, inputs.rootName);
+        Path recordedReferences = directory.resolve(inputKey + ".refs");
+
+        String cached = null;
+        Map<String, Optional<ReferencedClass>> current = new LinkedHashMap<>();
+        try {
+            List<String> references = Files.readAllLines(recordedReferences, StandardCharsets.UTF_8);
+            for (String reference : references) {
+                current.put(reference, Optional.ofNullable(SpecConverter.findReferencedClass(classPathRoot, reference,
+                        referencedClasspath, referencedClassCache)));
+            }
+            Path entry = directory.resolve(resultKey(inputKey, current) + ".java");
+            cached = Files.readString(entry, StandardCharsets.UTF_8);
+            ReferencedClassIndex.touch(recordedReferences);
+            ReferencedClassIndex.touch(entry);
+        } catch (IOException | UncheckedIOException miss) {
+            // Not projected before, or with other referenced declarations.
+        }
+        if (cached != null) {
+            String source = cached;
+            return new SourceProjector.ProjectionResult(inputs.rootName, current, out -> out.write(source));
+        }
+
+        SourceProjector.ProjectionResult projection = SpecConverter.project(classFile, inputs.classFiles, policy,
+                referencedClasspath, referencedClassCache, documentationClasspath, nestedReads);
+        StringWriter text = new StringWriter();
+        projection.source().writeTo(text);
+        String source = text.toString();
+        try {
+            Files.createDirectories(directory);
+            ReferencedClassIndex.writeAtomically(directory.resolve(
+                    resultKey(inputKey, projection.referencedClasses()) + ".java"),
+                    source.getBytes(StandardCharsets.UTF_8));
+            ReferencedClassIndex.writeAtomically(recordedReferences, String.join("\n",
+                    projection.referencedClasses().keySet()).getBytes(StandardCharsets.UTF_8));
+            if (pruned.compareAndSet(false, true)) ReferencedClassIndex.prune(directory, "*.{java,refs,tmp}");
+        } catch (IOException unwritable) {
+            // The cache only saves projection time.
+        }
+        return new SourceProjector.ProjectionResult(inputs.rootName, projection.referencedClasses(),
+                out -> out.write(source));
+    }
+
+    private static String resultKey(String inputKey, Map<String, Optional<ReferencedClass>> references)
+            throws IOException {
+        MessageDigest digest = ReferencedClassIndex.sha256();
+        try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(),
+                digest))) {
+            output.writeUTF(inputKey);
+            for (Map.Entry<String, Optional<ReferencedClass>> reference : references.entrySet()) {
+                output.writeUTF(reference.getKey());
+                output.writeBoolean(reference.getValue().isPresent());
+                if (reference.getValue().isPresent()) reference.getValue().get().write(output);
+            }
+        }
+        return ReferencedClassIndex.hex(digest.digest());
+    }
+
+    /**
+     * The class files a projection of one root reads: the root and, recursively, its named member classes, each with
+     * its documentation-properties resource if there is one. A resource found on the documentation classpath is kept
+     * under the path next to its class file, where the projection looks for it first.
+     */
+    private static final class Inputs {
+        private final String rootName;
+        private final DocumentationClasspath documentationClasspath;
+        private final Map<Path, byte[]> classFiles = new LinkedHashMap<>();
+
+        private Inputs(String rootName, DocumentationClasspath documentationClasspath) {
+            this.rootName = rootName;
+            this.documentationClasspath = documentationClasspath;
+        }
+
+        static Inputs read(Path classFile, DocumentationClasspath documentationClasspath) throws IOException {
+            byte[] bytes = Files.readAllBytes(classFile);
+            MemberCollector root = MemberCollector.of(bytes);
+            Inputs result = new Inputs(root.name, documentationClasspath);
+            result.classFiles.put(classFile, bytes);
+            result.addDocumentation(classFile, root.name);
+            result.addMembers(classFile, root);
+            return result;
+        }
+
+        private void addMembers(Path classFile, MemberCollector owner) throws IOException {
+            for (String member : owner.members) {
+                Path memberFile = classFile.resolveSibling(member.substring(member.lastIndexOf('/') + 1) + ".class");
+                if (classFiles.containsKey(memberFile)) continue;
+                byte[] bytes = Files.readAllBytes(memberFile);
+                classFiles.put(memberFile, bytes);
+                addDocumentation(memberFile, member);
+                addMembers(classFile, MemberCollector.of(bytes));
+            }
+        }
+
+        private void addDocumentation(Path classFile, String internalName) throws IOException {
+            byte[] bytes = SpecConverter.readDocumentationResource(classFile, internalName, documentationClasspath);
+            if (bytes != null) classFiles.put(DocumentationProperties.resourceOf(classFile), bytes);
+        }
+
+        String key(ProjectionPolicy policy) {
+            MessageDigest digest = ReferencedClassIndex.sha256();
+            try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(),
+                    digest))) {
+                output.writeUTF(GENERATOR);
+                output.writeUTF(policy.toString());
+                for (Map.Entry<Path, byte[]> classFile : classFiles.entrySet()) {
+                    output.writeUTF(String.valueOf(classFile.getKey().getFileName()));
+                    output.writeInt(classFile.getValue().length);
+                    output.write(classFile.getValue());
+                }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return ReferencedClassIndex.hex(digest.digest());
+        }
+    }
+
+    private static final class MemberCollector extends ClassVisitor {
+        private String name;
+        private final List<String> members = new ArrayList<>();
+
+        private MemberCollector() {
+            super(CompilerConfiguration.ASM_API_VERSION);
+        }
+
+        static MemberCollector of(byte[] bytes) throws IOException {
+            MemberCollector collector = new MemberCollector();
+            try {
+                new ClassReader(bytes).accept(collector,
+                        ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException malformed) {
+                // ASM's failures for bytes that are not a supported class file.
+                throw new IOException("Malformed class file", malformed);
+            }
+            collector.members.sort(null);
+            return collector;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (innerName != null && this.name.equals(outerName)) members.add(name);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The part of a class file that projection consults for declarations it does not emit itself.
+ *
+ * <p>Only the binary name, generic signature, supertypes, named InnerClasses entries, and the generic signatures of
+ * methods are retained. Methods without a generic signature cannot contribute inherited type-variable bindings and are
+ * therefore not recorded.</p>
+ */
+final class ReferencedClass {
+
+    private final String name;
+    private final String signature;
+    private final String superName;
+    private final List<String> interfaces;
+    private final List<InnerClass> innerClasses;
+    private final Map<String, String> methodSignatures;
+
+    private ReferencedClass(String name, String signature, String superName, List<String> interfaces,
+                            List<InnerClass> innerClasses, Map<String, String> methodSignatures) {
+        this.name = name;
+        this.signature = signature;
+        this.superName = superName;
+        this.interfaces = List.copyOf(interfaces);
+        this.innerClasses = List.copyOf(innerClasses);
+        this.methodSignatures = Collections.unmodifiableMap(new LinkedHashMap<>(methodSignatures));
+    }
+
+    static ReferencedClass read(byte[] bytecode) {
+        Collector collector = new Collector();
+        new ClassReader(bytecode).accept(collector,
+                ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return collector.build();
+    }
+
+    static ReferencedClass of(ProjectedClass declaration) {
+        List<InnerClass> innerClasses = new ArrayList<>();
+        for (ProjectedClass.InnerClass inner : declaration.innerClasses) {
+            innerClasses.add(new InnerClass(inner.name(), inner.outerName(), inner.innerName()));
+        }
+        Map<String, String> methodSignatures = new LinkedHashMap<>();
+        for (ProjectedClass.Method method : declaration.methods) {
+            if (method.signature != null) {
+                methodSignatures.putIfAbsent(method.name + method.descriptor, method.signature);
+            }
+        }
+        return new ReferencedClass(declaration.name, declaration.signature, declaration.superName,
+                declaration.interfaces, innerClasses, methodSignatures);
+    }
+
+    static ReferencedClass read(DataInput input) throws IOException {
+        String name = input.readUTF();
+        String signature = readNullable(input);
+        String superName = readNullable(input);
+        List<String> interfaces = new ArrayList<>();
+        for (int count = input.readInt(); count > 0; count--) {
+            interfaces.add(input.readUTF());
+        }
+        List<InnerClass> innerClasses = new ArrayList<>();
+        for (int count = input.readInt(); count > 0; count--) {
+            innerClasses.add(new InnerClass(input.readUTF(), input.readUTF(), input.readUTF()));
+        }
+        Map<String, String> methodSignatures = new LinkedHashMap<>();
+        for (int count = input.readInt(); count > 0; count--) {
+            methodSignatures.put(input.readUTF(), input.readUTF());
+        }
+        return new ReferencedClass(name, signature, superName, interfaces, innerClasses, methodSignatures);
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeUTF(name);
+        writeNullable(output, signature);
+        writeNullable(output, superName);
+        output.writeInt(interfaces.size());
+        for (String anInterface : interfaces) {
+            output.writeUTF(anInterface);
+        }
+        output.writeInt(innerClasses.size());
+        for (InnerClass inner : innerClasses) {
+            output.writeUTF(inner.name());
+            output.writeUTF(inner.outerName());
+            output.writeUTF(inner.innerName());
+        }
+        output.writeInt(methodSignatures.size());
+        for (Map.Entry<String, String> method : methodSignatures.entrySet()) {
+            output.writeUTF(method.getKey());
+            output.writeUTF(method.getValue());
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSignature() {
+        return signature;
+    }
+
+    String getSuperName() {
+        return superName;
+    }
+
+    List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * InnerClasses entries of this class that name both their outer class and their simple name.
+     */
+    List<InnerClass> getInnerClasses() {
+        return innerClasses;
+    }
+
+    /**
+     * Returns the generic signature of a declared method, or {@code null} if the method is absent or not generic.
+     */
+    String getMethodSignature(String methodName, String descriptor) {
+        return methodSignatures.get(methodName + descriptor);
+    }
+
+    private static String readNullable(DataInput input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutput output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) output.writeUTF(value);
+    }
+
+    record InnerClass(String name, String outerName, String innerName) {
+    }
+
+    private static final class Collector extends ClassVisitor {
+        private String name;
+        private String signature;
+        private String superName;
+        private List<String> interfaces = List.of();
+        private final List<InnerClass> innerClasses = new ArrayList<>();
+        private final Map<String, String> methodSignatures = new LinkedHashMap<>();
+
+        private Collector() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.name = name;
+            this.signature = signature;
+            this.superName = superName;
+            this.interfaces = interfaces == null ? List.of() : Arrays.asList(interfaces);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (outerName != null && innerName != null) innerClasses.add(new InnerClass(name, outerName, innerName));
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            if (signature != null) methodSignatures.putIfAbsent(name + descriptor, signature);
+            return null;
+        }
+
+        private ReferencedClass build() {
+            return new ReferencedClass(name, signature, superName, interfaces, innerClasses, methodSignatures);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Resolved referenced-class metadata shared by the projections of one batch.
+ *
+ * <p>Lookups in a projection root's own classes directory are kept apart from class-path lookups, because the same
+ * internal name may resolve differently below different classes directories. Misses are cached as well. The cache is
+ * shared by the concurrent projections of a parallel batch and bounded, so that a batch over a huge classpath holds at
+ * most the configured number of declarations; the least recently used ones are looked up again when needed.</p>
+ */
+final class ReferencedClassCache {
+
+    private final BoundedCache<Key, Optional<ReferencedClass>> classes;
+
+    ReferencedClassCache(int maximumClasses) {
+        classes = new BoundedCache<>(maximumClasses);
+    }
+
+    Optional<ReferencedClass> directoryClass(Path classPathRoot, String internalName,
+                                             Function<String, Optional<ReferencedClass>> reader) {
+        return lookup(new Key(classPathRoot, internalName), reader);
+    }
+
+    Optional<ReferencedClass> classpathClass(String internalName,
+                                             Function<String, Optional<ReferencedClass>> reader) {
+        return lookup(new Key(null, internalName), reader);
+    }
+
+    private Optional<ReferencedClass> lookup(Key key, Function<String, Optional<ReferencedClass>> reader) {
+        Optional<ReferencedClass> cached = classes.get(key);
+        if (cached != null) return cached;
+        return classes.putIfAbsent(key, reader.apply(key.internalName));
+    }
+
+    // A null classes directory marks a class-path lookup.
+    private record Key(Path classPathRoot, String internalName) {
+    }
+}
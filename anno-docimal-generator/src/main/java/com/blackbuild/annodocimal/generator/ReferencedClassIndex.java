@@ -0,0 +1,333 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Read-only lookup table of the {@link ReferencedClass} metadata of every class in one JAR.
+ *
+ * <p>Persistent indexes are named after the SHA-256 of the JAR content, so every projection on a machine shares the
+ * index of an identical JAR regardless of its location. A small pointer file per JAR location remembers the content
+ * hash for the JAR's size and modification time, which spares unchanged JARs from being hashed again. Index files are
+ * written atomically, never modified afterwards, and memory-mapped for reading; an index that fails validation is
+ * rebuilt.</p>
+ *
+ * <p>Using an index or pointer file refreshes its modification time at most once a day. Whenever a new index is
+ * written, index, pointer, and leftover temporary files unused for {@link #RETENTION} are deleted, so the directory only
+ * holds the indexes of recently referenced JARs. An index deleted while in use stays readable where the platform allows
+ * it and is rebuilt by its next opening.</p>
+ *
+ * <p>Layout: the magic number, the format version, and the entry count, followed by one fixed-size table row per
+ * class (offset and length of its UTF-8 internal name, offset and length of its serialized metadata) in unsigned byte
+ * order of the names, followed by the names and metadata themselves. Lookups binary-search the table in place.</p>
+ */
+final class ReferencedClassIndex {
+
+    private static final int MAGIC = 0x41444349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+    static final Duration RETENTION = Duration.ofDays(30);
+    private static final Duration TOUCH_INTERVAL = Duration.ofDays(1);
+
+    private final Path source;
+    private final ByteBuffer buffer;
+    private final int count;
+
+    private ReferencedClassIndex(Path source, ByteBuffer buffer) throws IOException {
+        this.source = source;
+        this.buffer = buffer;
+        count = validate(buffer);
+    }
+
+    /**
+     * Indexes a JAR in memory without persisting the result.
+     */
+    static ReferencedClassIndex inMemory(Path jar) throws IOException {
+        return new ReferencedClassIndex(jar, ByteBuffer.wrap(build(jar)));
+    }
+
+    /**
+     * Opens the persistent index of a JAR below an index directory, creating it if necessary.
+     */
+    static ReferencedClassIndex open(Path jar, Path indexDirectory) throws IOException {
+        Path directory = indexDirectory.resolve("v" + VERSION);
+        Files.createDirectories(directory);
+        Path indexFile = directory.resolve(contentHash(jar, directory) + ".idx");
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                ReferencedClassIndex result = new ReferencedClassIndex(indexFile, map(indexFile));
+                touch(indexFile);
+                return result;
+            } catch (IOException invalid) {
+                // Fall through and replace the unusable index.
+            }
+        }
+        byte[] index = build(jar);
+        try {
+            writeAtomically(indexFile, index);
+            prune(directory, "*.{idx,jar,tmp}");
+            return new ReferencedClassIndex(indexFile, map(indexFile));
+        } catch (IOException unwritable) {
+            return new ReferencedClassIndex(jar, ByteBuffer.wrap(index));
+        }
+    }
+
+    /**
+     * Returns the metadata stored for an internal name, or {@code null} if the JAR does not contain that class.
+     */
+    ReferencedClass find(String internalName) throws IOException {
+        byte[] key = internalName.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = HEADER_SIZE + middle * ENTRY_SIZE;
+            int comparison = compare(buffer.getInt(entry), buffer.getInt(entry + 4), key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                byte[] data = new byte[buffer.getInt(entry + 12)];
+                buffer.get(buffer.getInt(entry + 8), data);
+                try {
+                    return ReferencedClass.read(new DataInputStream(new ByteArrayInputStream(data)));
+                } catch (IOException exception) {
+                    throw new IOException("Corrupt referenced-class index " + source, exception);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int compare(int offset, int length, byte[] key) {
+        int shared = Math.min(length, key.length);
+        for (int index = 0; index < shared; index++) {
+            int difference = Byte.toUnsignedInt(buffer.get(offset + index)) - Byte.toUnsignedInt(key[index]);
+            if (difference != 0) return difference;
+        }
+        return length - key.length;
+    }
+
+    private static int validate(ByteBuffer buffer) throws IOException {
+        int limit = buffer.limit();
+        if (limit < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a referenced-class index");
+        }
+        int count = buffer.getInt(8);
+        if (count < 0 || count > (limit - HEADER_SIZE) / ENTRY_SIZE) {
+            throw new IOException("Truncated referenced-class index");
+        }
+        for (int index = 0; index < count; index++) {
+            int entry = HEADER_SIZE + index * ENTRY_SIZE;
+            for (int field = 0; field < ENTRY_SIZE; field += 8) {
+                int offset = buffer.getInt(entry + field);
+                int length = buffer.getInt(entry + field + 4);
+                if (offset < 0 || length < 0 || offset > limit - length) {
+                    throw new IOException("Truncated referenced-class index");
+                }
+            }
+        }
+        return count;
+    }
+
+    private static byte[] build(Path jar) throws IOException {
+        Map<byte[], byte[]> entries = new TreeMap<>(Arrays::compareUnsigned);
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/")) continue;
+                byte[] key = name.substring(0, name.length() - ".class".length()).getBytes(StandardCharsets.UTF_8);
+                if (entries.containsKey(key)) continue;
+                byte[] bytecode;
+                try (InputStream stream = zip.getInputStream(entry)) {
+                    bytecode = stream.readAllBytes();
+                }
+                ReferencedClass metadata;
+                try {
+                    metadata = ReferencedClass.read(bytecode);
+                } catch (RuntimeException malformed) {
+                    // Class loaders would not define a malformed class either; treat it as absent.
+                    continue;
+                }
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                try (DataOutputStream output = new DataOutputStream(data)) {
+                    metadata.write(output);
+                }
+                entries.put(key, data.toByteArray());
+            }
+        }
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int contentStart = HEADER_SIZE + entries.size() * ENTRY_SIZE;
+        try (DataOutputStream output = new DataOutputStream(table)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entries.size());
+            for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                for (byte[] part : List.of(entry.getKey(), entry.getValue())) {
+                    output.writeInt(contentStart + content.size());
+                    output.writeInt(part.length);
+                    content.write(part);
+                }
+            }
+        }
+        content.writeTo(table);
+        return table.toByteArray();
+    }
+
+    private static String contentHash(Path jar, Path directory) throws IOException {
+        String location = jar.toAbsolutePath().normalize().toString();
+        Path pointer = directory.resolve(hex(sha256().digest(location.getBytes(StandardCharsets.UTF_8))) + ".jar");
+        BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        String stamp = attributes.size() + ":" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        try {
+            String[] recorded = Files.readString(pointer, StandardCharsets.UTF_8).split("\n");
+            if (recorded.length == 3 && recorded[0].equals(location) && recorded[1].equals(stamp)) {
+                touch(pointer);
+                return recorded[2];
+            }
+        } catch (IOException missing) {
+            // Hash the content below.
+        }
+
+        String hash = hashContent(jar);
+        try {
+            writeAtomically(pointer, (location + "\n" + stamp + "\n" + hash).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ignored) {
+            // The pointer only saves hashing time.
+        }
+        return hash;
+    }
+
+    // Marks a file as used; the write is skipped while the last one is recent.
+    static void touch(Path file) {
+        try {
+            FileTime now = FileTime.from(Instant.now());
+            Instant refreshed = Files.getLastModifiedTime(file).toInstant().plus(TOUCH_INTERVAL);
+            if (refreshed.isBefore(now.toInstant())) Files.setLastModifiedTime(file, now);
+        } catch (IOException ignored) {
+            // An untouched file is only pruned earlier and rebuilt when needed.
+        }
+    }
+
+    /**
+     * Deletes the files of a directory matching a glob that were not used for {@link #RETENTION}.
+     */
+    static void prune(Path directory, String glob) {
+        Instant expired = Instant.now().minus(RETENTION);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(expired)) Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // In use on this platform, or deleted concurrently.
+                }
+            }
+        } catch (IOException ignored) {
+            // Pruning is retried with the next write.
+        }
+    }
+
+    /**
+     * Returns the hex SHA-256 of a file's content.
+     */
+    static String hashContent(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] chunk = new byte[64 * 1024];
+        try (InputStream stream = Files.newInputStream(file)) {
+            for (int read = stream.read(chunk); read >= 0; read = stream.read(chunk)) {
+                digest.update(chunk, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static ByteBuffer map(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Oversized referenced-class index");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, content);
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", exception);
+        }
+    }
+}
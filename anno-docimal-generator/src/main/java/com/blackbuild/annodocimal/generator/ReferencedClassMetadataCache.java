@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe, size-bounded cache of referenced-class metadata read from referenced-classpath JARs.
+ *
+ * <p>Entries are keyed by the SHA-256 of the JAR content and the class's internal name, so projectors that reference
+ * the same JAR under different paths, in different projects, or in different builds share them. Each entry holds only
+ * the facts projection consults, not the class file. Once the cache holds the maximum number of classes, its least
+ * recently used entry is evicted. One instance is meant to be shared by many projectors for the lifetime of a
+ * long-running process; pass it to
+ * {@link SourceProjector.Builder#referencedClassMetadataCache(ReferencedClassMetadataCache)}.</p>
+ *
+ * <p>The hit, miss, and eviction counts accumulate over the lifetime of the cache and help to choose a maximum that
+ * fits the available heap: a high eviction count relative to the misses means that the working set does not fit.</p>
+ *
+ * <p>The opened JAR indexes and the content hashes of JAR locations are bounded as well: at most
+ * {@value #MAXIMUM_JARS} of each are kept, the least recently used ones are dropped, and the index of a JAR whose size
+ * or modification time changed is dropped with its old content hash. A dropped index is no longer reachable from the
+ * cache, so its buffer is released once the lookups still reading it finish.</p>
+ *
+ * <p>The cache never changes projected sources. Directories on the referenced classpath are not cached, because their
+ * content has no cheap identity.</p>
+ */
+@NullMarked
+public final class ReferencedClassMetadataCache {
+
+    static final int MAXIMUM_JARS = 512;
+
+    private final BoundedCache<Path, ContentHash> contentHashes;
+    private final BoundedCache<String, ReferencedClassIndex> indexes;
+    private final BoundedCache<ClassKey, Optional<ReferencedClass>> classes;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maximumClasses maximum number of cached classes, including cached misses
+     * @throws IllegalArgumentException if {@code maximumClasses} is not positive
+     */
+    public ReferencedClassMetadataCache(int maximumClasses) {
+        this(maximumClasses, MAXIMUM_JARS);
+    }
+
+    ReferencedClassMetadataCache(int maximumClasses, int maximumJars) {
+        if (maximumClasses < 1) {
+            throw new IllegalArgumentException("maximumClasses must be positive: " + maximumClasses);
+        }
+        classes = new BoundedCache<>(maximumClasses);
+        contentHashes = new BoundedCache<>(maximumJars);
+        indexes = new BoundedCache<>(maximumJars);
+    }
+
+    /**
+     * Returns the maximum number of cached classes.
+     *
+     * @return maximum number of cached classes
+     */
+    public int getMaximumClasses() {
+        return classes.maximumEntries();
+    }
+
+    /**
+     * Returns the number of classes cached now, including cached misses.
+     *
+     * @return number of cached classes
+     */
+    public int getCachedClasses() {
+        return classes.size();
+    }
+
+    /**
+     * Returns how many lookups were answered from the cache.
+     *
+     * @return number of cache hits
+     */
+    public long getHitCount() {
+        return classes.hitCount();
+    }
+
+    /**
+     * Returns how many lookups had to read a JAR index.
+     *
+     * @return number of cache misses
+     */
+    public long getMissCount() {
+        return classes.missCount();
+    }
+
+    /**
+     * Returns how many cached classes were evicted to stay within the maximum.
+     *
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        return classes.evictionCount();
+    }
+
+    /**
+     * Removes every cached class, JAR index, and content hash, for example when the process that shared the cache
+     * stops using it. A removed index is released once the lookups still reading it finish. The cache stays usable and
+     * keeps its counts.
+     */
+    public void clear() {
+        classes.clear();
+        indexes.clear();
+        contentHashes.clear();
+    }
+
+    /**
+     * Returns the metadata of a class in a JAR, or {@code null} if the JAR does not contain it.
+     */
+    @Nullable ReferencedClass find(Path jar, @Nullable Path indexDirectory, String internalName) throws IOException {
+        String contentHash = contentHash(jar);
+        ClassKey key = new ClassKey(contentHash, internalName);
+        Optional<ReferencedClass> cached = classes.get(key);
+        if (cached != null) return cached.orElse(null);
+
+        ReferencedClassIndex index = indexes.get(contentHash);
+        if (index == null) {
+            index = indexDirectory == null
+                    ? ReferencedClassIndex.inMemory(jar)
+                    : ReferencedClassIndex.open(jar, indexDirectory);
+            index = indexes.putIfAbsent(contentHash, index);
+        }
+        return classes.putIfAbsent(key, Optional.ofNullable(index.find(internalName))).orElse(null);
+    }
+
+    /**
+     * Returns the number of JAR indexes held open now.
+     */
+    int openIndexes() {
+        return indexes.size();
+    }
+
+    // Hashing a JAR is only repeated when its size or modification time changed.
+    private String contentHash(Path jar) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        String stamp = attributes.size() + ":" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        ContentHash known = contentHashes.get(jar);
+        if (known != null && known.stamp.equals(stamp)) return known.hash;
+        String hash = ReferencedClassIndex.hashContent(jar);
+        contentHashes.put(jar, new ContentHash(stamp, hash));
+        if (known != null && !known.hash.equals(hash)) indexes.remove(known.hash);
+        return hash;
+    }
+
+    private record ContentHash(String stamp, String hash) {
+        private ContentHash {
+            Objects.requireNonNull(stamp);
+            Objects.requireNonNull(hash);
+        }
+    }
+
+    private record ClassKey(String contentHash, String internalName) {
+    }
+}
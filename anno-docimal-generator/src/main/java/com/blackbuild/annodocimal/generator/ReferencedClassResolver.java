@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Supplies the class files of declarations that projected classes reference, after the projected class's own classes
+ * directory and the projector's referenced classpath have been consulted.
+ *
+ * <p>Projection only reads the metadata of referenced declarations, so resolvers return class-file bytes and never
+ * load classes. Implementations must be safe for concurrent use, because one projector may resolve from many threads.
+ * The built-in resolvers are.</p>
+ *
+ * <p>A projector {@linkplain #close() closes} its resolvers whenever none of its projection calls is running any more,
+ * so that files they hold open are released between builds. A closed resolver must keep answering later lookups,
+ * reopening what it needs.</p>
+ */
+@NullMarked
+@FunctionalInterface
+public interface ReferencedClassResolver extends Closeable {
+
+    /**
+     * Returns the class file of a referenced declaration.
+     *
+     * @param internalName JVM internal name of the declaration, for example {@code java/util/Map$Entry}
+     * @return the class-file bytes, or {@code null} if this resolver does not know the declaration
+     * @throws IOException if the class file exists but cannot be read
+     */
+    byte @Nullable [] findClassFile(String internalName) throws IOException;
+
+    /**
+     * Releases the files this resolver holds open. The default implementation holds none and does nothing.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Returns a resolver reading class files below a classes directory.
+     *
+     * @param directory root of a package-structured classes directory
+     * @return a directory resolver
+     */
+    static ReferencedClassResolver directory(Path directory) {
+        return new ReferencedClassResolvers.DirectoryResolver(
+                Objects.requireNonNull(directory, "directory").toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns a resolver reading class files from a JAR through its central directory.
+     *
+     * <p>The JAR is opened on the first lookup and stays open until the resolver is closed; the next lookup opens
+     * it again.</p>
+     *
+     * @param jar JAR file
+     * @return a JAR resolver
+     */
+    static ReferencedClassResolver jar(Path jar) {
+        return new ReferencedClassResolvers.JarResolver(Objects.requireNonNull(jar, "jar").toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns a resolver reading the class files of the running Java platform from its {@code jrt:/} image.
+     *
+     * @return the platform resolver
+     */
+    static ReferencedClassResolver platform() {
+        return ReferencedClassResolvers.PlatformResolver.INSTANCE;
+    }
+
+    /**
+     * Returns a resolver reading class files as resources of a class loader. No class is loaded.
+     *
+     * @param classLoader class loader to read resources from
+     * @return a class-loader resolver
+     */
+    static ReferencedClassResolver classLoader(ClassLoader classLoader) {
+        return new ReferencedClassResolvers.ClassLoaderResolver(Objects.requireNonNull(classLoader, "classLoader"));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Built-in {@link ReferencedClassResolver} implementations.
+ */
+final class ReferencedClassResolvers {
+
+    private ReferencedClassResolvers() {
+    }
+
+    /**
+     * The resolvers of a projector whose builder configured none: the platform image, then the resources of the
+     * class loader that loaded the generator.
+     */
+    static List<ReferencedClassResolver> defaults() {
+        ClassLoader ownLoader = ReferencedClassResolvers.class.getClassLoader();
+        return ownLoader == null
+                ? List.of(ReferencedClassResolver.platform())
+                : List.of(ReferencedClassResolver.platform(), ReferencedClassResolver.classLoader(ownLoader));
+    }
+
+    static final class DirectoryResolver implements ReferencedClassResolver {
+        private final Path directory;
+
+        DirectoryResolver(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public byte[] findClassFile(String internalName) throws IOException {
+            Path classFile = directory.resolve(internalName + ".class");
+            return Files.isRegularFile(classFile) ? Files.readAllBytes(classFile) : null;
+        }
+    }
+
+    static final class JarResolver implements ReferencedClassResolver {
+        private final LazyJar jar;
+
+        JarResolver(Path jar) {
+            this.jar = new LazyJar(jar);
+        }
+
+        @Override
+        public byte[] findClassFile(String internalName) throws IOException {
+            return jar.read(internalName + ".class");
+        }
+
+        @Override
+        public void close() throws IOException {
+            jar.close();
+        }
+
+        boolean isOpen() {
+            return jar.isOpen();
+        }
+    }
+
+    /**
+     * Reads {@code /modules/<module>/<internal name>.class} of the {@code jrt:/} file system. The modules of each
+     * package are listed once through {@code /packages/<package>}.
+     */
+    static final class PlatformResolver implements ReferencedClassResolver {
+        static final PlatformResolver INSTANCE = new PlatformResolver();
+
+        private final Map<String, List<Path>> packageModules = new ConcurrentHashMap<>();
+
+        private PlatformResolver() {
+        }
+
+        @Override
+        public byte[] findClassFile(String internalName) throws IOException {
+            int separator = internalName.lastIndexOf('/');
+            if (separator < 0) return null;
+            List<Path> modules;
+            try {
+                modules = packageModules.computeIfAbsent(internalName.substring(0, separator).replace('/', '.'),
+                        PlatformResolver::modules);
+            } catch (UncheckedIOException exception) {
+                throw exception.getCause();
+            }
+            for (Path module : modules) {
+                Path classFile = module.resolve(internalName + ".class");
+                if (Files.isRegularFile(classFile)) return Files.readAllBytes(classFile);
+            }
+            return null;
+        }
+
+        private static List<Path> modules(String packageName) {
+            FileSystem image = FileSystems.getFileSystem(URI.create("jrt:/"));
+            Path packageDirectory = image.getPath("/packages", packageName);
+            if (!Files.isDirectory(packageDirectory)) return List.of();
+            List<Path> result = new ArrayList<>();
+            try (DirectoryStream<Path> modules = Files.newDirectoryStream(packageDirectory)) {
+                modules.forEach(module -> result.add(image.getPath("/modules", module.getFileName().toString())));
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            result.sort(null);
+            return List.copyOf(result);
+        }
+    }
+
+    static final class ClassLoaderResolver implements ReferencedClassResolver {
+        private final ClassLoader classLoader;
+
+        ClassLoaderResolver(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public byte[] findClassFile(String internalName) throws IOException {
+            try (InputStream input = classLoader.getResourceAsStream(internalName + ".class")) {
+                return input == null ? null : input.readAllBytes();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directories and JARs that a {@link SourceProjector} consults for referenced declarations, in classpath order,
+ * followed by its {@link ReferencedClassResolver}s.
+ *
+ * <p>Directories are read class file by class file. JARs are looked up through a {@link ReferencedClassIndex}, which
+ * is persisted below the index directory when one is configured and otherwise held in memory. Each index is opened
+ * once per projector, unless a shared {@link ReferencedClassMetadataCache} is configured, which then serves all JAR
+ * lookups.</p>
+ */
+final class ReferencedClasspath {
+
+    private final List<Path> entries;
+    private final Path indexDirectory;
+    private final ReferencedClassMetadataCache sharedCache;
+    private final List<ReferencedClassResolver> resolvers;
+    private final Map<Path, CompletableFuture<ReferencedClassIndex>> indexes = new ConcurrentHashMap<>();
+
+    ReferencedClasspath(List<Path> entries, Path indexDirectory, ReferencedClassMetadataCache sharedCache,
+                        List<ReferencedClassResolver> resolvers) {
+        this.entries = List.copyOf(entries);
+        this.indexDirectory = indexDirectory;
+        this.sharedCache = sharedCache;
+        this.resolvers = List.copyOf(resolvers);
+    }
+
+    /**
+     * Returns the metadata of the first classpath entry or resolver containing the class, or {@code null}.
+     */
+    ReferencedClass find(String internalName) throws IOException {
+        for (Path entry : entries) {
+            if (Files.isDirectory(entry)) {
+                Path classFile = entry.resolve(internalName + ".class");
+                if (Files.isRegularFile(classFile)) return ReferencedClass.read(Files.readAllBytes(classFile));
+            } else if (Files.isRegularFile(entry)) {
+                ReferencedClass result = sharedCache == null
+                        ? index(entry).find(internalName)
+                        : sharedCache.find(entry, indexDirectory, internalName);
+                if (result != null) return result;
+            }
+        }
+        for (ReferencedClassResolver resolver : resolvers) {
+            byte[] classFile = resolver.findClassFile(internalName);
+            if (classFile != null) return ReferencedClass.read(classFile);
+        }
+        return null;
+    }
+
+    /**
+     * Closes every resolver, even if closing an earlier one fails. Classpath entries and indexes stay usable.
+     */
+    void closeResolvers() throws IOException {
+        IOException failure = null;
+        for (ReferencedClassResolver resolver : resolvers) {
+            try {
+                resolver.close();
+            } catch (IOException exception) {
+                if (failure == null) failure = exception;
+                else failure.addSuppressed(exception);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    // The first lookup of a JAR builds its index outside of any map lock, so concurrent lookups in other JARs never
+    // wait for it; lookups in the same JAR wait for its future. A failed build is retried by the next lookup.
+    private ReferencedClassIndex index(Path jar) throws IOException {
+        CompletableFuture<ReferencedClassIndex> index = indexes.get(jar);
+        if (index == null) {
+            CompletableFuture<ReferencedClassIndex> opening = new CompletableFuture<>();
+            index = indexes.putIfAbsent(jar, opening);
+            if (index == null) {
+                index = opening;
+                try {
+                    opening.complete(indexDirectory == null
+                            ? ReferencedClassIndex.inMemory(jar)
+                            : ReferencedClassIndex.open(jar, indexDirectory));
+                } catch (IOException | RuntimeException exception) {
+                    indexes.remove(jar, opening);
+                    opening.completeExceptionally(exception);
+                }
+            }
+        }
+        try {
+            return index.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof IOException cause) throw cause;
+            if (exception.getCause() instanceof RuntimeException cause) throw cause;
+            throw exception;
+        }
+    }
+}
@@ -24,33 +24,97 @@
 package com.blackbuild.annodocimal.generator;
 
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Thread-safe facade that reconstructs documentation-oriented Java source from one caller-selected class file.
  *
  * <p>This service does not scan class directories, select top-level inputs, or remove stale outputs. Those collection
  * concerns belong to the caller or build task.</p>
+ *
+ * <p>Declarations referenced by a projected class are resolved from the classes directory of that class, then from the
+ * projector's referenced classpath, then from its {@linkplain Builder#referencedClassResolvers(Collection) referenced
+ * class resolvers}. No class is loaded and the thread context class loader is not consulted.</p>
+ *
+ * <p>Files opened during projection are held only while a projection call of this projector is running. When the last
+ * running call returns, the referenced class resolvers are {@linkplain ReferencedClassResolver#close() closed} and the
+ * JARs of the {@linkplain Builder#documentationClasspath(Collection) documentation classpath} are released; the next
+ * call opens them again.</p>
  */
 @NullMarked
 public final class SourceProjector {
 
     private final ProjectionPolicy policy;
+    private final ReferencedClasspath referencedClasspath;
+    private final DocumentationClasspath documentationClasspath;
+    private final @Nullable ProjectionCache projectionCache;
+    private final int maximumReferencedClasses;
+    private final @Nullable BiConsumer<Path, Set<String>> referenceListener;
+    private final AtomicInteger runningCalls = new AtomicInteger();
 
     /**
-     * Creates a projector with one immutable inclusion policy.
+     * Creates a projector with one immutable inclusion policy and an empty referenced classpath.
      *
      * @param policy projection policy
      */
     public SourceProjector(ProjectionPolicy policy) {
+        this(policy, List.of(), null, null, null, ReferencedClassResolvers.defaults(),
+                Builder.DEFAULT_MAXIMUM_REFERENCED_CLASSES, List.of(), null);
+    }
+
+    private SourceProjector(ProjectionPolicy policy, List<Path> referencedClasspath,
+                            @Nullable Path referencedClassIndexDirectory, @Nullable Path projectionCacheDirectory,
+                            @Nullable ReferencedClassMetadataCache referencedClassMetadataCache,
+                            List<ReferencedClassResolver> referencedClassResolvers, int maximumReferencedClasses,
+                            List<Path> documentationClasspath,
+                            @Nullable BiConsumer<Path, Set<String>> referenceListener) {
         this.policy = Objects.requireNonNull(policy, "policy");
+        this.maximumReferencedClasses = maximumReferencedClasses;
+        this.referenceListener = referenceListener;
+        this.referencedClasspath = new ReferencedClasspath(referencedClasspath, referencedClassIndexDirectory,
+                referencedClassMetadataCache, referencedClassResolvers);
+        this.documentationClasspath = documentationClasspath.isEmpty()
+                ? DocumentationClasspath.EMPTY
+                : new DocumentationClasspath(documentationClasspath);
+        projectionCache = projectionCacheDirectory == null ? null : new ProjectionCache(projectionCacheDirectory);
+    }
+
+    /**
+     * Creates a mutable builder for a projector with the given inclusion policy.
+     *
+     * @param policy projection policy
+     * @return a new builder
+     */
+    public static Builder builder(ProjectionPolicy policy) {
+        return new Builder(policy);
     }
 
     /**
@@ -62,7 +126,12 @@ public final class SourceProjector {
      * @throws SourceProjectionException if a selected declaration cannot be represented as valid Java source
      */
     public String projectToText(Path classFile) throws IOException {
-        return project(classFile).source;
+        return whileRunning(() -> {
+            StringWriter source = new StringWriter();
+            project(classFile, new ReferencedClassCache(maximumReferencedClasses), SpecConverter.SEQUENTIAL)
+                    .source().writeTo(source);
+            return source.toString();
+        });
     }
 
     /**
@@ -79,11 +148,199 @@ public final class SourceProjector {
      */
     public Path projectToDirectory(Path classFile, Path outputDirectory) throws IOException {
         Objects.requireNonNull(outputDirectory, "outputDirectory");
-        ProjectionResult projection = project(classFile);
+        return whileRunning(() -> write(classFile,
+                project(classFile, new ReferencedClassCache(maximumReferencedClasses), SpecConverter.SEQUENTIAL),
+                outputDirectory));
+    }
+
+    /**
+     * Projects several caller-selected top-level class files beneath one managed output directory.
+     *
+     * <p>Each class file is written exactly as {@link #projectToDirectory(Path, Path)} would write it, in the iteration
+     * order of {@code classFiles}. Referenced-class metadata that one projection resolves is reused by the following
+     * projections of the same call instead of being read and parsed again. Projection stops at the first failure;
+     * sources written before it remain in place.</p>
+     *
+     * @param classFiles caller-selected top-level class files
+     * @param outputDirectory managed output root
+     * @return the package/type-relative source paths that were written, in input order
+     * @throws IOException if input or output file-system access fails
+     * @throws SourceProjectionException if a selected declaration cannot be represented as valid Java source
+     */
+    public List<Path> projectAll(Collection<Path> classFiles, Path outputDirectory) throws IOException {
+        Objects.requireNonNull(classFiles, "classFiles");
+        Objects.requireNonNull(outputDirectory, "outputDirectory");
+        return whileRunning(() -> {
+            ReferencedClassCache referencedClasses = new ReferencedClassCache(maximumReferencedClasses);
+            List<Path> result = new ArrayList<>(classFiles.size());
+            for (Path classFile : classFiles) {
+                result.add(write(classFile, project(classFile, referencedClasses, SpecConverter.SEQUENTIAL),
+                        outputDirectory));
+            }
+            return List.copyOf(result);
+        });
+    }
+
+    /**
+     * Projects several caller-selected top-level class files beneath one managed output directory on an executor.
+     *
+     * <p>Each class file is projected and written by its own task on {@code executor}, exactly as
+     * {@link #projectToDirectory(Path, Path)} would write it. The tasks share the referenced-class metadata that any of
+     * them resolves, and offer the independent nested declarations of a class to the same executor; no other thread
+     * pool is used. The method returns when every task has finished. If projections fail, the failure of the first
+     * failing class file in iteration order is thrown; the sources of all other class files have been written. The
+     * caller owns the executor; a direct executor projects sequentially in the calling thread.</p>
+     *
+     * @param classFiles caller-selected top-level class files
+     * @param outputDirectory managed output root
+     * @param executor executor running one projection task per class file
+     * @return the package/type-relative source paths that were written, in input order
+     * @throws IOException if input or output file-system access fails
+     * @throws SourceProjectionException if a selected declaration cannot be represented as valid Java source
+     */
+    public List<Path> projectAll(Collection<Path> classFiles, Path outputDirectory, Executor executor)
+            throws IOException {
+        Objects.requireNonNull(classFiles, "classFiles");
+        Objects.requireNonNull(outputDirectory, "outputDirectory");
+        Objects.requireNonNull(executor, "executor");
+        return whileRunning(() -> {
+            ReferencedClassCache referencedClasses = new ReferencedClassCache(maximumReferencedClasses);
+            List<CompletableFuture<Path>> projections = new ArrayList<>(classFiles.size());
+            for (Path classFile : classFiles) {
+                Objects.requireNonNull(classFile, "classFile");
+                projections.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return write(classFile, project(classFile, referencedClasses, executor), outputDirectory);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                }, executor));
+            }
+            List<Path> result = new ArrayList<>(projections.size());
+            Throwable failure = null;
+            for (CompletableFuture<Path> projection : projections) {
+                try {
+                    result.add(projection.join());
+                } catch (CompletionException exception) {
+                    if (failure == null) failure = exception.getCause();
+                }
+            }
+            if (failure instanceof UncheckedIOException unchecked) throw unchecked.getCause();
+            if (failure instanceof RuntimeException runtime) throw runtime;
+            if (failure instanceof Error error) throw error;
+            return List.copyOf(result);
+        });
+    }
+
+    /**
+     * Projects every top-level class of a JAR into a sources JAR.
+     *
+     * <p>Equivalent to {@link #projectJar(Path, Predicate, Path)} with a selection that accepts every entry.</p>
+     *
+     * @param jar classes JAR
+     * @param sourcesJar sources JAR to create or replace
+     * @return the source entry names that were written, in entry order
+     * @throws IOException if the JAR cannot be read or the sources JAR cannot be written
+     * @throws SourceProjectionException if a selected declaration cannot be represented as valid Java source
+     */
+    public List<String> projectJar(Path jar, Path sourcesJar) throws IOException {
+        return projectJar(jar, entry -> true, sourcesJar);
+    }
+
+    /**
+     * Projects the selected top-level classes of a JAR into a sources JAR in one pass.
+     *
+     * <p>Class files are read in place from the JAR and each projected source is streamed directly into its entry, so
+     * memory use is bounded by the largest single projection and no directory tree is created on disk. Top-level
+     * classes are projected in entry-name order; nested classes are projected with their top-level class, and
+     * {@code META-INF}, module, and package descriptors are skipped. Entries carry a fixed timestamp, so equal inputs
+     * produce byte-identical sources JARs. The sources JAR is replaced atomically only after every selected class was
+     * projected; on failure an existing sources JAR remains untouched. The class-file path of a
+     * {@link SourceProjectionException} is the entry path within the JAR.</p>
+     *
+     * @param jar classes JAR
+     * @param entrySelection filter over slash-separated class-file entry names such as {@code com/example/Api.class}
+     * @param sourcesJar sources JAR to create or replace
+     * @return the source entry names that were written, in entry order
+     * @throws IOException if the JAR cannot be read or the sources JAR cannot be written
+     * @throws SourceProjectionException if a selected declaration cannot be represented as valid Java source
+     */
+    public List<String> projectJar(Path jar, Predicate<String> entrySelection, Path sourcesJar) throws IOException {
+        Objects.requireNonNull(jar, "jar");
+        Objects.requireNonNull(entrySelection, "entrySelection");
+        Path target = Objects.requireNonNull(sourcesJar, "sourcesJar").toAbsolutePath().normalize();
+        return whileRunning(() -> {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            boolean moved = false;
+            try (FileSystem classes = FileSystems.newFileSystem(jar)) {
+                ReferencedClassCache referencedClasses = new ReferencedClassCache(maximumReferencedClasses);
+                List<String> result = new ArrayList<>();
+                try (ZipOutputStream zip = new ZipOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8);
+                     Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8)) {
+                    for (Path classFile : JarProjection.topLevelClasses(classes, entrySelection)) {
+                        ProjectionResult projection = project(classFile, referencedClasses, SpecConverter.SEQUENTIAL);
+                        String entryName = projection.internalName() + ".java";
+                        zip.putNextEntry(JarProjection.sourceEntry(entryName));
+                        projection.source().writeTo(writer);
+                        writer.flush();
+                        zip.closeEntry();
+                        result.add(entryName);
+                    }
+                }
+                replace(temporary, target);
+                moved = true;
+                return List.copyOf(result);
+            } finally {
+                if (!moved) Files.deleteIfExists(temporary);
+            }
+        });
+    }
+
+    // Resolvers and documentation JARs are closed once no call is running any more. A call starting meanwhile merely
+    // reopens what it reads.
+    private <T> T whileRunning(ProjectionCall<T> call) throws IOException {
+        runningCalls.incrementAndGet();
+        Throwable failure = null;
+        try {
+            return call.run();
+        } catch (Throwable exception) {
+            failure = exception;
+            throw exception;
+        } finally {
+            if (runningCalls.decrementAndGet() == 0) release(failure);
+        }
+    }
+
+    private void release(@Nullable Throwable failure) throws IOException {
+        IOException closing = null;
+        try {
+            referencedClasspath.closeResolvers();
+        } catch (IOException exception) {
+            closing = exception;
+        }
+        try {
+            documentationClasspath.close();
+        } catch (IOException exception) {
+            if (closing == null) closing = exception;
+            else closing.addSuppressed(exception);
+        }
+        if (closing == null) return;
+        if (failure == null) throw closing;
+        failure.addSuppressed(closing);
+    }
+
+    @FunctionalInterface
+    private interface ProjectionCall<T> {
+        T run() throws IOException;
+    }
+
+    private static Path write(Path classFile, ProjectionResult projection, Path outputDirectory) throws IOException {
         Path normalizedOutput = outputDirectory.normalize();
-        Path target = normalizedOutput.resolve(projection.internalName + ".java").normalize();
+        Path target = normalizedOutput.resolve(projection.internalName() + ".java").normalize();
         if (!target.startsWith(normalizedOutput)) {
-            throw new SourceProjectionException(classFile, projection.internalName.replace('/', '.'),
+            throw new SourceProjectionException(classFile, projection.internalName().replace('/', '.'),
                     "Projected source path escapes its managed output directory");
         }
         Path parent = target.getParent();
@@ -91,12 +348,10 @@ public final class SourceProjector {
         Path temporary = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
         boolean moved = false;
         try {
-            Files.writeString(temporary, projection.source, StandardCharsets.UTF_8);
-            try {
-                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-            } catch (AtomicMoveNotSupportedException ignored) {
-                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                projection.source().writeTo(writer);
             }
+            replace(temporary, target);
             moved = true;
             return target;
         } finally {
@@ -104,20 +359,211 @@ public final class SourceProjector {
         }
     }
 
-    private ProjectionResult project(Path classFile) throws IOException {
+    private static void replace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ignored) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private ProjectionResult project(Path classFile, ReferencedClassCache referencedClasses, Executor nestedReads)
+            throws IOException {
         Objects.requireNonNull(classFile, "classFile");
-        ProjectionResult projection = SpecConverter.project(classFile, policy);
-        String normalizedSource = projection.source.replace("\r\n", "\n").replace('\r', '\n');
-        return new ProjectionResult(projection.internalName, normalizedSource);
+        ProjectionResult result = projectionCache != null
+                ? projectionCache.project(classFile, policy, referencedClasspath, referencedClasses,
+                        documentationClasspath, nestedReads)
+                : SpecConverter.project(classFile, Map.of(), policy, referencedClasspath, referencedClasses,
+                        documentationClasspath, nestedReads);
+        if (referenceListener != null) referenceListener.accept(classFile, result.referencedClasses().keySet());
+        return result;
     }
 
-    static final class ProjectionResult {
-        private final String internalName;
-        private final String source;
+    /**
+     * Mutable, non-thread-safe builder for {@link SourceProjector} instances.
+     */
+    public static final class Builder {
+        private static final int DEFAULT_MAXIMUM_REFERENCED_CLASSES = 16_384;
+
+        private final ProjectionPolicy policy;
+        private List<Path> referencedClasspath = List.of();
+        private List<Path> documentationClasspath = List.of();
+        private @Nullable Path referencedClassIndexDirectory;
+        private @Nullable Path projectionCacheDirectory;
+        private @Nullable ReferencedClassMetadataCache referencedClassMetadataCache;
+        private List<ReferencedClassResolver> referencedClassResolvers = ReferencedClassResolvers.defaults();
+        private int maximumReferencedClasses = DEFAULT_MAXIMUM_REFERENCED_CLASSES;
+        private @Nullable BiConsumer<Path, Set<String>> referenceListener;
+
+        private Builder(ProjectionPolicy policy) {
+            this.policy = Objects.requireNonNull(policy, "policy");
+        }
 
-        ProjectionResult(String internalName, String source) {
-            this.internalName = internalName;
-            this.source = source;
+        /**
+         * Replaces the directories and JARs used to resolve referenced declarations, in lookup order.
+         *
+         * <p>Entries are not scanned for projection roots. Missing entries are ignored.</p>
+         *
+         * @param entries referenced-declaration classpath
+         * @return this builder
+         */
+        public Builder referencedClasspath(Collection<Path> entries) {
+            Objects.requireNonNull(entries, "entries");
+            List<Path> copy = new ArrayList<>(entries.size());
+            entries.forEach(entry -> copy.add(Objects.requireNonNull(entry, "entry").toAbsolutePath().normalize()));
+            referencedClasspath = List.copyOf(copy);
+            return this;
         }
+
+        /**
+         * Replaces the directories and JARs holding documentation-properties resources of projected classes, in
+         * lookup order.
+         *
+         * <p>A class whose class file has no {@code __annodoc.properties} resource next to it is documented from the
+         * first entry holding its resource, for example the documentation JAR that
+         * {@link DocumentationStripper#stripJar(Path, Path, Path)} wrote for a stripped classes JAR. Missing entries
+         * are ignored.</p>
+         *
+         * @param entries documentation classpath
+         * @return this builder
+         */
+        public Builder documentationClasspath(Collection<Path> entries) {
+            Objects.requireNonNull(entries, "entries");
+            List<Path> copy = new ArrayList<>(entries.size());
+            entries.forEach(entry -> copy.add(Objects.requireNonNull(entry, "entry").toAbsolutePath().normalize()));
+            documentationClasspath = List.copyOf(copy);
+            return this;
+        }
+
+        /**
+         * Sets the directory holding persistent indexes of referenced-classpath JARs.
+         *
+         * <p>Each JAR is indexed once per distinct content. The index holds only the metadata that projection
+         * consults and is memory-mapped for lookups, so the directory can be shared by every projector on a machine.
+         * Without an index directory, JARs are indexed in memory for the lifetime of the projector.</p>
+         *
+         * @param directory index directory, created on demand
+         * @return this builder
+         */
+        public Builder referencedClassIndexDirectory(Path directory) {
+            referencedClassIndexDirectory = Objects.requireNonNull(directory, "directory").toAbsolutePath().normalize();
+            return this;
+        }
+
+        /**
+         * Sets the directory of a persistent, content-addressed cache of projected sources.
+         *
+         * <p>A cached source is reused when the bytes of the root and its nested class files, the policy, the
+         * generator version, and the metadata of every referenced declaration the earlier projection looked up are
+         * unchanged, so re-projecting classes seen before, for example after switching branches or cleaning a build,
+         * reads the source instead of projecting it. Projections written with a cache are identical to projections
+         * without one, but each projected source is held in memory once to be stored. The directory can be shared
+         * by concurrent projectors and deleted at any time; entries unused for 30 days are deleted by the next
+         * projector that writes one. Without a cache directory, every class is projected.</p>
+         *
+         * @param directory cache directory, created on demand
+         * @return this builder
+         */
+        public Builder projectionCacheDirectory(Path directory) {
+            projectionCacheDirectory = Objects.requireNonNull(directory, "directory").toAbsolutePath().normalize();
+            return this;
+        }
+
+        /**
+         * Sets a metadata cache shared with other projectors for lookups in referenced-classpath JARs.
+         *
+         * <p>Without a shared cache, each projector opens the index of every JAR it consults and keeps it for its own
+         * lifetime. With one, projectors in the same process reuse indexes and looked-up declarations of JARs with
+         * the same content, which saves re-hashing and re-reading JARs in long-running processes such as build
+         * daemons. Projections are identical either way.</p>
+         *
+         * @param cache shared referenced-class metadata cache
+         * @return this builder
+         */
+        public Builder referencedClassMetadataCache(ReferencedClassMetadataCache cache) {
+            referencedClassMetadataCache = Objects.requireNonNull(cache, "cache");
+            return this;
+        }
+
+        /**
+         * Replaces the resolvers consulted, in order, for referenced declarations that are neither in the projected
+         * class's classes directory nor on the referenced classpath.
+         *
+         * <p>The default consults the running Java platform, then the resources of the class loader that loaded the
+         * generator. Pass an empty collection to resolve from the referenced classpath only, or built-in resolvers
+         * such as {@link ReferencedClassResolver#platform()} to avoid class loaders entirely.</p>
+         *
+         * @param resolvers referenced class resolvers
+         * @return this builder
+         */
+        public Builder referencedClassResolvers(Collection<ReferencedClassResolver> resolvers) {
+            Objects.requireNonNull(resolvers, "resolvers");
+            List<ReferencedClassResolver> copy = new ArrayList<>(resolvers.size());
+            resolvers.forEach(resolver -> copy.add(Objects.requireNonNull(resolver, "resolver")));
+            referencedClassResolvers = List.copyOf(copy);
+            return this;
+        }
+
+        /**
+         * Sets how many resolved referenced declarations, including ones that were not found, a single projection call
+         * or batch keeps for reuse by its projections.
+         *
+         * <p>The least recently used declarations are evicted beyond this number and looked up again when needed, so
+         * a batch projecting against a huge referenced classpath runs in bounded memory. Projections are identical for
+         * every maximum. The default is 16384.</p>
+         *
+         * @param maximumClasses maximum number of resolved referenced declarations per call
+         * @return this builder
+         * @throws IllegalArgumentException if {@code maximumClasses} is not positive
+         */
+        public Builder maximumReferencedClasses(int maximumClasses) {
+            if (maximumClasses < 1) {
+                throw new IllegalArgumentException("maximumClasses must be positive: " + maximumClasses);
+            }
+            maximumReferencedClasses = maximumClasses;
+            return this;
+        }
+
+        /**
+         * Sets a listener told which referenced declarations each projection looked up.
+         *
+         * <p>After a class file was projected, the listener receives it together with the internal names of all
+         * declarations its projection looked up outside the class file and its nested class files, in name order,
+         * whether they were found or not. As long as none of these declarations changes, appears, or disappears, the
+         * class file projects to the same source, so a build can re-project exactly the classes that depend on a
+         * changed class file. The listener is called on the projecting thread, concurrently for parallel
+         * projections.</p>
+         *
+         * @param listener receives each projected class file and the referenced declarations it looked up
+         * @return this builder
+         */
+        public Builder referenceListener(BiConsumer<Path, Set<String>> listener) {
+            referenceListener = Objects.requireNonNull(listener, "listener");
+            return this;
+        }
+
+        /**
+         * Creates a projector from the current builder state.
+         *
+         * @return a new projector
+         */
+        public SourceProjector build() {
+            return new SourceProjector(policy, referencedClasspath, referencedClassIndexDirectory,
+                    projectionCacheDirectory, referencedClassMetadataCache, referencedClassResolvers,
+                    maximumReferencedClasses, documentationClasspath, referenceListener);
+        }
+    }
+
+    /**
+     * Internal name of a projected root, the referenced declarations its projection looked up, and the deferred
+     * emission of its LF-normalized source.
+     */
+    record ProjectionResult(String internalName, Map<String, Optional<ReferencedClass>> referencedClasses,
+                            ProjectedSource source) {
+    }
+
+    @FunctionalInterface
+    interface ProjectedSource {
+        void writeTo(Writer out) throws IOException;
     }
 }
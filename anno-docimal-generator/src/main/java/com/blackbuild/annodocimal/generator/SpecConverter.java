@@ -29,34 +29,40 @@ import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeVariableName;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.signature.SignatureReader;
 import org.objectweb.asm.signature.SignatureVisitor;
 import org.objectweb.asm.tree.AnnotationNode;
-import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.FieldNode;
-import org.objectweb.asm.tree.InnerClassNode;
-import org.objectweb.asm.tree.MethodNode;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 /**
  * Converts class-file declarations to their JavaPoet counterparts.
@@ -69,30 +75,71 @@ final class SpecConverter {
     private static final Set<String> GROOVY_OBJECT_METHODS = Set.of(
             "getMetaClass", "setMetaClass", "invokeMethod", "getProperty", "setProperty");
 
+    /**
+     * Executor reading nested declarations one after the other in the calling thread.
+     */
+    static final Executor SEQUENTIAL = Runnable::run;
+
     private final Path inputPath;
+    private final Map<Path, byte[]> classFileBytes;
     private final ProjectionPolicy policy;
     private final Map<String, ClassData> classes = new LinkedHashMap<>();
-    private final Map<String, ClassNode> referencedClasses = new LinkedHashMap<>();
-    private final Set<String> unresolvedReferencedClasses = new LinkedHashSet<>();
+    // Nested declarations of one projection are read concurrently, so everything filled while reading is concurrent.
+    private final Map<String, ReferencedClass> referencedClasses = new ConcurrentHashMap<>();
+    private final Set<String> unresolvedReferencedClasses = ConcurrentHashMap.newKeySet();
+    // Filled from the projected class files only, before any nested declaration is read.
+    private final Map<String, ReferencedClass.InnerClass> nestedReferences = new HashMap<>();
+    private final Map<String, ClassName> classNames = new ConcurrentHashMap<>();
+    // Type names are interned for this projection only, never across a batch: how a referenced name resolves depends
+    // on the classes directory and the nested classes of the projected root.
+    private final Map<TypeName, TypeName> canonicalTypes = new ConcurrentHashMap<>();
+    private final Map<String, TypeName> descriptorTypes = new ConcurrentHashMap<>();
+    private final Map<String, TypeName> signatureTypes = new ConcurrentHashMap<>();
+    private final Map<MethodSignatureKey, MethodSignature> methodSignatures = new ConcurrentHashMap<>();
+    private final Map<String, SignatureVariables> signatureVariables = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> visibleTypeParameters = new ConcurrentHashMap<>();
+    private final Map<BindingKey, List<BoundSupertype>> boundSupertypes = new ConcurrentHashMap<>();
     private final Set<String> includedClasses = new LinkedHashSet<>();
+    private final ReferencedClasspath referencedClasspath;
+    private final ReferencedClassCache referencedClassCache;
+    private final DocumentationClasspath documentationClasspath;
+    private final Executor nestedReads;
     private final ClassData root;
     private final Path classPathRoot;
 
-    private SpecConverter(Path inputPath, ProjectionPolicy policy) throws IOException {
+    private SpecConverter(Path inputPath, Map<Path, byte[]> classFileBytes, ProjectionPolicy policy,
+                          ReferencedClasspath referencedClasspath, ReferencedClassCache referencedClassCache,
+                          DocumentationClasspath documentationClasspath, Executor nestedReads) throws IOException {
         this.inputPath = inputPath;
+        this.classFileBytes = classFileBytes;
         this.policy = policy;
+        this.referencedClasspath = referencedClasspath;
+        this.referencedClassCache = referencedClassCache;
+        this.documentationClasspath = documentationClasspath;
+        this.nestedReads = nestedReads;
         root = readRoot(inputPath);
-        classPathRoot = classPathRoot(inputPath, root.node.name);
-        validateTopLevelRoot(root.node);
+        classPathRoot = classPathRoot(inputPath, root.declaration.name);
+        validateTopLevelRoot(root.declaration);
         loadNestedDeclarations(root);
         selectNestedDeclarations();
         validateSelectedMethods();
     }
 
-    static SourceProjector.ProjectionResult project(Path inputPath, ProjectionPolicy policy) throws IOException {
+    /**
+     * Projects one root. Class files and documentation-properties resources present in {@code classFileBytes} are
+     * taken from there instead of being read again, so that a caller that already hashed them projects exactly the
+     * bytes it hashed. Independent nested declarations are read on {@code nestedReads}; {@link #SEQUENTIAL} reads them
+     * in the calling thread.
+     */
+    static SourceProjector.ProjectionResult project(Path inputPath, Map<Path, byte[]> classFileBytes,
+                                                    ProjectionPolicy policy, ReferencedClasspath referencedClasspath,
+                                                    ReferencedClassCache referencedClassCache,
+                                                    DocumentationClasspath documentationClasspath,
+                                                    Executor nestedReads) throws IOException {
         SpecConverter converter;
         try {
-            converter = new SpecConverter(inputPath, policy);
+            converter = new SpecConverter(inputPath, classFileBytes, policy, referencedClasspath, referencedClassCache,
+                    documentationClasspath, nestedReads);
         } catch (SourceProjectionException exception) {
             throw exception;
         } catch (RuntimeException exception) {
@@ -100,120 +147,233 @@ final class SpecConverter {
                     exception);
         }
         try {
-            JavaPoetClassVisitor rootVisitor = converter.readClass(converter.root.node.name);
+            JavaPoetClassVisitor rootVisitor = converter.readClass(converter.root.declaration.name);
             JavaFile javaFile = JavaFile.builder(rootVisitor.getPackageName(), rootVisitor.getType()).build();
-            StringBuilder source = new StringBuilder();
-            javaFile.writeTo(source);
-            return new SourceProjector.ProjectionResult(
-                    converter.root.node.name, rootVisitor.finishSource(source.toString()));
+            return new SourceProjector.ProjectionResult(converter.root.declaration.name,
+                    converter.consultedReferences(), out -> converter.emit(javaFile, out));
         } catch (SourceProjectionException exception) {
             throw exception;
         } catch (RuntimeException exception) {
-            throw converter.failure(converter.root.node.name,
-                    "Could not project selected declaration " + converter.identifier(converter.root.node.name), exception);
+            String rootName = converter.root.declaration.name;
+            throw converter.failure(rootName,
+                    "Could not project selected declaration " + converter.identifier(rootName), exception);
+        }
+    }
+
+    /**
+     * Every referenced declaration this projection looked up, in name order, with its metadata or empty if it was not
+     * found. Together with the projected class files these lookups determine the projected source.
+     */
+    private Map<String, Optional<ReferencedClass>> consultedReferences() {
+        Map<String, Optional<ReferencedClass>> result = new TreeMap<>();
+        referencedClasses.forEach((name, metadata) -> result.put(name, Optional.of(metadata)));
+        unresolvedReferencedClasses.forEach(name -> result.put(name, Optional.empty()));
+        return result;
+    }
+
+    private void emit(JavaFile javaFile, Writer out) throws IOException {
+        ProjectedSourceWriter writer = new ProjectedSourceWriter(out);
+        try {
+            javaFile.writeTo(writer);
+            writer.finish();
+        } catch (RuntimeException exception) {
+            throw failure(root.declaration.name,
+                    "Could not project selected declaration " + identifier(root.declaration.name), exception);
         }
     }
 
     JavaPoetClassVisitor readClass(String internalName) {
         ClassData classData = Objects.requireNonNull(classes.get(internalName), internalName);
         JavaPoetClassVisitor visitor = new JavaPoetClassVisitor(this, policy, includedClasses, classData.groovyClass,
-                classData.groovyRuntimeMethods, classData.groovyRuntimeFields);
-        new ClassReader(classData.bytecode).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+                classData.groovyRuntimeMethods, classData.groovyRuntimeFields, classData.documentation);
+        classData.declaration.accept(visitor);
         return visitor;
     }
 
-    ClassName toClassName(String internalName) {
-        ClassData classData = classes.get(internalName);
-        if (classData == null) {
-            InnerClassNode nestedReference = findNestedReference(internalName);
-            if (nestedReference != null) {
-                return toClassName(nestedReference.outerName).nestedClass(nestedReference.innerName);
+    /**
+     * Reads independent nested declarations of one enclosing declaration and returns their visitors in the given
+     * order. When there are several, all but the first are offered to the projection's executor, and the calling thread
+     * reads every declaration that no executor thread has started yet, so a saturated executor never blocks the
+     * projection. If several of them fail, the failure of the first one in that order is thrown, as in a sequential
+     * read.
+     */
+    List<JavaPoetClassVisitor> readClasses(List<String> internalNames) {
+        if (internalNames.size() < 2 || nestedReads == SEQUENTIAL) {
+            return internalNames.stream().map(this::readClass).toList();
+        }
+        List<NestedRead> reads = internalNames.stream().map(NestedRead::new).toList();
+        for (NestedRead read : reads.subList(1, reads.size())) {
+            try {
+                nestedReads.execute(read);
+            } catch (RejectedExecutionException rejected) {
+                // Read by the calling thread below.
             }
-            ClassNode referencedClass = readReferencedClass(internalName);
-            if (referencedClass != null) {
-                InnerClassNode self = referencedClass.innerClasses.stream()
-                        .filter(inner -> internalName.equals(inner.name))
-                        .findFirst()
-                        .orElse(null);
-                if (self != null && self.outerName != null && self.innerName != null) {
-                    return toClassName(self.outerName).nestedClass(self.innerName);
-                }
-                return TypeConversion.fromInternalNameToClassName(internalName);
+        }
+        reads.forEach(NestedRead::run);
+        List<JavaPoetClassVisitor> result = new ArrayList<>(reads.size());
+        for (NestedRead read : reads) result.add(read.join());
+        return result;
+    }
+
+    // One nested declaration, read by whichever thread claims it first.
+    private final class NestedRead implements Runnable {
+        private final String internalName;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<JavaPoetClassVisitor> visitor = new CompletableFuture<>();
+
+        private NestedRead(String internalName) {
+            this.internalName = internalName;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) return;
+            try {
+                visitor.complete(readClass(internalName));
+            } catch (RuntimeException | Error exception) {
+                visitor.completeExceptionally(exception);
             }
-            if (internalName.substring(internalName.lastIndexOf('/') + 1).contains("$")) {
+        }
+
+        JavaPoetClassVisitor join() {
+            try {
+                return visitor.join();
+            } catch (CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException runtime) throw runtime;
+                if (exception.getCause() instanceof Error error) throw error;
+                throw exception;
+            }
+        }
+    }
+
+    ClassName toClassName(String internalName) {
+        ClassName result = classNames.get(internalName);
+        if (result == null) {
+            result = classes.containsKey(internalName)
+                    ? localClassName(internalName)
+                    : referencedClassName(internalName);
+            classNames.put(internalName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Classifies a name declared outside the projected files. The InnerClasses entries of the projected class files are
+     * consulted first. Only names whose simple binary name contains '$' can be nested and require a class-path lookup
+     * of the declaration itself, whose own InnerClasses entry decides. The result therefore never depends on which
+     * other referenced declarations concurrent nested reads have loaded.
+     */
+    private ClassName referencedClassName(String internalName) {
+        ReferencedClass.InnerClass nestedReference = nestedReferences.get(internalName);
+        if (nestedReference == null && mayBeNested(internalName)) {
+            ReferencedClass metadata = readReferencedClass(internalName);
+            if (metadata == null) {
                 throw failure(internalName, "Cannot classify referenced declaration containing '$': "
                         + identifier(internalName));
             }
-            return TypeConversion.fromInternalNameToClassName(internalName);
+            nestedReference = metadata.getInnerClasses().stream()
+                    .filter(inner -> inner.name().equals(internalName))
+                    .findFirst().orElse(null);
+        }
+        if (nestedReference != null) {
+            return toClassName(nestedReference.outerName()).nestedClass(nestedReference.innerName());
         }
+        return TypeConversion.fromInternalNameToClassName(internalName);
+    }
+
+    private static boolean mayBeNested(String internalName) {
+        return internalName.indexOf('$', internalName.lastIndexOf('/') + 1) >= 0;
+    }
 
+    private ClassName localClassName(String internalName) {
+        ClassData classData = classes.get(internalName);
         Deque<String> nestedNames = new ArrayDeque<>();
         while (classData.outerName != null && classes.containsKey(classData.outerName)) {
             nestedNames.addFirst(classData.innerName);
             classData = classes.get(classData.outerName);
         }
 
-        String topLevelName = simpleBinaryName(classData.node.name);
-        int packageSeparator = classData.node.name.lastIndexOf('/');
+        String topLevelName = simpleBinaryName(classData.declaration.name);
+        int packageSeparator = classData.declaration.name.lastIndexOf('/');
         String packageName = packageSeparator < 0
                 ? ""
-                : classData.node.name.substring(0, packageSeparator).replace('/', '.');
+                : classData.declaration.name.substring(0, packageSeparator).replace('/', '.');
         return ClassName.get(packageName, topLevelName, nestedNames.toArray(new String[0]));
     }
 
-    private InnerClassNode findNestedReference(String internalName) {
-        return Stream.concat(
-                        classes.values().stream().map(classData -> classData.node),
-                        referencedClasses.values().stream())
-                .flatMap(node -> node.innerClasses.stream())
-                .filter(inner -> internalName.equals(inner.name) && inner.outerName != null && inner.innerName != null)
-                .findFirst()
-                .orElse(null);
+    // Projected class files are indexed in a fixed order; the first one naming a nested declaration wins.
+    private void indexNestedReferences(ReferencedClass metadata) {
+        for (ReferencedClass.InnerClass inner : metadata.getInnerClasses()) {
+            nestedReferences.putIfAbsent(inner.name(), inner);
+        }
     }
 
-    private ClassNode readReferencedClass(String internalName) {
+    private ReferencedClass readReferencedClass(String internalName) {
         if (referencedClasses.containsKey(internalName)) return referencedClasses.get(internalName);
         if (unresolvedReferencedClasses.contains(internalName)) return null;
 
-        byte[] bytecode = null;
-        Path candidate = classPathRoot.resolve(internalName + ".class");
+        ReferencedClass metadata;
         try {
-            if (Files.isRegularFile(candidate)) {
-                bytecode = Files.readAllBytes(candidate);
-            } else {
-                try (InputStream stream = referencedClassStream(internalName)) {
-                    if (stream != null) bytecode = stream.readAllBytes();
-                }
-            }
-        } catch (IOException exception) {
+            metadata = findReferencedClass(classPathRoot, internalName, referencedClasspath, referencedClassCache);
+        } catch (UncheckedIOException exception) {
             throw failure(internalName, "Could not inspect referenced declaration " + identifier(internalName),
-                    exception);
+                    exception.getCause());
+        } catch (MismatchedReferencedClass exception) {
+            throw failure(internalName, "Referenced class metadata does not match " + identifier(internalName));
         }
-
-        if (bytecode == null) {
+        if (metadata == null) {
             unresolvedReferencedClasses.add(internalName);
             return null;
         }
-        ClassNode node = readMetadata(bytecode);
-        if (!internalName.equals(node.name)) {
-            throw failure(internalName, "Referenced class metadata does not match " + identifier(internalName));
+        referencedClasses.put(internalName, metadata);
+        return metadata;
+    }
+
+    /**
+     * Resolves a referenced declaration exactly as a projection of a root below {@code classPathRoot} does: from that
+     * classes directory, then from the referenced classpath and its resolvers. Read failures are
+     * thrown as {@link UncheckedIOException}, metadata of another class as {@link MismatchedReferencedClass}.
+     *
+     * @return the metadata, or {@code null} if the declaration cannot be found
+     */
+    static ReferencedClass findReferencedClass(Path classPathRoot, String internalName,
+                                               ReferencedClasspath referencedClasspath,
+                                               ReferencedClassCache referencedClassCache) {
+        return referencedClassCache
+                .directoryClass(classPathRoot, internalName, name -> readDirectoryClass(classPathRoot, name))
+                .or(() -> referencedClassCache.classpathClass(internalName,
+                        name -> readClasspathClass(referencedClasspath, name)))
+                .orElse(null);
+    }
+
+    private static Optional<ReferencedClass> readDirectoryClass(Path classPathRoot, String internalName) {
+        Path candidate = classPathRoot.resolve(internalName + ".class");
+        if (!Files.isRegularFile(candidate)) return Optional.empty();
+        try {
+            return Optional.of(checkReferencedMetadata(internalName,
+                    ReferencedClass.read(Files.readAllBytes(candidate))));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
         }
-        referencedClasses.put(internalName, node);
-        return node;
     }
 
-    private static InputStream referencedClassStream(String internalName) {
-        String resourceName = internalName + ".class";
-        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
-        InputStream stream = contextLoader == null ? null : contextLoader.getResourceAsStream(resourceName);
-        if (stream != null) return stream;
-        ClassLoader ownLoader = SpecConverter.class.getClassLoader();
-        return ownLoader == null
-                ? ClassLoader.getSystemResourceAsStream(resourceName)
-                : ownLoader.getResourceAsStream(resourceName);
+    private static Optional<ReferencedClass> readClasspathClass(ReferencedClasspath referencedClasspath,
+                                                                String internalName) {
+        try {
+            ReferencedClass metadata = referencedClasspath.find(internalName);
+            if (metadata == null) return Optional.empty();
+            return Optional.of(checkReferencedMetadata(internalName, metadata));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
     }
 
-    private static Path classPathRoot(Path classFile, String internalName) {
+    private static ReferencedClass checkReferencedMetadata(String internalName, ReferencedClass metadata) {
+        if (!internalName.equals(metadata.getName())) throw new MismatchedReferencedClass();
+        return metadata;
+    }
+
+    static Path classPathRoot(Path classFile, String internalName) {
         Path result = classFile.toAbsolutePath().normalize().getParent();
         int packageSegments = (int) internalName.chars().filter(character -> character == '/').count();
         for (int index = 0; index < packageSegments && result != null; index++) {
@@ -225,22 +385,102 @@ final class SpecConverter {
     TypeName toTypeName(Type type) {
         return switch (type.getSort()) {
             case Type.OBJECT -> toClassName(type.getInternalName());
-            case Type.ARRAY -> ArrayTypeName.of(toTypeName(type.getElementType()));
+            case Type.ARRAY -> {
+                TypeName result = descriptorTypes.get(type.getDescriptor());
+                if (result == null) {
+                    result = canonical(ArrayTypeName.of(toTypeName(type.getElementType())));
+                    descriptorTypes.put(type.getDescriptor(), result);
+                }
+                yield result;
+            }
             default -> TypeConversion.toTypeName(type);
         };
     }
 
+    /**
+     * Parses the generic signature of a field or record component. Type variables keep their own names.
+     */
+    TypeName toTypeName(String typeSignature) {
+        TypeName cached = signatureTypes.get(typeSignature);
+        if (cached != null) return cached;
+        TypeName[] result = {null};
+        new SignatureReader(typeSignature).acceptType(new TypeSignatureParser(this::toClassName) {
+            @Override
+            void finished(TypeName type) {
+                result[0] = canonical(type);
+            }
+        });
+        signatureTypes.put(typeSignature, result[0]);
+        return result[0];
+    }
+
+    /**
+     * Parses the generic signature of a method, resolving the given inherited type variables.
+     */
+    MethodSignature methodSignature(String signature, Map<String, TypeName> inheritedVariables) {
+        MethodSignatureKey key = new MethodSignatureKey(signature, inheritedVariables);
+        MethodSignature cached = methodSignatures.get(key);
+        if (cached != null) return cached;
+        Function<String, TypeName> variableResolver = variable -> inheritedVariables.getOrDefault(
+                variable, TypeVariableName.get(variable));
+        List<TypeName> parameterTypes = new ArrayList<>();
+        TypeName[] returnType = {null};
+        List<TypeName> exceptionTypes = new ArrayList<>();
+        FormalParameterParser parser = new FormalParameterParser(this::toClassName, variableResolver) {
+            @Override
+            public SignatureVisitor visitParameterType() {
+                return typeCollector(variableResolver, parameterTypes::add);
+            }
+
+            @Override
+            public SignatureVisitor visitReturnType() {
+                return typeCollector(variableResolver, type -> returnType[0] = type);
+            }
+
+            @Override
+            public SignatureVisitor visitExceptionType() {
+                return typeCollector(variableResolver, exceptionTypes::add);
+            }
+        };
+        new SignatureReader(signature).accept(parser);
+        MethodSignature result = new MethodSignature(
+                Collections.unmodifiableMap(new LinkedHashMap<>(parser.getTypeParameters())),
+                List.copyOf(parameterTypes), returnType[0], List.copyOf(exceptionTypes));
+        methodSignatures.put(key, result);
+        return result;
+    }
+
+    private TypeSignatureParser typeCollector(Function<String, TypeName> variableResolver,
+                                              Consumer<TypeName> consumer) {
+        return new TypeSignatureParser(this::toClassName, variableResolver) {
+            @Override
+            void finished(TypeName result) {
+                consumer.accept(canonical(result));
+            }
+        };
+    }
+
+    /**
+     * Returns the instance shared by every equal type name of this projection, so that types such as
+     * {@code List<String>} that occur in many signatures are held once.
+     */
+    private TypeName canonical(TypeName type) {
+        if (type instanceof ClassName || type.isPrimitive()) return type;
+        TypeName existing = canonicalTypes.putIfAbsent(type, type);
+        return existing == null ? type : existing;
+    }
+
     Map<String, TypeName> inheritedTypeVariables(String internalName, String methodName, String descriptor,
                                                  String signature) {
         if (signature == null) return Map.of();
         SignatureVariables methodVariables = signatureVariables(signature);
-        Set<String> unresolved = new LinkedHashSet<>(methodVariables.referenced);
-        unresolved.removeAll(methodVariables.declared);
+        Set<String> unresolved = new LinkedHashSet<>(methodVariables.referenced());
+        unresolved.removeAll(methodVariables.declared());
         unresolved.removeAll(visibleTypeParameters(internalName));
         if (unresolved.isEmpty()) return Map.of();
 
         Map<String, TypeName> result = new LinkedHashMap<>();
-        collectInheritedTypeVariables(classes.get(internalName).node, methodName, descriptor, Map.of(),
+        collectInheritedTypeVariables(classes.get(internalName).metadata, methodName, descriptor, Map.of(),
                 unresolved, new LinkedHashSet<>(), result);
         if (!result.keySet().containsAll(unresolved)) {
             Set<String> missing = new LinkedHashSet<>(unresolved);
@@ -253,46 +493,45 @@ final class SpecConverter {
     }
 
     private Set<String> visibleTypeParameters(String internalName) {
+        Set<String> cached = visibleTypeParameters.get(internalName);
+        if (cached != null) return cached;
         Set<String> result = new LinkedHashSet<>();
         ClassData current = classes.get(internalName);
         while (current != null) {
-            result.addAll(signatureVariables(current.node.signature).declared);
+            result.addAll(signatureVariables(current.declaration.signature).declared());
             if ((current.declarationAccess & Opcodes.ACC_STATIC) != 0) break;
             current = classes.get(current.outerName);
         }
+        visibleTypeParameters.put(internalName, result);
         return result;
     }
 
-    private void collectInheritedTypeVariables(ClassNode node, String methodName, String descriptor,
+    private void collectInheritedTypeVariables(ReferencedClass node, String methodName, String descriptor,
                                                Map<String, TypeName> bindings, Set<String> unresolved,
                                                Set<String> visited, Map<String, TypeName> result) {
-        for (InheritedSupertype inherited : directSupertypes(node, bindings)) {
+        for (BoundSupertype inherited : boundSupertypes(node, bindings)) {
             collectInheritedTypeVariablesFromSupertype(node, inherited, methodName, descriptor,
                     unresolved, visited, result);
         }
     }
 
-    private void collectInheritedTypeVariablesFromSupertype(ClassNode node, InheritedSupertype inherited,
+    private void collectInheritedTypeVariablesFromSupertype(ReferencedClass node, BoundSupertype inherited,
                                                             String methodName, String descriptor,
                                                             Set<String> unresolved, Set<String> visited,
                                                             Map<String, TypeName> result) {
-        ClassNode parent = classMetadata(inherited.internalName);
-        if (parent == null) return;
-        Map<String, TypeName> parentBindings = bindTypeParameters(parent, inherited.type);
-        String visitKey = parent.name + parentBindings;
+        ReferencedClass parent = inherited.metadata;
+        Map<String, TypeName> parentBindings = inherited.bindings;
+        String visitKey = parent.getName() + parentBindings;
         if (!visited.add(visitKey)) return;
 
-        MethodNode inheritedMethod = parent.methods.stream()
-                .filter(method -> methodName.equals(method.name) && descriptor.equals(method.desc))
-                .findFirst()
-                .orElse(null);
-        if (inheritedMethod != null) {
-            Set<String> inheritedVariables = signatureVariables(inheritedMethod.signature).referenced;
+        String inheritedSignature = parent.getMethodSignature(methodName, descriptor);
+        if (inheritedSignature != null) {
+            Set<String> inheritedVariables = signatureVariables(inheritedSignature).referenced();
             for (String variable : unresolved) {
                 if (!inheritedVariables.contains(variable) || !parentBindings.containsKey(variable)) continue;
                 TypeName previous = result.putIfAbsent(variable, parentBindings.get(variable));
                 if (previous != null && !previous.equals(parentBindings.get(variable))) {
-                    throw failure(node.name + "#" + methodName,
+                    throw failure(node.getName() + "#" + methodName,
                             "Inherited declarations resolve type variable " + variable + " inconsistently");
                 }
             }
@@ -300,13 +539,32 @@ final class SpecConverter {
         collectInheritedTypeVariables(parent, methodName, descriptor, parentBindings, unresolved, visited, result);
     }
 
-    private List<InheritedSupertype> directSupertypes(ClassNode node, Map<String, TypeName> bindings) {
+    /**
+     * The resolvable direct supertypes of a class seen through the given type-variable bindings, each with the
+     * bindings of its own type parameters. The walk over a generic hierarchy repeats for every inherited generic
+     * method, so the result is kept for the rest of the projection.
+     */
+    private List<BoundSupertype> boundSupertypes(ReferencedClass node, Map<String, TypeName> bindings) {
+        BindingKey key = new BindingKey(node.getName(), bindings);
+        List<BoundSupertype> cached = boundSupertypes.get(key);
+        if (cached != null) return cached;
+        List<BoundSupertype> result = new ArrayList<>();
+        for (InheritedSupertype inherited : directSupertypes(node, bindings)) {
+            ReferencedClass parent = classMetadata(inherited.internalName);
+            if (parent != null) result.add(new BoundSupertype(parent, bindTypeParameters(parent, inherited.type)));
+        }
+        List<BoundSupertype> copy = List.copyOf(result);
+        boundSupertypes.put(key, copy);
+        return copy;
+    }
+
+    private List<InheritedSupertype> directSupertypes(ReferencedClass node, Map<String, TypeName> bindings) {
         List<String> names = new ArrayList<>();
-        if (node.superName != null) names.add(node.superName);
-        names.addAll(node.interfaces);
+        if (node.getSuperName() != null) names.add(node.getSuperName());
+        names.addAll(node.getInterfaces());
 
         List<TypeName> types = new ArrayList<>();
-        if (node.signature == null) {
+        if (node.getSignature() == null) {
             names.stream().map(this::toClassName).forEach(types::add);
         } else {
             Function<String, TypeName> resolver = name -> bindings.getOrDefault(name, TypeVariableName.get(name));
@@ -321,10 +579,11 @@ final class SpecConverter {
                     return supertypeCollector(types, resolver);
                 }
             };
-            new SignatureReader(node.signature).accept(visitor);
+            new SignatureReader(node.getSignature()).accept(visitor);
         }
         if (names.size() != types.size()) {
-            throw failure(node.name, "Could not align inherited generic signatures for " + identifier(node.name));
+            throw failure(node.getName(), "Could not align inherited generic signatures for "
+                    + identifier(node.getName()));
         }
 
         List<InheritedSupertype> result = new ArrayList<>(names.size());
@@ -343,13 +602,13 @@ final class SpecConverter {
         };
     }
 
-    private ClassNode classMetadata(String internalName) {
+    private ReferencedClass classMetadata(String internalName) {
         ClassData local = classes.get(internalName);
-        return local == null ? readReferencedClass(internalName) : local.node;
+        return local == null ? readReferencedClass(internalName) : local.metadata;
     }
 
-    private static Map<String, TypeName> bindTypeParameters(ClassNode node, TypeName inheritedType) {
-        List<String> parameters = List.copyOf(signatureVariables(node.signature).declared);
+    private Map<String, TypeName> bindTypeParameters(ReferencedClass node, TypeName inheritedType) {
+        List<String> parameters = List.copyOf(signatureVariables(node.getSignature()).declared());
         if (!(inheritedType instanceof ParameterizedTypeName parameterized) || parameters.isEmpty()) return Map.of();
         if (parameters.size() != parameterized.typeArguments.size()) return Map.of();
         Map<String, TypeName> result = new LinkedHashMap<>();
@@ -359,66 +618,94 @@ final class SpecConverter {
         return result;
     }
 
-    private static SignatureVariables signatureVariables(String signature) {
-        SignatureVariables result = new SignatureVariables();
-        if (signature == null) return result;
+    private SignatureVariables signatureVariables(String signature) {
+        if (signature == null) return SignatureVariables.NONE;
+        SignatureVariables cached = signatureVariables.get(signature);
+        if (cached != null) return cached;
+        Set<String> declared = new LinkedHashSet<>();
+        Set<String> referenced = new LinkedHashSet<>();
         SignatureVisitor visitor = new SignatureVisitor(Opcodes.ASM9) {
             @Override
             public void visitFormalTypeParameter(String name) {
-                result.declared.add(name);
+                declared.add(name);
             }
 
             @Override
             public void visitTypeVariable(String name) {
-                result.referenced.add(name);
+                referenced.add(name);
             }
         };
         new SignatureReader(signature).accept(visitor);
+        SignatureVariables result = new SignatureVariables(Collections.unmodifiableSet(declared),
+                Collections.unmodifiableSet(referenced));
+        signatureVariables.put(signature, result);
         return result;
     }
 
     private ClassData readRoot(Path classFile) throws IOException {
-        byte[] bytecode = Files.readAllBytes(classFile);
-        ClassNode node = readMetadata(bytecode);
-        ClassData result = new ClassData(node, bytecode, node.access, null, null, false, isGroovyClass(node));
-        classes.put(node.name, result);
+        ProjectedClass declaration = ProjectedClass.read(readClassFile(classFile));
+        ClassData result = new ClassData(declaration, declaration.access, null, null, false,
+                readDocumentation(classFile, declaration.name));
+        classes.put(declaration.name, result);
+        indexNestedReferences(result.metadata);
         return result;
     }
 
-    private void validateTopLevelRoot(ClassNode node) {
-        InnerClassNode self = node.innerClasses.stream()
-                .filter(inner -> node.name.equals(inner.name))
-                .findFirst()
-                .orElse(null);
-        if (node.outerClass != null || self != null && self.outerName != null) {
-            throw failure(node.name, "Projection root must be a top-level declaration: " + identifier(node.name));
+    private byte[] readClassFile(Path classFile) throws IOException {
+        byte[] bytes = classFileBytes.get(classFile);
+        return bytes == null ? Files.readAllBytes(classFile) : bytes;
+    }
+
+    private Map<String, String> readDocumentation(Path classFile, String internalName) throws IOException {
+        byte[] bytes = classFileBytes.get(DocumentationProperties.resourceOf(classFile));
+        if (bytes == null) bytes = readDocumentationResource(classFile, internalName, documentationClasspath);
+        return bytes == null ? Map.of() : DocumentationProperties.read(bytes);
+    }
+
+    /**
+     * Reads the documentation-properties resource next to a class file or, if there is none, from the documentation
+     * classpath.
+     */
+    static byte[] readDocumentationResource(Path classFile, String internalName,
+                                            DocumentationClasspath documentationClasspath) throws IOException {
+        Path resource = DocumentationProperties.resourceOf(classFile);
+        if (Files.isRegularFile(resource)) return Files.readAllBytes(resource);
+        return documentationClasspath.find(internalName);
+    }
+
+    private void validateTopLevelRoot(ProjectedClass declaration) {
+        boolean member = declaration.innerClasses.stream().anyMatch(inner -> declaration.name.equals(inner.name()));
+        if (declaration.enclosedInMethod || member) {
+            throw failure(declaration.name, "Projection root must be a top-level declaration: "
+                    + identifier(declaration.name));
         }
     }
 
     private void loadNestedDeclarations(ClassData owner) throws IOException {
-        for (InnerClassNode inner : directNamedMembers(owner.node)) {
-            if (classes.containsKey(inner.name)) continue;
-            Path nestedPath = inputPath.resolveSibling(simpleBinaryName(inner.name) + ".class");
-            byte[] bytecode = Files.readAllBytes(nestedPath);
-            ClassNode node = readMetadata(bytecode);
-            if (!inner.name.equals(node.name)) {
-                throw failure(inner.name, "Nested class metadata does not match " + nestedPath);
+        for (ProjectedClass.InnerClass inner : directNamedMembers(owner.declaration)) {
+            if (classes.containsKey(inner.name())) continue;
+            Path nestedPath = inputPath.resolveSibling(simpleBinaryName(inner.name()) + ".class");
+            ProjectedClass declaration = ProjectedClass.read(readClassFile(nestedPath));
+            if (!inner.name().equals(declaration.name)) {
+                throw failure(inner.name(), "Nested class metadata does not match " + nestedPath);
             }
-            boolean groovyRuntimeArtifact = "Helper".equals(inner.innerName) && hasAnnotation(owner.node, GROOVY_TRAIT_DESCRIPTOR);
-            ClassData nested = new ClassData(node, bytecode, inner.access, inner.outerName, inner.innerName,
-                    groovyRuntimeArtifact, isGroovyClass(node));
-            classes.put(node.name, nested);
+            boolean groovyRuntimeArtifact = "Helper".equals(inner.innerName())
+                    && owner.declaration.hasAnnotation(GROOVY_TRAIT_DESCRIPTOR);
+            ClassData nested = new ClassData(declaration, inner.access(), inner.outerName(), inner.innerName(),
+                    groovyRuntimeArtifact, readDocumentation(nestedPath, declaration.name));
+            classes.put(declaration.name, nested);
+            indexNestedReferences(nested.metadata);
             loadNestedDeclarations(nested);
         }
     }
 
     private void selectNestedDeclarations() {
-        includedClasses.add(root.node.name);
+        includedClasses.add(root.declaration.name);
         if (policy.isNestedDeclarationsIncluded()) {
             classes.values().stream()
                     .filter(classData -> classData != root)
                     .filter(this::isSelectedNestedDeclaration)
-                    .map(classData -> classData.node.name)
+                    .map(classData -> classData.declaration.name)
                     .forEach(includedClasses::add);
         }
 
@@ -427,7 +714,7 @@ final class SpecConverter {
             changed = false;
             for (String includedName : List.copyOf(includedClasses)) {
                 ClassData classData = classes.get(includedName);
-                for (String referencedType : referencedTypes(classData.node)) {
+                for (String referencedType : referencedTypes(classData)) {
                     if (!classes.containsKey(referencedType)) continue;
                     for (String requiredName : enclosingChain(referencedType)) {
                         changed |= includedClasses.add(requiredName);
@@ -446,47 +733,45 @@ final class SpecConverter {
         Deque<String> chain = new ArrayDeque<>();
         ClassData current = classes.get(className);
         while (current != null && current != root) {
-            chain.addFirst(current.node.name);
+            chain.addFirst(current.declaration.name);
             current = classes.get(current.outerName);
         }
         return chain;
     }
 
-    private Set<String> referencedTypes(ClassNode node) {
+    private Set<String> referencedTypes(ClassData classData) {
+        ProjectedClass declaration = classData.declaration;
         Set<String> result = new LinkedHashSet<>();
-        scanSignature(node.signature, result);
-        addInternalName(node.superName, result);
-        node.interfaces.forEach(name -> addInternalName(name, result));
-        scanAnnotations(node.visibleAnnotations, result);
-        scanAnnotations(node.invisibleAnnotations, result);
-        scanAnnotations(node.visibleTypeAnnotations, result);
-        scanAnnotations(node.invisibleTypeAnnotations, result);
-
-        for (FieldNode field : node.fields) {
-            ClassData classData = classes.get(node.name);
-            if (!ProjectionSelection.includesField(policy, field.access, field.name, node.access,
-                    classData.groovyRuntimeFields.contains(ProjectionSelection.memberKey(field.name, field.desc)))) continue;
-            scanType(Type.getType(field.desc), result);
+        scanSignature(declaration.signature, result);
+        addInternalName(declaration.superName, result);
+        declaration.interfaces.forEach(name -> addInternalName(name, result));
+        scanAnnotations(declaration.annotations, result);
+
+        boolean recordDeclaration = (declaration.access & Opcodes.ACC_RECORD) != 0;
+        for (ProjectedClass.RecordComponent component : declaration.recordComponents) {
+            scanType(Type.getType(component.descriptor()), result);
+            scanSignature(component.signature(), result);
+            scanAnnotations(component.annotations(), result);
+        }
+        for (ProjectedClass.Field field : declaration.fields) {
+            boolean runtimeField =
+                    classData.groovyRuntimeFields.contains(ProjectionSelection.memberKey(field.name, field.descriptor));
+            // the annotations of record component fields move to the components
+            boolean componentField = recordDeclaration && (field.access & Opcodes.ACC_STATIC) == 0;
+            if (!componentField && !ProjectionSelection.includesField(policy, field.access, field.name,
+                    declaration.access, runtimeField)) continue;
+            scanType(Type.getType(field.descriptor), result);
             scanSignature(field.signature, result);
-            scanAnnotations(field.visibleAnnotations, result);
-            scanAnnotations(field.invisibleAnnotations, result);
-            scanAnnotations(field.visibleTypeAnnotations, result);
-            scanAnnotations(field.invisibleTypeAnnotations, result);
-        }
-        for (MethodNode method : node.methods) {
-            ClassData classData = classes.get(node.name);
-            if (!ProjectionSelection.includesMethod(policy, method.access, method.name, node.access,
-                    classData.groovyRuntimeMethods.contains(ProjectionSelection.memberKey(method.name, method.desc)))) continue;
-            scanType(Type.getMethodType(method.desc), result);
+            scanAnnotations(field.annotations, result);
+        }
+        for (ProjectedClass.Method method : declaration.methods) {
+            if (!isSelectedMethod(classData, method)) continue;
+            scanType(Type.getMethodType(method.descriptor), result);
             scanSignature(method.signature, result);
-            if (method.exceptions != null) method.exceptions.forEach(name -> addInternalName(name, result));
-            scanAnnotations(method.visibleAnnotations, result);
-            scanAnnotations(method.invisibleAnnotations, result);
-            scanAnnotations(method.visibleTypeAnnotations, result);
-            scanAnnotations(method.invisibleTypeAnnotations, result);
-            scanParameterAnnotations(method.visibleParameterAnnotations, result);
-            scanParameterAnnotations(method.invisibleParameterAnnotations, result);
-            scanAnnotationValue(method.annotationDefault, result);
+            method.exceptions.forEach(name -> addInternalName(name, result));
+            scanAnnotations(method.annotations, result);
+            scanAnnotations(method.parameterAnnotations(), result);
+            scanAnnotationValue(method.annotationDefault(), result);
         }
         return result;
     }
@@ -494,79 +779,63 @@ final class SpecConverter {
     private void validateSelectedMethods() {
         for (String className : includedClasses) {
             ClassData classData = classes.get(className);
-            ClassNode node = classData.node;
-            Map<String, MethodNode> signatures = new LinkedHashMap<>();
-            for (MethodNode method : node.methods) {
-                if (!ProjectionSelection.includesMethod(policy, method.access, method.name, node.access,
-                        classData.groovyRuntimeMethods.contains(ProjectionSelection.memberKey(method.name, method.desc)))) continue;
-                Type[] arguments = Type.getArgumentTypes(method.desc);
+            ProjectedClass declaration = classData.declaration;
+            Map<String, ProjectedClass.Method> signatures = new LinkedHashMap<>();
+            for (ProjectedClass.Method method : declaration.methods) {
+                if (!isSelectedMethod(classData, method)) continue;
+                Type[] arguments = Type.getArgumentTypes(method.descriptor);
                 String key = method.name + Arrays.toString(Arrays.stream(arguments).map(Type::getDescriptor).toArray());
-                MethodNode previous = signatures.putIfAbsent(key, method);
+                ProjectedClass.Method previous = signatures.putIfAbsent(key, method);
                 if (previous != null) {
-                    throw failure(identifier(node.name) + "#" + method.name,
-                            "Selected bytecode methods cannot both be represented in Java: " + identifier(node.name)
-                                    + "#" + method.name);
+                    throw failure(identifier(declaration.name) + "#" + method.name,
+                            "Selected bytecode methods cannot both be represented in Java: "
+                                    + identifier(declaration.name) + "#" + method.name);
                 }
             }
         }
     }
 
-    private static ClassNode readMetadata(byte[] bytecode) {
-        ClassNode node = new ClassNode();
-        new ClassReader(bytecode).accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
-        return node;
+    private boolean isSelectedMethod(ClassData classData, ProjectedClass.Method method) {
+        boolean runtimeMethod =
+                classData.groovyRuntimeMethods.contains(ProjectionSelection.memberKey(method.name, method.descriptor));
+        return ProjectionSelection.includesMethod(policy, method.access, method.name, classData.declaration.access,
+                runtimeMethod);
     }
 
-    private static List<InnerClassNode> directNamedMembers(ClassNode owner) {
+    private static List<ProjectedClass.InnerClass> directNamedMembers(ProjectedClass owner) {
         return owner.innerClasses.stream()
-                .filter(inner -> inner.innerName != null && owner.name.equals(inner.outerName))
-                .sorted((left, right) -> left.name.compareTo(right.name))
+                .filter(inner -> owner.name.equals(inner.outerName()))
+                .sorted((left, right) -> left.name().compareTo(right.name()))
                 .toList();
     }
 
-    private static boolean hasAnnotation(ClassNode node, String descriptor) {
-        return containsAnnotation(node.visibleAnnotations, descriptor) || containsAnnotation(node.invisibleAnnotations, descriptor);
-    }
-
-    private static boolean hasAnnotation(MethodNode node, String descriptor) {
-        return containsAnnotation(node.visibleAnnotations, descriptor) || containsAnnotation(node.invisibleAnnotations, descriptor);
-    }
-
-    private static boolean isGroovyClass(ClassNode node) {
-        return node.sourceFile != null && node.sourceFile.endsWith(".groovy");
-    }
-
-    private static boolean containsAnnotation(List<AnnotationNode> annotations, String descriptor) {
-        return annotations != null && annotations.stream().anyMatch(annotation -> descriptor.equals(annotation.desc));
-    }
-
-    private static Set<String> findGroovyRuntimeMethods(ClassNode node, boolean groovyClass) {
-        if (!groovyClass) return Set.of();
+    private static Set<String> findGroovyRuntimeMethods(ProjectedClass declaration) {
+        if (!declaration.groovySource) return Set.of();
         Set<String> result = new LinkedHashSet<>();
-        for (MethodNode method : node.methods) {
+        for (ProjectedClass.Method method : declaration.methods) {
             boolean syntheticHelper = (method.access & Opcodes.ACC_SYNTHETIC) != 0 && method.name.startsWith("$");
             boolean runtimeAccessor = GROOVY_OBJECT_METHODS.contains(method.name)
-                    && hasAnnotation(method, GROOVY_INTERNAL_DESCRIPTOR);
-            boolean enumHelper = (node.access & Opcodes.ACC_ENUM) != 0
+                    && method.annotations.contains(GROOVY_INTERNAL_DESCRIPTOR);
+            boolean enumHelper = (declaration.access & Opcodes.ACC_ENUM) != 0
                     && ("next".equals(method.name) || "previous".equals(method.name))
-                    && hasAnnotation(method, GROOVY_GENERATED_DESCRIPTOR);
+                    && method.annotations.contains(GROOVY_GENERATED_DESCRIPTOR);
             if (syntheticHelper || runtimeAccessor || enumHelper) {
-                result.add(ProjectionSelection.memberKey(method.name, method.desc));
+                result.add(ProjectionSelection.memberKey(method.name, method.descriptor));
             }
         }
         return Set.copyOf(result);
     }
 
-    private static Set<String> findGroovyRuntimeFields(ClassNode node, boolean groovyClass) {
-        if (!groovyClass) return Set.of();
+    private static Set<String> findGroovyRuntimeFields(ProjectedClass declaration) {
+        if (!declaration.groovySource) return Set.of();
         Set<String> result = new LinkedHashSet<>();
-        for (FieldNode field : node.fields) {
+        for (ProjectedClass.Field field : declaration.fields) {
             boolean syntheticMetadata = (field.access & Opcodes.ACC_SYNTHETIC) != 0
                     && (field.name.startsWith("$") || field.name.startsWith("__$") || "metaClass".equals(field.name));
-            boolean enumBoundary = (node.access & Opcodes.ACC_ENUM) != 0
+            boolean enumBoundary = (declaration.access & Opcodes.ACC_ENUM) != 0
                     && ("MIN_VALUE".equals(field.name) || "MAX_VALUE".equals(field.name));
             if (syntheticMetadata || enumBoundary) {
-                result.add(ProjectionSelection.memberKey(field.name, field.desc));
+                result.add(ProjectionSelection.memberKey(field.name, field.descriptor));
             }
         }
         return Set.copyOf(result);
@@ -612,9 +881,10 @@ final class SpecConverter {
         if (name != null) result.add(name);
     }
 
-    private static void scanParameterAnnotations(List<AnnotationNode>[] annotations, Set<String> result) {
-        if (annotations == null) return;
-        Arrays.stream(annotations).forEach(parameterAnnotations -> scanAnnotations(parameterAnnotations, result));
+    private static void scanAnnotations(ProjectedClass.Annotations annotations, Set<String> result) {
+        scanAnnotations(annotations.visible(), result);
+        scanAnnotations(annotations.invisible(), result);
+        scanAnnotations(annotations.typeAnnotations(), result);
     }
 
     private static void scanAnnotations(Collection<? extends AnnotationNode> annotations, Set<String> result) {
@@ -662,6 +932,12 @@ final class SpecConverter {
         return separator < 0 ? internalName : internalName.substring(separator + 1);
     }
 
+    static final class MismatchedReferencedClass extends RuntimeException {
+        private MismatchedReferencedClass() {
+            super(null, null, false, false);
+        }
+    }
+
     private static final class InheritedSupertype {
         private final String internalName;
         private final TypeName type;
@@ -672,14 +948,34 @@ final class SpecConverter {
         }
     }
 
-    private static final class SignatureVariables {
-        private final Set<String> declared = new LinkedHashSet<>();
-        private final Set<String> referenced = new LinkedHashSet<>();
+    /**
+     * The parsed parts of a generic method signature. Type parameters map each name to its bounds, in declaration
+     * order; the return type is {@code void} for constructors.
+     */
+    record MethodSignature(Map<String, List<TypeName>> typeParameters, List<TypeName> parameterTypes,
+                           TypeName returnType, List<TypeName> exceptionTypes) {
+    }
+
+    private record MethodSignatureKey(String signature, Map<String, TypeName> inheritedVariables) {
+    }
+
+    private record BindingKey(String internalName, Map<String, TypeName> bindings) {
+    }
+
+    private record BoundSupertype(ReferencedClass metadata, Map<String, TypeName> bindings) {
+    }
+
+    /**
+     * The type variables a signature declares and references, each in order of appearance. Instances are shared
+     * between all declarations with the same signature and are therefore immutable.
+     */
+    private record SignatureVariables(Set<String> declared, Set<String> referenced) {
+        private static final SignatureVariables NONE = new SignatureVariables(Set.of(), Set.of());
     }
 
     private static final class ClassData {
-        private final ClassNode node;
-        private final byte[] bytecode;
+        private final ProjectedClass declaration;
+        private final ReferencedClass metadata;
         private final int declarationAccess;
         private final String outerName;
         private final String innerName;
@@ -687,18 +983,20 @@ final class SpecConverter {
         private final boolean groovyClass;
         private final Set<String> groovyRuntimeMethods;
         private final Set<String> groovyRuntimeFields;
+        private final Map<String, String> documentation;
 
-        private ClassData(ClassNode node, byte[] bytecode, int declarationAccess, String outerName, String innerName,
-                          boolean groovyRuntimeArtifact, boolean groovyClass) {
-            this.node = node;
-            this.bytecode = bytecode;
+        private ClassData(ProjectedClass declaration, int declarationAccess, String outerName, String innerName,
+                          boolean groovyRuntimeArtifact, Map<String, String> documentation) {
+            this.declaration = declaration;
+            metadata = ReferencedClass.of(declaration);
             this.declarationAccess = declarationAccess;
             this.outerName = outerName;
             this.innerName = innerName;
             this.groovyRuntimeArtifact = groovyRuntimeArtifact;
-            this.groovyClass = groovyClass;
-            groovyRuntimeMethods = findGroovyRuntimeMethods(node, groovyClass);
-            groovyRuntimeFields = findGroovyRuntimeFields(node, groovyClass);
+            groovyClass = declaration.groovySource;
+            groovyRuntimeMethods = findGroovyRuntimeMethods(declaration);
+            groovyRuntimeFields = findGroovyRuntimeFields(declaration);
+            this.documentation = documentation;
         }
     }
 }
@@ -0,0 +1,278 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Tag
+
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+
+class ConcurrentSourceProjectionTest extends JavaClassGeneratingTest {
+
+    def "one projector projects concurrently from many threads like it projects sequentially"() {
+        given:
+        List<Path> classFiles = compileFixtures(24)
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+        Path sequentialDirectory = outputDirectory.toPath().resolve('sequential')
+        projector.projectAll(classFiles, sequentialDirectory)
+        Map<String, String> expected = sources(sequentialDirectory)
+        int threads = 8
+        ExecutorService callers = Executors.newFixedThreadPool(threads)
+        ForkJoinPool projectionPool = new ForkJoinPool(threads)
+        CountDownLatch start = new CountDownLatch(1)
+
+        when: 'every caller starts at once, half of them on the shared pool, half projecting texts directly'
+        def results = (0..<threads).collect { caller ->
+            callers.submit({
+                start.await()
+                (0..<3).collect { round ->
+                    if (caller % 2 == 0) {
+                        Path directory = outputDirectory.toPath().resolve("parallel-$caller-$round")
+                        projector.projectAll(classFiles, directory, projectionPool)
+                        sources(directory)
+                    } else {
+                        classFiles.collectEntries { classFile ->
+                            String internalName = internalName(classFile)
+                            [(internalName + '.java'): projector.projectToText(classFile)]
+                        }
+                    }
+                }
+            } as Callable<List<Map<String, String>>>)
+        }
+        start.countDown()
+        def projected = results.collectMany { it.get(2, TimeUnit.MINUTES) }
+
+        then:
+        expected.size() == classFiles.size()
+        projected.size() == threads * 3
+        projected.every { it == expected }
+
+        cleanup:
+        callers.shutdownNow()
+        projectionPool.shutdownNow()
+    }
+
+    def "parallel batches keep input order and report the first failure in input order"() {
+        given:
+        List<Path> classFiles = compileFixtures(4)
+        Path firstMissing = classFiles[0].resolveSibling('FirstMissing.class')
+        Path secondMissing = classFiles[0].resolveSibling('SecondMissing.class')
+        Path directory = outputDirectory.toPath().resolve('parallel')
+        ForkJoinPool pool = new ForkJoinPool(4)
+
+        when:
+        List<Path> written = new SourceProjector(ProjectionPolicy.documentation())
+                .projectAll(classFiles.reverse(), directory, pool)
+
+        then:
+        written == classFiles.reverse().collect { directory.resolve(internalName(it) + '.java') }
+
+        when:
+        directory.toFile().deleteDir()
+        new SourceProjector(ProjectionPolicy.documentation())
+                .projectAll([classFiles[0], firstMissing, classFiles[1], secondMissing, classFiles[2]], directory, pool)
+
+        then: 'the other sources are written before the failure surfaces'
+        NoSuchFileException exception = thrown()
+        exception.file == firstMissing.toString()
+        [classFiles[0], classFiles[1], classFiles[2]].every { Files.isRegularFile(directory.resolve(internalName(it) + '.java')) }
+
+        when: 'a direct executor projects in the calling thread'
+        List<Path> direct = new SourceProjector(ProjectionPolicy.documentation())
+                .projectAll(classFiles, outputDirectory.toPath().resolve('direct'), { it.run() } as Executor)
+
+        then:
+        direct.size() == classFiles.size()
+
+        cleanup:
+        pool.shutdownNow()
+    }
+
+    def "nested declarations of one large class are projected in declaration order on every run"() {
+        given:
+        int count = 32
+        String nested = (0..<count).collect { index ->
+            switch (index % 4) {
+                case 0: return "public record Record$index(String name$index, java.util.List<Integer> values) {}"
+                case 1: return "public enum Kind$index { FIRST, SECOND }"
+                case 2: return """
+                    public static class Holder$index<T extends Comparable<T>> extends Base<T> {
+                        public T value() { return null; }
+                        public java.util.Map.Entry<T, Record${index - 2}> entry() { return null; }
+                        public record Inner$index<V extends Comparable<V>>(V value) {}
+                    }
+                """
+                default: return "public interface Listener$index { void changed(Kind${index - 2} kind); }"
+            }
+        }.join('\n')
+        compile([
+                'dummy.Base' : '''
+                    package dummy;
+                    public abstract class Base<T> {
+                        public abstract T value();
+                    }
+                ''',
+                'dummy.Large': """
+                    package dummy;
+                    public class Large {
+                        $nested
+                    }
+                """.toString()
+        ], 'dummy.Large')
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+        Path classFile = file.toPath()
+
+        when:
+        List<String> projections = (0..<20).collect { projector.projectToText(classFile) }
+        String source = projections[0]
+
+        then:
+        projections.every { it == source }
+        (0..<count).collect { index ->
+            source.indexOf(['record Record', 'enum Kind', 'class Holder', 'interface Listener'][index % 4] + index)
+        }.with { positions -> positions.every { it >= 0 } && positions == positions.sort(false) }
+        source.contains('public static record Record0(String name0, List<Integer> values)')
+        source.contains('public static record Inner2<V extends Comparable<V>>(V value)')
+        source.contains('public Map.Entry<T, Record0> entry()')
+        !source.contains('$AnnoDocimalRecord$')
+
+        when: 'the class is projected on a caller-supplied executor'
+        List<String> threads = Collections.synchronizedList([])
+        ExecutorService pool = Executors.newFixedThreadPool(4)
+        Executor recording = { Runnable task ->
+            pool.execute { threads << Thread.currentThread().name; task.run() }
+        } as Executor
+        Path directory = outputDirectory.toPath().resolve('executor')
+        projector.projectAll([classFile], directory, recording)
+
+        then: 'its nested declarations are offered to that executor and projected like before'
+        threads.size() > 1
+        Files.readString(directory.resolve('dummy/Large.java')) == source
+
+        when: 'the executor has a single thread, which is busy with the projection itself'
+        ExecutorService single = Executors.newSingleThreadExecutor()
+        projector.projectAll([classFile], outputDirectory.toPath().resolve('single'), single)
+
+        then: 'the projecting thread reads the nested declarations itself'
+        Files.readString(outputDirectory.toPath().resolve('single/dummy/Large.java')) == source
+
+        cleanup:
+        pool?.shutdownNow()
+        single?.shutdownNow()
+    }
+
+    @Tag('benchmark')
+    def "parallel projection throughput scales with the number of cores"() {
+        given:
+        List<Path> classFiles = compileFixtures(400)
+        int cores = Runtime.runtime.availableProcessors()
+        List<Integer> parallelisms = []
+        for (int parallelism = 1; parallelism < cores; parallelism *= 2) parallelisms << parallelism
+        parallelisms << cores
+        Map<String, String> expected = null
+
+        when:
+        def throughput = parallelisms.collectEntries { parallelism ->
+            ForkJoinPool pool = new ForkJoinPool(parallelism)
+            try {
+                Path directory = outputDirectory.toPath().resolve("benchmark-$parallelism")
+                new SourceProjector(ProjectionPolicy.documentation()).projectAll(classFiles, directory, pool)
+                directory.toFile().deleteDir()
+                long start = System.nanoTime()
+                new SourceProjector(ProjectionPolicy.documentation()).projectAll(classFiles, directory, pool)
+                double seconds = (System.nanoTime() - start) / 1e9d
+                Map<String, String> projected = sources(directory)
+                if (expected == null) expected = projected
+                assert projected == expected
+                [(parallelism): classFiles.size() / seconds]
+            } finally {
+                pool.shutdownNow()
+            }
+        }
+        then: 'every core added beyond the first projects more classes per second'
+        throughput.size() == parallelisms.size()
+        parallelisms.size() == 1 || throughput[cores] > throughput[1] * 1.5
+    }
+
+    // Generic classes sharing one hierarchy and a JDK nested type whose InnerClasses entry is removed, so that every
+    // projection resolves the same referenced declarations through the shared caches.
+    private List<Path> compileFixtures(int count) {
+        Map<String, String> sources = [
+                'dummy.Base': '''
+                    package dummy;
+                    public abstract class Base<T> {
+                        public abstract T value();
+                        public <R extends Comparable<R>> java.util.List<R> sorted(java.util.Map<T, R> values) { return null; }
+                    }
+                '''
+        ]
+        (0..<count).each { index ->
+            sources["dummy.Fixture$index".toString()] = """
+                package dummy;
+                public class Fixture$index extends Base<String> {
+                    public String value() { return null; }
+                    public java.util.Map.Entry<String, Integer> entry$index() { return null; }
+                    public static class Nested$index<E extends java.util.List<String>> {
+                        public E element() { return null; }
+                    }
+                }
+            """.toString()
+        }
+        compile(sources, 'dummy.Base')
+        List<Path> result = (0..<count).collect { file.toPath().resolveSibling("Fixture${it}.class") }
+        result.each { classFile ->
+            def node = new ClassNode()
+            new ClassReader(Files.readAllBytes(classFile)).accept(node, 0)
+            node.innerClasses.removeIf { it.name == 'java/util/Map$Entry' }
+            def writer = new ClassWriter(0)
+            node.accept(writer)
+            Files.write(classFile, writer.toByteArray())
+        }
+        result
+    }
+
+    private static String internalName(Path classFile) {
+        'dummy/' + classFile.fileName.toString() - '.class'
+    }
+
+    private static Map<String, String> sources(Path directory) {
+        Files.walk(directory).withCloseable { paths ->
+            paths.filter { Files.isRegularFile(it) }
+                    .sorted()
+                    .toList()
+                    .collectEntries { [(directory.relativize(it).toString().replace(File.separatorChar, '/' as char)): Files.readString(it)] }
+        }
+    }
+}
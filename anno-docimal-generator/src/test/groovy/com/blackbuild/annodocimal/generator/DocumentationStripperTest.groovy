@@ -0,0 +1,389 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.generator
+
+import com.blackbuild.annodocimal.ast.extractor.ClassDocExtractor
+import org.codehaus.groovy.ast.ClassHelper
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.jar.JarEntry
+import java.util.jar.JarFile
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+import java.util.zip.ZipFile
+
+class DocumentationStripperTest extends ClassGeneratingTest {
+
+    def "stripped JARs carry no documentation and project like the original with their documentation JAR"() {
+        given:
+        createClass('''
+            package stripped
+
+            import com.blackbuild.annodocimal.annotations.InlineJavadocs
+
+            /** A documented class. */
+            @InlineJavadocs
+            class StrippedFixture {
+                /** A documented property. */
+                String title
+
+                /** Creates the fixture. */
+                StrippedFixture(String title, int[] values) {}
+
+                /** Counts the names. */
+                List<String> names(Map<String, Integer> counts) { null }
+
+                /** An inner class. */
+                class Inner {
+                    /** Creates the inner class. */
+                    Inner(long value) {}
+                }
+            }
+        ''')
+        createClass('''
+            package stripped
+
+            class Undocumented {
+                void run() {}
+            }
+        ''')
+        Path jar = jar(outputDirectory.toPath(), 'classes.jar',
+                ['stripped/Undocumented__annodoc.properties': 'classDoc=Documented by its resource.\n'])
+        Path strippedJar = outputDirectory.toPath().resolve('libs/stripped.jar')
+        Path documentationJar = outputDirectory.toPath().resolve('libs/documentation.jar')
+
+        when:
+        List<String> written = DocumentationStripper.stripJar(jar, strippedJar, documentationJar)
+        Map<String, byte[]> original = entries(jar)
+        Map<String, byte[]> stripped = entries(strippedJar)
+        Map<String, String> documentation = entries(documentationJar)
+                .collectEntries { name, bytes -> [(name): new String(bytes, StandardCharsets.ISO_8859_1)] }
+
+        then: 'class files keep their order but lose their carriers, and resources move to the documentation JAR'
+        written == ['stripped/StrippedFixture__annodoc.properties', 'stripped/StrippedFixture$Inner__annodoc.properties',
+                    'stripped/Undocumented__annodoc.properties']
+        documentation.keySet().toList() == written
+        stripped.keySet().toList() == original.keySet().toList() - 'stripped/Undocumented__annodoc.properties'
+        stripped.every { name, bytes ->
+            String content = new String(bytes, StandardCharsets.ISO_8859_1)
+            !content.contains('AnnoDoc') && !content.contains('GroovyPropertyDocumentation')
+                    && !content.contains('A documented class.')
+        }
+        stripped['stripped/Undocumented.class'] == original['stripped/Undocumented.class']
+        stripped['stripped/StrippedFixture.class'].length < original['stripped/StrippedFixture.class'].length
+
+        and: 'the documentation of the property is written for its accessors'
+        properties(documentation['stripped/StrippedFixture__annodoc.properties']) == [
+                'classDoc'                                      : 'A documented class.',
+                'field.title'                                   : 'A documented property.',
+                'method.<init>(java.lang.String,int[])'         : 'Creates the fixture.',
+                'method.getTitle()'                             : 'A documented property.',
+                'method.names(java.util.Map)'                   : 'Counts the names.',
+                'method.setTitle(java.lang.String)'             : 'A documented property.'
+        ]
+        properties(documentation['stripped/StrippedFixture$Inner__annodoc.properties']) == [
+                'classDoc'             : 'An inner class.',
+                'method.<init>(long)'  : 'Creates the inner class.'
+        ]
+        documentation['stripped/Undocumented__annodoc.properties'] == 'classDoc=Documented by its resource.\n'
+
+        when: 'the original and the stripped JAR are projected'
+        Path originalSources = outputDirectory.toPath().resolve('libs/original-sources.jar')
+        Path strippedSources = outputDirectory.toPath().resolve('libs/stripped-sources.jar')
+        new SourceProjector(ProjectionPolicy.documentation()).projectJar(jar, originalSources)
+        def projector = SourceProjector.builder(ProjectionPolicy.documentation())
+                .documentationClasspath([documentationJar])
+                .build()
+        projector.projectJar(strippedJar, strippedSources)
+
+        then: 'the documentation JAR is released when the call ends'
+        !projector.@documentationClasspath.hasOpenJars()
+        texts(strippedSources) == texts(originalSources)
+        texts(strippedSources)['stripped/StrippedFixture.java'].contains('''  /**
+   * A documented property.
+   */
+  @Generated
+  public String getTitle()''')
+
+        when: 'documentation is extracted from classes loaded from both JARs'
+        def loader = new URLClassLoader([strippedJar.toUri().toURL(), documentationJar.toUri().toURL()] as URL[],
+                getClass().classLoader)
+        def fixture = ClassHelper.make(loader.loadClass('stripped.StrippedFixture'))
+
+        then:
+        ClassDocExtractor.extractDocumentation(fixture) == 'A documented class.'
+        ClassDocExtractor.extractDocumentation(fixture.getField('title')) == 'A documented property.'
+        ClassDocExtractor.extractDocumentation(fixture.getDeclaredMethods('getTitle')[0]) == 'A documented property.'
+
+        when: 'stripping is repeated, replacing its input'
+        byte[] firstStripped = Files.readAllBytes(strippedJar)
+        byte[] firstDocumentation = Files.readAllBytes(documentationJar)
+        Files.copy(jar, strippedJar, StandardCopyOption.REPLACE_EXISTING)
+        DocumentationStripper.stripJar(strippedJar, strippedJar, documentationJar)
+
+        then: 'both outputs are byte-identical'
+        Files.readAllBytes(strippedJar) == firstStripped
+        Files.readAllBytes(documentationJar) == firstDocumentation
+
+        when: 'the replaced JARs are projected again by the same projector'
+        Files.delete(strippedSources)
+        projector.projectJar(strippedJar, strippedSources)
+
+        then:
+        texts(strippedSources) == texts(originalSources)
+        Files.list(strippedJar.parent).withCloseable { it.toList() }*.fileName*.toString().sort() ==
+                ['documentation.jar', 'original-sources.jar', 'stripped-sources.jar', 'stripped.jar']
+
+        cleanup:
+        loader?.close()
+    }
+
+    def "documentation that takes precedence over a runtime Groovydoc stays in the class file"() {
+        given:
+        createClass('''
+            package stripped
+
+            import com.blackbuild.annodocimal.annotations.AnnoDoc
+
+            class BothCarriers {
+                @AnnoDoc('Canonical documentation.')
+                @Groovydoc('/**@ Runtime documentation. */')
+                void both() {}
+
+                @AnnoDoc('Moved documentation.')
+                void canonicalOnly() {}
+            }
+        ''')
+        Path jar = jar(outputDirectory.toPath(), 'classes.jar', [:])
+        Path strippedJar = outputDirectory.toPath().resolve('libs/stripped.jar')
+        Path documentationJar = outputDirectory.toPath().resolve('libs/documentation.jar')
+        Path originalSources = outputDirectory.toPath().resolve('libs/original-sources.jar')
+        Path strippedSources = outputDirectory.toPath().resolve('libs/stripped-sources.jar')
+
+        when:
+        DocumentationStripper.stripJar(jar, strippedJar, documentationJar)
+        String stripped = new String(entries(strippedJar)['stripped/BothCarriers.class'], StandardCharsets.ISO_8859_1)
+        new SourceProjector(ProjectionPolicy.documentation()).projectJar(jar, originalSources)
+        SourceProjector.builder(ProjectionPolicy.documentation())
+                .documentationClasspath([documentationJar])
+                .build()
+                .projectJar(strippedJar, strippedSources)
+
+        then:
+        stripped.contains('Canonical documentation.')
+        !stripped.contains('Moved documentation.')
+        properties(new String(entries(documentationJar)['stripped/BothCarriers__annodoc.properties'],
+                StandardCharsets.ISO_8859_1)) == ['method.canonicalOnly()': 'Moved documentation.']
+        texts(strippedSources) == texts(originalSources)
+        texts(strippedSources)['stripped/BothCarriers.java'].contains('Canonical documentation.')
+    }
+
+    def "the documentation of bundles moves to the documentation JAR as resources of their classes"() {
+        given:
+        createClass('''
+            package stripped
+
+            class Bundled {
+                void run() {}
+            }
+        ''')
+        createClass('''
+            package stripped
+
+            import com.blackbuild.annodocimal.annotations.AnnoDoc
+
+            @AnnoDoc('Documented by its carrier.')
+            class Carried {
+                void run() {}
+            }
+        ''')
+        Path jar = jar(outputDirectory.toPath(), 'classes.jar', [
+                'stripped/Resourced__annodoc.properties': 'classDoc=Documented by its resource.\n',
+                'META-INF/annodocimal/b.idx'            : bundle(['stripped.Bundled': [classDoc: 'Shadowed by a.']]),
+                'META-INF/annodocimal/a.idx'            : bundle([
+                        'stripped.Bundled'  : [classDoc: 'Documented by its bundle.', 'method.run()': 'Runs.'],
+                        'stripped.Carried'  : ['method.run()': 'Runs the carried class.'],
+                        'stripped.Resourced': [classDoc: 'Shadowed by the resource.']])])
+        Path strippedJar = outputDirectory.toPath().resolve('libs/stripped.jar')
+        Path documentationJar = outputDirectory.toPath().resolve('libs/documentation.jar')
+
+        when:
+        List<String> written = DocumentationStripper.stripJar(jar, strippedJar, documentationJar)
+        Map<String, String> documentation = entries(documentationJar)
+                .collectEntries { name, bytes -> [(name): new String(bytes, StandardCharsets.ISO_8859_1)] }
+
+        then: 'the stripped JAR carries no bundle'
+        entries(strippedJar).keySet().every { !it.startsWith('META-INF/annodocimal/') && !it.endsWith('.properties') }
+        written == ['stripped/Bundled__annodoc.properties', 'stripped/Carried__annodoc.properties',
+                    'stripped/Resourced__annodoc.properties']
+        properties(documentation['stripped/Bundled__annodoc.properties']) ==
+                [classDoc: 'Documented by its bundle.', 'method.run()': 'Runs.']
+        properties(documentation['stripped/Carried__annodoc.properties']) ==
+                [classDoc: 'Documented by its carrier.', 'method.run()': 'Runs the carried class.']
+        documentation['stripped/Resourced__annodoc.properties'] == 'classDoc=Documented by its resource.\n'
+
+        when: 'documentation is extracted from classes loaded from both JARs'
+        def loader = new URLClassLoader([strippedJar.toUri().toURL(), documentationJar.toUri().toURL()] as URL[],
+                getClass().classLoader)
+
+        then:
+        ClassDocExtractor.extractDocumentation(ClassHelper.make(loader.loadClass('stripped.Bundled'))) ==
+                'Documented by its bundle.'
+
+        cleanup:
+        loader?.close()
+    }
+
+    def "stripping drops the signature of a signed JAR"() {
+        given:
+        createClass('''
+            package stripped
+
+            import com.blackbuild.annodocimal.annotations.AnnoDoc
+
+            @AnnoDoc('A signed class.')
+            class Signed {}
+        ''')
+        String digest = Base64.encoder.encodeToString(MessageDigest.getInstance('SHA-256')
+                .digest(Files.readAllBytes(outputDirectory.toPath().resolve('stripped/Signed.class'))))
+        Path jar = jar(outputDirectory.toPath(), 'classes.jar', [
+                'META-INF/MANIFEST.MF': "Manifest-Version: 1.0\r\nCreated-By: test\r\n\r\n" +
+                        "Name: stripped/Signed.class\r\nSHA-256-Digest: $digest\r\n\r\n",
+                'META-INF/SIGNER.SF'  : "Signature-Version: 1.0\r\nSHA-256-Digest-Manifest: $digest\r\n\r\n",
+                'META-INF/SIGNER.RSA' : 'signature block',
+                'META-INF/SIG-OTHER.SIG' : 'other signature block'])
+        Path strippedJar = outputDirectory.toPath().resolve('libs/stripped.jar')
+        Path documentationJar = outputDirectory.toPath().resolve('libs/documentation.jar')
+
+        when:
+        DocumentationStripper.stripJar(jar, strippedJar, documentationJar)
+        Manifest manifest = new JarFile(strippedJar.toFile()).withCloseable { it.manifest }
+        def loader = new URLClassLoader([strippedJar.toUri().toURL()] as URL[], getClass().classLoader)
+
+        then: 'signature files and entry digests are gone, the other manifest attributes stay'
+        entries(strippedJar).keySet().toList() == ['stripped/Signed.class', 'META-INF/MANIFEST.MF']
+        manifest.mainAttributes.getValue('Created-By') == 'test'
+        manifest.entries.isEmpty()
+
+        and: 'the rewritten class loads'
+        loader.loadClass('stripped.Signed').name == 'stripped.Signed'
+
+        cleanup:
+        loader?.close()
+    }
+
+    def "stripping fails for unreadable class files without replacing its outputs"() {
+        given:
+        Path jar = jar(outputDirectory.toPath(), 'broken.jar', ['broken/Broken.class': 'no class file'])
+        Path strippedJar = outputDirectory.toPath().resolve('libs/stripped.jar')
+        Path documentationJar = outputDirectory.toPath().resolve('libs/documentation.jar')
+        Files.createDirectories(strippedJar.parent)
+        Files.writeString(strippedJar, 'previous')
+
+        when:
+        DocumentationStripper.stripJar(jar, strippedJar, documentationJar)
+
+        then:
+        SourceProjectionException exception = thrown()
+        exception.inputPath == Path.of('broken/Broken.class')
+        Files.readString(strippedJar) == 'previous'
+        !Files.exists(documentationJar)
+        Files.list(strippedJar.parent).withCloseable { it.toList() } == [strippedJar]
+    }
+
+    // The class files below a directory in path order, followed by the given extra entries.
+    private static Path jar(Path classes, String name, Map<String, String> extraEntries) {
+        Path result = classes.resolve(name)
+        List<Path> classFiles = Files.walk(classes).withCloseable { paths ->
+            paths.filter { Files.isRegularFile(it) && it.toString().endsWith('.class') }.sorted().toList()
+        }
+        new JarOutputStream(Files.newOutputStream(result)).withCloseable { output ->
+            classFiles.each { classFile ->
+                output.putNextEntry(new JarEntry(classes.relativize(classFile).toString().replace('\\', '/')))
+                output.write(Files.readAllBytes(classFile))
+            }
+            extraEntries.each { entryName, content ->
+                output.putNextEntry(new JarEntry(entryName))
+                output.write(content.getBytes(StandardCharsets.ISO_8859_1))
+            }
+        }
+        result
+    }
+
+    // A documentation bundle in the layout of the annotation processor, as an ISO-8859-1 string of its bytes.
+    private static String bundle(Map<String, Map<String, String>> classes) {
+        def sorted = new TreeMap<byte[], byte[]>({ byte[] a, byte[] b -> Arrays.compareUnsigned(a, b) } as Comparator)
+        classes.each { name, documentation ->
+            def data = new ByteArrayOutputStream()
+            new DataOutputStream(data).withCloseable { output ->
+                output.writeInt(documentation.size())
+                new TreeMap(documentation).each { key, value ->
+                    [key, value].each {
+                        byte[] bytes = it.getBytes(StandardCharsets.UTF_8)
+                        output.writeInt(bytes.length)
+                        output.write(bytes)
+                    }
+                }
+            }
+            sorted[name.getBytes(StandardCharsets.UTF_8)] = data.toByteArray()
+        }
+        def table = new ByteArrayOutputStream()
+        def content = new ByteArrayOutputStream()
+        int contentStart = 12 + sorted.size() * 16
+        new DataOutputStream(table).withCloseable { output ->
+            output.writeInt(0x41444442)
+            output.writeInt(1)
+            output.writeInt(sorted.size())
+            sorted.each { name, data ->
+                [name, data].each { byte[] part ->
+                    output.writeInt(contentStart + content.size())
+                    output.writeInt(part.length)
+                    content.write(part)
+                }
+            }
+        }
+        content.writeTo(table)
+        new String(table.toByteArray(), StandardCharsets.ISO_8859_1)
+    }
+
+    private static Map<String, byte[]> entries(Path archive) {
+        new ZipFile(archive.toFile()).withCloseable { zip ->
+            zip.entries().toList().collectEntries { [(it.name): zip.getInputStream(it).bytes] }
+        }
+    }
+
+    private static Map<String, String> texts(Path archive) {
+        entries(archive).collectEntries { name, bytes -> [(name): new String(bytes, StandardCharsets.UTF_8)] }
+    }
+
+    private static Map<String, String> properties(String text) {
+        def properties = new Properties()
+        properties.load(new StringReader(text))
+        properties as Map<String, String>
+    }
+}
@@ -206,4 +206,153 @@ public class JavaDeclarationFixture<T extends Number & Comparable<T>> {
         and:
         projection.contains('record PackageRecordFixture(int value)')
     }
+
+    def "record bodies keep only constructs that records permit"() {
+        given:
+        String fixture = 'java-record-body'
+        compile([
+                'contract.RecordBodyFixture': '''
+                    package contract;
+
+                    import java.util.List;
+
+                    public record RecordBodyFixture<T>(byte flags, T value, List<? extends T> values) {
+                        public static final String NAME = "body";
+
+                        public RecordBodyFixture {
+                            values = List.copyOf(values);
+                        }
+
+                        public RecordBodyFixture(T value) {
+                            this((byte) 0, value, List.of());
+                        }
+
+                        private RecordBodyFixture(List<? extends T> values) {
+                            this((byte) 1, null, values);
+                        }
+                    }
+                '''
+        ], 'contract.RecordBodyFixture')
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.builder()
+                .includedVisibilities(EnumSet.allOf(DeclarationVisibility))
+                .build())
+
+        when:
+        String projection = projector.projectToText(file.toPath())
+
+        then:
+        assertProjectionCompiles(compiler, fixture, 'contract.RecordBodyFixture', projection)
+
+        and: 'component fields stay implicit and other constructors delegate to the canonical one'
+        projection.contains('public record RecordBodyFixture<T>(byte flags, T value, List<? extends T> values) {')
+        projection.contains('public static final String NAME = "body";')
+        !projection.contains('private final')
+        projection.contains('''  public RecordBodyFixture(byte flags, T value, List<? extends T> values) {
+    this.flags = flags;
+    this.value = value;
+    this.values = values;
+  }''')
+        projection.count('this((byte) 0, (T) null, (List<? extends T>) null);') == 2
+    }
+
+    def "annotations and documentation of record components stay on the components"() {
+        given:
+        String fixture = 'java-record-components'
+        compile([
+                'contract.ComponentRecordFixture': '''
+                    package contract;
+
+                    import com.blackbuild.annodocimal.annotations.AnnoDoc;
+                    import java.lang.annotation.ElementType;
+                    import java.lang.annotation.Retention;
+                    import java.lang.annotation.RetentionPolicy;
+                    import java.lang.annotation.Target;
+                    import java.util.List;
+
+                    @AnnoDoc("Canonical record documentation")
+                    public record ComponentRecordFixture(
+                            @AnnoDoc("Canonical component documentation") @FieldMarker("name") String name,
+                            @ComponentMarker @SharedMarker List<String> values,
+                            String @TypeMarker [] aliases) {
+                        @Retention(RetentionPolicy.RUNTIME)
+                        @Target(ElementType.FIELD)
+                        public @interface FieldMarker {
+                            String value();
+                        }
+
+                        @Retention(RetentionPolicy.RUNTIME)
+                        @Target(ElementType.RECORD_COMPONENT)
+                        public @interface ComponentMarker {}
+
+                        @Retention(RetentionPolicy.RUNTIME)
+                        @Target({ElementType.FIELD, ElementType.TYPE_USE})
+                        public @interface SharedMarker {}
+
+                        @Retention(RetentionPolicy.RUNTIME)
+                        @Target(ElementType.TYPE_USE)
+                        public @interface TypeMarker {}
+                    }
+                '''
+        ], 'contract.ComponentRecordFixture')
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+
+        when:
+        String projection = projector.projectToText(file.toPath())
+
+        then:
+        projector.projectToText(file.toPath()) == projection
+        assertProjectionCompiles(compiler, fixture, 'contract.ComponentRecordFixture', projection)
+
+        and: 'field, component, and type annotations are written once on their component'
+        projection.contains('public record ComponentRecordFixture('
+                + '@ComponentRecordFixture.FieldMarker("name") String name, '
+                + '@ComponentRecordFixture.ComponentMarker @ComponentRecordFixture.SharedMarker List<String> values, '
+                + 'String @ComponentRecordFixture.TypeMarker [] aliases) {')
+
+        and: 'the documentation of the component field documents the component'
+        projection.contains(''' * Canonical record documentation
+ *
+ * @param name Canonical component documentation
+ */''')
+    }
+
+    def "hundreds of nested records are emitted in one pass"() {
+        given:
+        String fixture = 'java-record-model'
+        int recordCount = 300
+        String nestedRecords = (0..<recordCount).collect { int index ->
+            String previous = index == 0 ? 'String' : "Node${index - 1}<T>"
+            """
+                        public record Node${index}<T extends Comparable<T>>(T value, ${previous} previous,
+                                Map<String, T>[] entries) implements Serializable {}
+            """
+        }.join('')
+        compile([
+                'contract.RecordModelFixture': """
+                    package contract;
+
+                    import java.io.Serializable;
+                    import java.util.List;
+                    import java.util.Map;
+
+                    public final class RecordModelFixture {
+                        ${nestedRecords}
+                    }
+                """
+        ], 'contract.RecordModelFixture')
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+
+        when:
+        String projection = projector.projectToText(file.toPath())
+
+        then:
+        projector.projectToText(file.toPath()) == projection
+        assertProjectionCompiles(compiler, fixture, 'contract.RecordModelFixture', projection)
+
+        and:
+        projection.count(' static record Node') == recordCount
+        projection.contains('public static record Node0<T extends Comparable<T>>(T value, String previous, Map<String, T>[] entries) implements Serializable {')
+        projection.contains("public static record Node${recordCount - 1}<T extends Comparable<T>>(T value, Node${recordCount - 2}<T> previous, Map<String, T>[] entries) implements Serializable {")
+        !projection.contains('AnnoDocimalRecord')
+    }
 }
@@ -23,6 +23,12 @@
  */
 package com.blackbuild.annodocimal.generator
 
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Tag
+
+import java.lang.management.ManagementFactory
+
 class SourceProjectorGroovyTest extends ClassGeneratingTest {
 
     def "Groovy runtime scaffolding is optional while generated language APIs remain visible"() {
@@ -130,4 +136,38 @@ public class GroovyFixture<T> implements GroovyObject {
 }
 '''
     }
+
+    @Tag('benchmark')
+    def "the projected class model of a large Groovy class allocates less than an ASM class node"() {
+        given: 'a Groovy class with 200 documented generic properties and 200 annotated generic methods'
+        createClass('''
+            package dummy
+            class LargeGroovyFixture {
+        ''' + (0..<200).collect { index -> """
+                /** Property $index. */
+                Map<String, List<Integer>> property$index
+                @Deprecated
+                <T extends Comparable<T>> List<T> method$index(T first, Map<String, T> second) { [first] }
+        """ }.join('') + '''
+            }
+        ''')
+        def classFile = new File(outputDirectory, clazz.name.replace('.', '/') + '.class').toPath()
+        byte[] bytecode = classFile.toFile().bytes
+        def threads = ManagementFactory.threadMXBean as com.sun.management.ThreadMXBean
+        def allocatedPerRun = { Closure<?> run ->
+            100.times { run() }
+            long before = threads.currentThreadAllocatedBytes
+            500.times { run() }
+            (threads.currentThreadAllocatedBytes - before).intdiv(500)
+        }
+
+        when:
+        long classNode = allocatedPerRun {
+            new ClassReader(bytecode).accept(new ClassNode(), ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES)
+        }
+        long projectedClass = allocatedPerRun { ProjectedClass.read(bytecode) }
+
+        then: 'the slim model needs at most 85% of the class node, about 255 KB instead of 333 KB when introduced'
+        projectedClass < classNode * 0.85
+    }
 }
@@ -29,10 +29,21 @@ import org.objectweb.asm.ClassVisitor
 import org.objectweb.asm.ClassWriter
 import org.objectweb.asm.MethodVisitor
 import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
 import spock.lang.Issue
+import spock.lang.Tag
 
+import java.lang.management.ManagementFactory
 import java.nio.charset.StandardCharsets
 import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import java.util.zip.ZipFile
 
 class SourceProjectorTest extends JavaClassGeneratingTest {
 
@@ -102,6 +113,827 @@ public class ProjectionFixture {
         unrelated.text == 'untouched'
     }
 
+    def "documentation line endings are normalized while the source is written"() {
+        given:
+        compile(['dummy.LineEndingFixture': '''
+            package dummy;
+            import com.blackbuild.annodocimal.annotations.AnnoDoc;
+            @AnnoDoc("First line\\r\\nsecond line\\rthird line")
+            public record LineEndingFixture(String value) {}
+        '''], 'dummy.LineEndingFixture')
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+        File destination = new File(outputDirectory, 'projection-output')
+
+        when:
+        String source = projector.projectToText(file.toPath())
+        def written = projector.projectToDirectory(file.toPath(), destination.toPath())
+
+        then:
+        Files.readString(written, StandardCharsets.UTF_8) == source
+        !source.contains('\r')
+        source.contains('''/**
+ * First line
+ * second line
+ * third line
+ */
+public record LineEndingFixture(String value) {
+  public LineEndingFixture(String value) {
+    this.value = value;
+  }
+''')
+    }
+
+    def "documentation-properties resources document declarations without documentation annotations"() {
+        given:
+        compile(['dummy.ResourceFixture': '''
+            package dummy;
+            import com.blackbuild.annodocimal.annotations.AnnoDoc;
+            public class ResourceFixture {
+                public String name;
+                public ResourceFixture(String name, int[] values) {}
+                public void method(java.util.List<String> values) {}
+                @AnnoDoc("Annotated method.")
+                public void annotated() {}
+                public class Inner {
+                    public Inner(long value) {}
+                }
+            }
+        '''], 'dummy.ResourceFixture')
+        Path classFile = file.toPath()
+        Files.writeString(classFile.resolveSibling('ResourceFixture__annodoc.properties'), '''\
+classDoc=A documented class.\\nSecond line.
+field.name=A name.
+method.<init>(java.lang.String,int[])=Creates it.
+method.method(java.util.List)=A method.
+method.annotated()=Resource documentation.
+''')
+        Files.writeString(classFile.resolveSibling('ResourceFixture$Inner__annodoc.properties'), '''\
+classDoc=An inner class.
+method.<init>(long)=Creates the inner class.
+''')
+        def cacheDirectory = new File(outputDirectory, 'projection-cache').toPath()
+        def cachedProjector = SourceProjector.builder(ProjectionPolicy.documentation())
+                .projectionCacheDirectory(cacheDirectory).build()
+
+        when:
+        String source = new SourceProjector(ProjectionPolicy.documentation()).projectToText(classFile)
+
+        then:
+        source.contains('''/**
+ * A documented class.
+ * Second line.
+ */
+public class ResourceFixture {
+  /**
+   * A name.
+   */
+  public String name;
+''')
+        source.contains('''  /**
+   * Creates it.
+   */
+  public ResourceFixture(String name, int[] values) {
+''')
+        source.contains('''  /**
+   * A method.
+   */
+  public void method(List<String> values) {
+''')
+
+        and: 'documentation annotations take precedence'
+        source.contains('''  /**
+   * Annotated method.
+   */
+  public void annotated() {
+''')
+
+        and: 'the implicit outer parameter is not part of the key'
+        source.contains('''  /**
+   * An inner class.
+   */
+  public class Inner {
+    /**
+     * Creates the inner class.
+     */
+    public Inner(long value) {
+''')
+
+        when: 'a cached projection is repeated after only a resource changed'
+        cachedProjector.projectToText(classFile)
+        Files.writeString(classFile.resolveSibling('ResourceFixture$Inner__annodoc.properties'),
+                'classDoc=A changed inner class.\n')
+
+        then:
+        cachedProjector.projectToText(classFile).contains('A changed inner class.')
+    }
+
+    def "batch projection writes every root like individual projections"() {
+        given:
+        compile([
+                'dummy.BatchBase': '''
+                    package dummy;
+                    public class BatchBase<T> {
+                        public static class Nested {}
+                        public T value() { return null; }
+                    }
+                ''',
+                'dummy.FirstBatchFixture': '''
+                    package dummy;
+                    public class FirstBatchFixture extends BatchBase<String> {
+                        public BatchBase.Nested first() { return null; }
+                    }
+                ''',
+                'dummy.SecondBatchFixture': '''
+                    package dummy;
+                    public class SecondBatchFixture extends BatchBase<Integer> {
+                        public BatchBase.Nested second() { return null; }
+                    }
+                '''
+        ], 'dummy.FirstBatchFixture')
+        def roots = ['SecondBatchFixture', 'FirstBatchFixture'].collect { file.toPath().resolveSibling("${it}.class") }
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+        def destination = new File(outputDirectory, 'batch-output').toPath()
+
+        when:
+        def written = projector.projectAll(roots, destination)
+
+        then:
+        written == [destination.resolve('dummy/SecondBatchFixture.java'), destination.resolve('dummy/FirstBatchFixture.java')]
+        written.collect { Files.readString(it, StandardCharsets.UTF_8) } == roots.collect { projector.projectToText(it) }
+        Files.readString(written[1]).contains('public BatchBase.Nested first()')
+    }
+
+    def "referenced classpath JARs are resolved through a shared persistent index"() {
+        given:
+        compile([
+                'external.Outer': '''
+                    package external;
+                    public class Outer {
+                        public static class Nested {}
+                    }
+                ''',
+                'dummy.IndexedReferenceFixture': '''
+                    package dummy;
+                    public class IndexedReferenceFixture {
+                        public external.Outer.Nested value() { return null; }
+                    }
+                '''
+        ], 'dummy.IndexedReferenceFixture')
+        def referencedClasses = file.toPath().parent.resolveSibling('external')
+        def jar = new File(outputDirectory, 'libs/referenced.jar').toPath()
+        Files.createDirectories(jar.parent)
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable { output ->
+            Files.list(referencedClasses).sorted().forEach { classFile ->
+                output.putNextEntry(new JarEntry("external/${classFile.fileName}"))
+                output.write(Files.readAllBytes(classFile))
+                output.closeEntry()
+            }
+        }
+        referencedClasses.toFile().deleteDir()
+        def node = new ClassNode()
+        new ClassReader(Files.readAllBytes(file.toPath())).accept(node, 0)
+        node.innerClasses.removeIf { it.name == 'external/Outer$Nested' }
+        def writer = new ClassWriter(0)
+        node.accept(writer)
+        Files.write(file.toPath(), writer.toByteArray())
+        def copy = Files.copy(jar, jar.resolveSibling('copy-of-referenced.jar'))
+        def indexDirectory = new File(outputDirectory, 'index').toPath()
+
+        when:
+        String source = SourceProjector.builder(ProjectionPolicy.documentation())
+                .referencedClasspath([jar])
+                .referencedClassIndexDirectory(indexDirectory)
+                .build()
+                .projectToText(file.toPath())
+        def indexes = { Files.walk(indexDirectory).withCloseable { paths -> paths.filter { it.toString().endsWith('.idx') }.toList() } }
+        def firstIndexes = indexes()
+
+        then:
+        source.contains('public Outer.Nested value()')
+        firstIndexes.size() == 1
+
+        when: 'an identical JAR at another location is projected with the same index directory'
+        String reused = SourceProjector.builder(ProjectionPolicy.documentation())
+                .referencedClasspath([copy])
+                .referencedClassIndexDirectory(indexDirectory)
+                .build()
+                .projectToText(file.toPath())
+
+        then:
+        reused == source
+        indexes() == firstIndexes
+
+        when: 'the JAR is not on the referenced classpath'
+        new SourceProjector(ProjectionPolicy.documentation()).projectToText(file.toPath())
+
+        then:
+        SourceProjectionException exception = thrown()
+        exception.message.contains("Cannot classify referenced declaration containing '\$'")
+    }
+
+    def "persistent referenced-class indexes unused for the retention period are pruned"() {
+        given:
+        compile([
+                'external.First' : 'package external; public class First {}',
+                'external.Second': 'package external; public class Second {}'
+        ], 'external.First')
+        def jar = { String name ->
+            def result = new File(outputDirectory, "libs/${name}.jar").toPath()
+            Files.createDirectories(result.parent)
+            new JarOutputStream(Files.newOutputStream(result)).withCloseable { output ->
+                output.putNextEntry(new JarEntry("external/${name}.class"))
+                output.write(Files.readAllBytes(file.toPath().resolveSibling("${name}.class")))
+                output.closeEntry()
+            }
+            result
+        }
+        def first = jar('First')
+        def second = jar('Second')
+        def indexDirectory = new File(outputDirectory, 'index').toPath()
+        def files = { Files.list(indexDirectory.resolve('v1')).withCloseable { it.toList() }.sort() }
+        def age = { Path path, Duration age -> Files.setLastModifiedTime(path, FileTime.from(Instant.now() - age)) }
+
+        when: 'the files of the first JAR are used after a few days'
+        ReferencedClassIndex.open(first, indexDirectory)
+        def firstFiles = files()
+        firstFiles.each { age(it, Duration.ofDays(3)) }
+        ReferencedClassIndex.open(first, indexDirectory).find('external/First') != null
+
+        then: 'using them refreshes them'
+        firstFiles.every { Files.getLastModifiedTime(it).toInstant() > Instant.now() - Duration.ofDays(1) }
+
+        when: 'they are unused for longer than the retention period when a new index is written'
+        firstFiles.each { age(it, ReferencedClassIndex.RETENTION + Duration.ofDays(1)) }
+        ReferencedClassIndex.open(second, indexDirectory)
+
+        then:
+        files().size() == 2
+        files().intersect(firstFiles).isEmpty()
+
+        and: 'a pruned index is rebuilt when needed'
+        ReferencedClassIndex.open(first, indexDirectory).find('external/First') != null
+        files().size() == 4
+    }
+
+    def "a shared referenced-class metadata cache serves identical JARs to separate projectors"() {
+        given:
+        compile([
+                'external.SharedOuter': '''
+                    package external;
+                    public class SharedOuter {
+                        public static class Nested {}
+                    }
+                ''',
+                'dummy.SharedReferenceFixture': '''
+                    package dummy;
+                    public class SharedReferenceFixture {
+                        public external.SharedOuter.Nested value() { return null; }
+                    }
+                '''
+        ], 'dummy.SharedReferenceFixture')
+        def referencedClasses = file.toPath().parent.resolveSibling('external')
+        def jar = new File(outputDirectory, 'libs/shared.jar').toPath()
+        Files.createDirectories(jar.parent)
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable { output ->
+            Files.list(referencedClasses).sorted().forEach { classFile ->
+                output.putNextEntry(new JarEntry("external/${classFile.fileName}"))
+                output.write(Files.readAllBytes(classFile))
+                output.closeEntry()
+            }
+        }
+        referencedClasses.toFile().deleteDir()
+        def node = new ClassNode()
+        new ClassReader(Files.readAllBytes(file.toPath())).accept(node, 0)
+        node.innerClasses.removeIf { it.name == 'external/SharedOuter$Nested' }
+        def writer = new ClassWriter(0)
+        node.accept(writer)
+        Files.write(file.toPath(), writer.toByteArray())
+        def copy = Files.copy(jar, jar.resolveSibling('copy-of-shared.jar'))
+        def cache = new ReferencedClassMetadataCache(1)
+        def projector = { Path referencedJar, Path indexDirectory ->
+            SourceProjector.builder(ProjectionPolicy.documentation())
+                    .referencedClasspath([referencedJar])
+                    .referencedClassIndexDirectory(indexDirectory)
+                    .referencedClassMetadataCache(cache)
+                    .build()
+        }
+        def firstIndexDirectory = new File(outputDirectory, 'first-index').toPath()
+        def secondIndexDirectory = new File(outputDirectory, 'second-index').toPath()
+
+        when:
+        String source = projector(jar, firstIndexDirectory).projectToText(file.toPath())
+        String shared = projector(copy, secondIndexDirectory).projectToText(file.toPath())
+
+        then: 'the identical copy is served from the metadata indexed for the first JAR'
+        cache.maximumClasses == 1
+        source.contains('public SharedOuter.Nested value()')
+        shared == source
+        Files.exists(firstIndexDirectory)
+        !Files.exists(secondIndexDirectory)
+
+        when:
+        new ReferencedClassMetadataCache(0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "bounded referenced-class caches evict and count their lookups without changing projections"() {
+        given:
+        compile([
+                'external.BoundedOuter': '''
+                    package external;
+                    public class BoundedOuter {
+                        public static class First {}
+                        public static class Second {}
+                        public static class Third {}
+                    }
+                ''',
+                'dummy.BoundedReferenceFixture': '''
+                    package dummy;
+                    public class BoundedReferenceFixture {
+                        public external.BoundedOuter.First first() { return null; }
+                        public external.BoundedOuter.Second second() { return null; }
+                        public external.BoundedOuter.Third third() { return null; }
+                    }
+                '''
+        ], 'dummy.BoundedReferenceFixture')
+        def referencedClasses = file.toPath().parent.resolveSibling('external')
+        def jar = new File(outputDirectory, 'libs/bounded.jar').toPath()
+        Files.createDirectories(jar.parent)
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable { output ->
+            Files.list(referencedClasses).sorted().forEach { classFile ->
+                output.putNextEntry(new JarEntry("external/${classFile.fileName}"))
+                output.write(Files.readAllBytes(classFile))
+                output.closeEntry()
+            }
+        }
+        referencedClasses.toFile().deleteDir()
+        def node = new ClassNode()
+        new ClassReader(Files.readAllBytes(file.toPath())).accept(node, 0)
+        node.innerClasses.removeIf { it.name.startsWith('external/BoundedOuter$') }
+        def writer = new ClassWriter(0)
+        node.accept(writer)
+        Files.write(file.toPath(), writer.toByteArray())
+        def projector = { ReferencedClassMetadataCache cache, int maximumReferencedClasses ->
+            SourceProjector.builder(ProjectionPolicy.documentation())
+                    .referencedClasspath([jar])
+                    .referencedClassMetadataCache(cache)
+                    .maximumReferencedClasses(maximumReferencedClasses)
+                    .build()
+        }
+        def large = new ReferencedClassMetadataCache(64)
+        def small = new ReferencedClassMetadataCache(2)
+
+        when:
+        String source = projector(large, 64).projectToText(file.toPath())
+        String again = projector(large, 64).projectToText(file.toPath())
+        String bounded = projector(small, 1).projectToText(file.toPath())
+
+        then: 'the second projector finds every nested declaration in the shared cache'
+        source.contains('public BoundedOuter.Third third()')
+        again == source
+        large.missCount == 3
+        large.hitCount == 3
+        large.evictionCount == 0
+        large.cachedClasses == 3
+
+        and: 'the small cache keeps exactly its maximum, whatever the keys, and evicts the rest'
+        bounded == source
+        small.maximumClasses == 2
+        small.missCount == 3
+        small.cachedClasses == 2
+        small.evictionCount == 1
+
+        when: 'more distinct JARs are looked up than the cache keeps indexes for'
+        def fewJars = new ReferencedClassMetadataCache(16, 2)
+        def variant = { Path target, String marker ->
+            new ZipFile(jar.toFile()).withCloseable { zip ->
+                new JarOutputStream(Files.newOutputStream(target)).withCloseable { output ->
+                    zip.entries().each { entry ->
+                        output.putNextEntry(new JarEntry(entry.name))
+                        output.write(zip.getInputStream(entry).bytes)
+                        output.closeEntry()
+                    }
+                    output.putNextEntry(new JarEntry(marker))
+                    output.closeEntry()
+                }
+            }
+            target
+        }
+        def variants = (0..<4).collect { variant(jar.resolveSibling("variant-${it}.jar"), "marker-${it}") }
+        variants.each { assert fewJars.find(it, null, 'external/BoundedOuter$First') != null }
+
+        then:
+        fewJars.openIndexes() <= 2
+
+        when: 'a JAR changes in place'
+        def changing = new ReferencedClassMetadataCache(16, 4)
+        changing.find(variants[0], null, 'external/BoundedOuter$First')
+        variant(variants[0], 'changed-marker')
+        Files.setLastModifiedTime(variants[0], FileTime.from(Instant.now() + Duration.ofMinutes(1)))
+        changing.find(variants[0], null, 'external/BoundedOuter$First')
+
+        then: 'the index of its previous content is dropped'
+        changing.openIndexes() == 1
+
+        when: 'the owner of a cache clears it'
+        large.clear()
+
+        then: 'nothing is held, while the counts remain'
+        large.cachedClasses == 0
+        large.openIndexes() == 0
+        large.missCount == 3
+        projector(large, 64).projectToText(file.toPath()) == source
+
+        when:
+        SourceProjector.builder(ProjectionPolicy.documentation()).maximumReferencedClasses(0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "referenced declarations outside the classpath are read from the configured resolvers"() {
+        given:
+        compile([
+                'external.ResolvedOuter': '''
+                    package external;
+                    public class ResolvedOuter {
+                        public static class Nested {}
+                    }
+                ''',
+                'dummy.ResolverFixture': '''
+                    package dummy;
+                    public class ResolverFixture {
+                        public external.ResolvedOuter.Nested value() { return null; }
+                        public java.util.Map.Entry<String, String> entry() { return null; }
+                    }
+                '''
+        ], 'dummy.ResolverFixture')
+        def resolverClasses = new File(outputDirectory, 'resolver-classes').toPath()
+        Files.createDirectories(resolverClasses)
+        Files.move(file.toPath().parent.resolveSibling('external'), resolverClasses.resolve('external'))
+        def jar = new File(outputDirectory, 'libs/resolved.jar').toPath()
+        Files.createDirectories(jar.parent)
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable { output ->
+            Files.list(resolverClasses.resolve('external')).sorted().forEach { classFile ->
+                output.putNextEntry(new JarEntry("external/${classFile.fileName}"))
+                output.write(Files.readAllBytes(classFile))
+                output.closeEntry()
+            }
+        }
+        def node = new ClassNode()
+        new ClassReader(Files.readAllBytes(file.toPath())).accept(node, 0)
+        node.innerClasses.clear()
+        def writer = new ClassWriter(0)
+        node.accept(writer)
+        Files.write(file.toPath(), writer.toByteArray())
+        def project = { List<ReferencedClassResolver> resolvers ->
+            SourceProjector.builder(ProjectionPolicy.documentation())
+                    .referencedClassResolvers(resolvers)
+                    .build()
+                    .projectToText(file.toPath())
+        }
+
+        when:
+        String fromDirectory = project([ReferencedClassResolver.directory(resolverClasses), ReferencedClassResolver.platform()])
+        String fromJar = project([ReferencedClassResolver.jar(jar), ReferencedClassResolver.platform()])
+
+        then:
+        fromDirectory.contains('public ResolvedOuter.Nested value()')
+        fromDirectory.contains('public Map.Entry<String, String> entry()')
+        fromJar == fromDirectory
+
+        when: 'the platform is not resolved'
+        project([ReferencedClassResolver.jar(jar)])
+
+        then:
+        SourceProjectionException exception = thrown()
+        exception.message.contains("Cannot classify referenced declaration containing '\$': java.util.Map.Entry")
+
+        when: 'one JAR resolver serves several calls'
+        def jarResolver = ReferencedClassResolver.jar(jar)
+        def projector = SourceProjector.builder(ProjectionPolicy.documentation())
+                .referencedClassResolvers([jarResolver, ReferencedClassResolver.platform()])
+                .build()
+        String first = projector.projectToText(file.toPath())
+        boolean openAfterCall = jarResolver.open
+        def emptyJar = new File(outputDirectory, 'libs/empty.jar').toPath()
+        new JarOutputStream(Files.newOutputStream(emptyJar)).close()
+        Files.move(emptyJar, jar, StandardCopyOption.REPLACE_EXISTING)
+        projector.projectToText(file.toPath())
+
+        then: 'the JAR is released when a call ends and the replaced JAR is read by the next call'
+        first == fromDirectory
+        !openAfterCall
+        !jarResolver.open
+        SourceProjectionException replaced = thrown()
+        replaced.message.contains('external.ResolvedOuter')
+    }
+
+    def "referenced names that cannot be nested are classified without a class-path lookup"() {
+        given:
+        compile([
+                'external.Plain': '''
+                    package external;
+                    public class Plain {
+                        public static class Nested {}
+                    }
+                ''',
+                'dummy.PlainReferenceFixture': '''
+                    package dummy;
+                    public class PlainReferenceFixture {
+                        public external.Plain plain() { return null; }
+                        public external.Plain.Nested nested() { return null; }
+                    }
+                '''
+        ], 'dummy.PlainReferenceFixture')
+        file.toPath().parent.resolveSibling('external').toFile().deleteDir()
+        def unreadable = new File(outputDirectory, 'unreadable.jar')
+        unreadable.text = 'not a JAR'
+
+        when: 'only the InnerClasses entries of the projected class are needed'
+        String source = SourceProjector.builder(ProjectionPolicy.documentation())
+                .referencedClasspath([unreadable.toPath()])
+                .build()
+                .projectToText(file.toPath())
+
+        then:
+        source.contains('public Plain plain()')
+        source.contains('public Plain.Nested nested()')
+    }
+
+    def "projection cache reuses sources until an input or a looked-up declaration changes"() {
+        given:
+        compile([
+                'dummy.CachedBase': '''
+                    package dummy;
+                    public class CachedBase {
+                        public static class Nested {}
+                    }
+                ''',
+                'dummy.CachedFixture': '''
+                    package dummy;
+                    public class CachedFixture {
+                        public CachedBase.Nested nested() { return null; }
+                        public static class Inner {}
+                    }
+                '''
+        ], 'dummy.CachedFixture')
+        def rewrite = { Path classFile, Closure change ->
+            def node = new ClassNode()
+            new ClassReader(Files.readAllBytes(classFile)).accept(node, 0)
+            change(node)
+            def writer = new ClassWriter(0)
+            node.accept(writer)
+            Files.write(classFile, writer.toByteArray())
+        }
+        rewrite(file.toPath()) { ClassNode node -> node.innerClasses.removeIf { it.name == 'dummy/CachedBase$Nested' } }
+        def cacheDirectory = new File(outputDirectory, 'projection-cache').toPath()
+        def lookups = []
+        def cachedProjector = { ProjectionPolicy policy ->
+            SourceProjector.builder(policy).projectionCacheDirectory(cacheDirectory)
+                    .referenceListener { Path classFile, Set<String> names -> lookups << [classFile, names as List] }
+                    .build()
+        }
+        def cacheFiles = { String suffix ->
+            Files.walk(cacheDirectory).withCloseable { paths -> paths.filter { it.toString().endsWith(suffix) }.toList() }
+        }
+        String expected = new SourceProjector(ProjectionPolicy.documentation()).projectToText(file.toPath())
+
+        when:
+        String first = cachedProjector(ProjectionPolicy.documentation()).projectToText(file.toPath())
+
+        then: 'the lookup of the nested declaration is recorded with the projected text'
+        first == expected
+        first.contains('public CachedBase.Nested nested()')
+        cacheFiles('.java').collect { Files.readString(it) } == [expected]
+        cacheFiles('.refs').collect { Files.readString(it) } == ['dummy/CachedBase$Nested']
+        lookups == [[file.toPath(), ['dummy/CachedBase$Nested']]]
+
+        when: 'the cached text is replaced'
+        Files.writeString(cacheFiles('.java')[0], 'cached')
+        def destination = new File(outputDirectory, 'cached-output').toPath()
+        def written = cachedProjector(ProjectionPolicy.documentation()).projectToDirectory(file.toPath(), destination)
+
+        then: 'unchanged inputs are served from the cache, which reports the recorded lookups'
+        Files.readString(written) == 'cached'
+        lookups[1] == [file.toPath(), ['dummy/CachedBase$Nested']]
+
+        when: 'the policy differs'
+        def nestedExcluded = ProjectionPolicy.builder().includeNestedDeclarations(false).build()
+
+        then:
+        cachedProjector(nestedExcluded).projectToText(file.toPath()) ==
+                new SourceProjector(nestedExcluded).projectToText(file.toPath())
+
+        when: 'the metadata of the looked-up declaration changes'
+        rewrite(file.toPath().resolveSibling('CachedBase$Nested.class')) { ClassNode node ->
+            node.interfaces.add('java/io/Serializable')
+        }
+
+        then:
+        cachedProjector(ProjectionPolicy.documentation()).projectToText(file.toPath()) == expected
+
+        when: 'a nested class file of the root changes'
+        cacheFiles('.java').each { Files.writeString(it, 'cached') }
+        rewrite(file.toPath().resolveSibling('CachedFixture$Inner.class')) { ClassNode node ->
+            node.interfaces.add('java/io/Serializable')
+        }
+        String changed = new SourceProjector(ProjectionPolicy.documentation()).projectToText(file.toPath())
+
+        then:
+        changed.contains('public static class Inner implements Serializable')
+        cachedProjector(ProjectionPolicy.documentation()).projectToText(file.toPath()) == changed
+    }
+
+    def "projection cache keys carry the generator version written by the build"() {
+        given:
+        def resource = ProjectionCache.getResourceAsStream(ProjectionCache.GENERATOR_VERSION_RESOURCE)
+
+        expect:
+        resource != null
+        !resource.withCloseable { it.getText('UTF-8') }.isBlank()
+        ProjectionCache.generatorVersion() == ProjectionCache.generatorVersion()
+        !ProjectionCache.generatorVersion().startsWith('unversioned-')
+    }
+
+    def "projection cache entries unused for the retention period are pruned"() {
+        given:
+        compile([
+                'dummy.FirstCached' : 'package dummy; public class FirstCached {}',
+                'dummy.SecondCached': 'package dummy; public class SecondCached {}'
+        ], 'dummy.FirstCached')
+        def first = file.toPath()
+        def second = first.resolveSibling('SecondCached.class')
+        def cacheDirectory = new File(outputDirectory, 'projection-cache').toPath()
+        def cachedProjector = { SourceProjector.builder(ProjectionPolicy.documentation())
+                .projectionCacheDirectory(cacheDirectory).build() }
+        def files = { Files.list(cacheDirectory.resolve('v1')).withCloseable { it.toList() }.sort() }
+        def age = { Path path, Duration age -> Files.setLastModifiedTime(path, FileTime.from(Instant.now() - age)) }
+
+        when: 'the entries of the first class are read after a few days'
+        cachedProjector().projectToText(first)
+        def firstFiles = files()
+        firstFiles.each { age(it, Duration.ofDays(3)) }
+        cachedProjector().projectToText(first)
+
+        then: 'reading them refreshes them'
+        firstFiles.size() == 2
+        firstFiles.every { Files.getLastModifiedTime(it).toInstant() > Instant.now() - Duration.ofDays(1) }
+
+        when: 'they are unused for longer than the retention period when another cache writes an entry'
+        firstFiles.each { age(it, ReferencedClassIndex.RETENTION + Duration.ofDays(1)) }
+        cachedProjector().projectToText(second)
+
+        then:
+        files().size() == 2
+        files().intersect(firstFiles).isEmpty()
+
+        and: 'a pruned entry is projected and written again'
+        cachedProjector().projectToText(first) == new SourceProjector(ProjectionPolicy.documentation()).projectToText(first)
+        files().size() == 4
+    }
+
+    @Tag('benchmark')
+    def "a signature-heavy projection shares its parsed type names"() {
+        given: 'a class whose 300 generic methods and 100 generic fields repeat a handful of signatures'
+        compile('''
+            package dummy;
+            import java.util.List;
+            import java.util.Map;
+            public class SignatureHeavy<T extends Comparable<T>> {
+        ''' + (0..<100).collect { index -> """
+                public Map<String, List<Map.Entry<String, Integer[]>>> field$index;
+        """ }.join('') + (0..<300).collect { index -> """
+                public <K extends Comparable<K>> Map<K, List<Map.Entry<String, T[]>>> method$index(
+                        Map<K, List<Map.Entry<String, T[]>>> first, List<? extends Map<String, List<T>>> second,
+                        T[][] third) throws java.io.IOException {
+                    return null;
+                }
+        """ }.join('') + '''
+            }
+        ''')
+        def projector = new SourceProjector(ProjectionPolicy.documentation())
+        def threads = ManagementFactory.threadMXBean as com.sun.management.ThreadMXBean
+        String expected = projector.projectToText(file.toPath())
+        20.times { assert projector.projectToText(file.toPath()) == expected }
+
+        when:
+        int runs = 100
+        long allocatedBefore = threads.currentThreadAllocatedBytes
+        runs.times { projector.projectToText(file.toPath()) }
+        long allocatedPerProjection = (threads.currentThreadAllocatedBytes - allocatedBefore).intdiv(runs)
+
+        then: 'shared type names keep the projection below the 54-55 MB it allocated with per-use parsing'
+        expected.contains('public <K extends Comparable<K>> Map<K, List<Map.Entry<String, T[]>>> method299(')
+        allocatedPerProjection < 52_000_000
+    }
+
+    @Tag('benchmark')
+    def "projecting nested records allocates the same per record regardless of their number"() {
+        given: 'classes nesting 100 and 400 generic records that refer to each other'
+        List<Integer> counts = [100, 400]
+        compile(counts.collectEntries { int count ->
+            [("dummy.Records$count" as String): '''
+                package dummy;
+                import java.util.List;
+                import java.util.Map;
+            ''' + "public class Records$count {" + (0..<count).collect { index ->
+                String previous = index == 0 ? 'String' : "Node${index - 1}<T>"
+                """
+                public record Node$index<T extends Comparable<T>>(T value, $previous previous,
+                        Map<String, List<T>>[] entries) implements java.io.Serializable {}
+                """
+            }.join('') + '}']
+        }, 'dummy.Records100')
+        def projector = new SourceProjector(ProjectionPolicy.documentation())
+        def threads = ManagementFactory.threadMXBean as com.sun.management.ThreadMXBean
+        Map<Integer, Path> classFiles = counts.collectEntries { int count ->
+            [(count): file.toPath().resolveSibling("Records${count}.class")]
+        }
+        classFiles.values().each { Path classFile -> 10.times { projector.projectToText(classFile) } }
+
+        when:
+        int runs = 20
+        Map<Integer, Long> allocatedPerRecord = classFiles.collectEntries { int count, Path classFile ->
+            long allocatedBefore = threads.currentThreadAllocatedBytes
+            runs.times { projector.projectToText(classFile) }
+            [(count): (threads.currentThreadAllocatedBytes - allocatedBefore).intdiv(runs * count)]
+        }
+
+        then: 'record headers are completed as the source is written, so each record costs about 470 KB at either size'
+        projector.projectToText(classFiles[400]).count(' static record Node') == 400
+        allocatedPerRecord[400] < allocatedPerRecord[100] * 1.25
+    }
+
+    def "JARs are projected directly into deterministic sources JARs"() {
+        given:
+        compile([
+                'dummy.JarBase': '''
+                    package dummy;
+                    public class JarBase<T> {
+                        public static class Nested {}
+                        public T value() { return null; }
+                        public Runnable task() { return new Runnable() { public void run() {} }; }
+                    }
+                ''',
+                'dummy.JarFixture': '''
+                    package dummy;
+                    public class JarFixture extends JarBase<String> {
+                        public JarBase.Nested nested() { return null; }
+                    }
+                ''',
+                'dummy.internal.Hidden': '''
+                    package dummy.internal;
+                    public class Hidden {}
+                '''
+        ], 'dummy.JarFixture')
+        def classes = file.toPath().parent.parent
+        def jar = new File(outputDirectory, 'libs/classes.jar').toPath()
+        Files.createDirectories(jar.parent)
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable { output ->
+            output.putNextEntry(new JarEntry('META-INF/versions/11/dummy/JarFixture.class'))
+            output.write(Files.readAllBytes(file.toPath()))
+            Files.walk(classes).withCloseable { paths ->
+                paths.filter { Files.isRegularFile(it) && it.toString().endsWith('.class') }.sorted().forEach { classFile ->
+                    output.putNextEntry(new JarEntry(classes.relativize(classFile).toString().replace('\\', '/')))
+                    output.write(Files.readAllBytes(classFile))
+                }
+            }
+        }
+        SourceProjector projector = new SourceProjector(ProjectionPolicy.documentation())
+        def sourcesJar = new File(outputDirectory, 'libs/classes-sources.jar').toPath()
+        def readEntries = { Path archive ->
+            new ZipFile(archive.toFile()).withCloseable { zip ->
+                zip.entries().toList().collectEntries { [(it.name): zip.getInputStream(it).getText('UTF-8')] }
+            }
+        }
+
+        when:
+        def written = projector.projectJar(jar, sourcesJar)
+        byte[] first = Files.readAllBytes(sourcesJar)
+        Thread.sleep(2000)
+        projector.projectJar(jar, sourcesJar)
+
+        then: 'only top-level classes are projected, in entry order and byte-identical across runs'
+        written == ['dummy/JarBase.java', 'dummy/JarFixture.java', 'dummy/internal/Hidden.java']
+        Files.readAllBytes(sourcesJar) == first
+        readEntries(sourcesJar) == [
+                'dummy/JarBase.java': projector.projectToText(classes.resolve('dummy/JarBase.class')),
+                'dummy/JarFixture.java': projector.projectToText(file.toPath()),
+                'dummy/internal/Hidden.java': projector.projectToText(classes.resolve('dummy/internal/Hidden.class'))
+        ]
+
+        when:
+        written = projector.projectJar(jar, { !it.startsWith('dummy/internal/') }, sourcesJar)
+
+        then:
+        written == ['dummy/JarBase.java', 'dummy/JarFixture.java']
+        readEntries(sourcesJar).keySet() == written as Set
+        Files.list(sourcesJar.parent).withCloseable { it.toList() }.sort() == [jar, sourcesJar].sort()
+    }
+
     def "documentation policy selects declarations and retains signature closure"() {
         given:
         compile('''
@@ -34,10 +34,14 @@ class SupportedProjectionApiBaselineTest extends Specification {
 
     private static final List<Class<?>> SUPPORTED_TYPES = [
             SourceProjector,
+            SourceProjector.Builder,
             ProjectionPolicy,
             ProjectionPolicy.Builder,
             DeclarationVisibility,
-            SourceProjectionException
+            SourceProjectionException,
+            ReferencedClassMetadataCache,
+            ReferencedClassResolver,
+            DocumentationStripper
     ]
 
     def "the supported projection API matches its checked-in compatibility baseline"() {
@@ -75,8 +79,27 @@ class SupportedProjectionApiBaselineTest extends Specification {
         where:
         operation << [
                 { new SourceProjector(null) },
+                { SourceProjector.builder(null) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).referencedClasspath([null]) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).referencedClassIndexDirectory(null) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).projectionCacheDirectory(null) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).referencedClassMetadataCache(null) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).referencedClassResolvers(null) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).referencedClassResolvers([null]) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).documentationClasspath(null) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).documentationClasspath([null]) },
+                { SourceProjector.builder(ProjectionPolicy.documentation()).referenceListener(null) },
+                { ReferencedClassResolver.directory(null) },
+                { ReferencedClassResolver.jar(null) },
+                { ReferencedClassResolver.classLoader(null) },
+                { new SourceProjector(ProjectionPolicy.documentation()).projectAll([], Path.of('sources'), null) },
+                { new SourceProjector(ProjectionPolicy.documentation()).projectJar(null, Path.of('sources.jar')) },
+                { new SourceProjector(ProjectionPolicy.documentation()).projectJar(Path.of('classes.jar'), null, Path.of('sources.jar')) },
                 { ProjectionPolicy.builder().includedVisibilities(null) },
-                { ProjectionPolicy.builder().includedVisibilities([null]) }
+                { ProjectionPolicy.builder().includedVisibilities([null]) },
+                { DocumentationStripper.stripJar(null, Path.of('stripped.jar'), Path.of('documentation.jar')) },
+                { DocumentationStripper.stripJar(Path.of('classes.jar'), null, Path.of('documentation.jar')) },
+                { DocumentationStripper.stripJar(Path.of('classes.jar'), Path.of('stripped.jar'), null) }
         ]
     }
 
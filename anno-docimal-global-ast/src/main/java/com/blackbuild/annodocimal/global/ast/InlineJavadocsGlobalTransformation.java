@@ -24,7 +24,9 @@
 package com.blackbuild.annodocimal.global.ast;
 
 import com.blackbuild.annodocimal.ast.InlineJavadocsTransformation;
+import groovy.transform.CompilationUnitAware;
 import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilePhase;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.transform.ASTTransformation;
@@ -37,10 +39,15 @@ import org.codehaus.groovy.transform.GroovyASTTransformation;
  * the class path and module path.</p>
  */
 @GroovyASTTransformation(phase = CompilePhase.SEMANTIC_ANALYSIS)
-public class InlineJavadocsGlobalTransformation implements ASTTransformation {
+public class InlineJavadocsGlobalTransformation implements ASTTransformation, CompilationUnitAware {
 
     private final InlineJavadocsTransformation delegate = new InlineJavadocsTransformation();
 
+    @Override
+    public void setCompilationUnit(CompilationUnit unit) {
+        delegate.setCompilationUnit(unit);
+    }
+
     @Override
     public void visit(ASTNode[] nodes, SourceUnit source) {
         delegate.visit(nodes, source);
@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lists the class files of a classes directory that include patterns can select, in parallel, together with their
+ * documentation-properties resources, which a projection reads as well.
+ *
+ * <p>The literal directory segments in front of the first wildcard of each include pattern form a prefix that every
+ * match lies below; without a {@code **} segment, matches also lie a fixed number of directories below it. Directories
+ * that are neither on the way to such a prefix nor within reach below it cannot contain a match and are not entered.
+ * Nested class files share the directory of their top-level class, so pruning never separates them. Subdirectories are
+ * walked as fork/join tasks; the result is sorted by path, independent of scheduling.</p>
+ */
+@NullMarked
+final class ClassDirectoryWalker {
+
+    static final String DOCUMENTATION_RESOURCE_SUFFIX = "__annodoc.properties";
+
+    private final List<Prefix> prefixes;
+
+    ClassDirectoryWalker(Collection<String> includes) {
+        prefixes = includes.stream().map(ClassDirectoryWalker::prefix).distinct().toList();
+    }
+
+    /**
+     * The slash-separated literal directories of an Ant-style pattern, up to its first wildcard segment.
+     */
+    static String literalPrefix(String pattern) {
+        return prefix(pattern).path;
+    }
+
+    private static Prefix prefix(String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.replace('\\', '/').split("/", -1)) {
+            if (!segment.isEmpty() && !".".equals(segment)) segments.add(segment);
+        }
+        int literal = 0;
+        while (literal < segments.size() - 1 && !isWildcard(segments.get(literal))) {
+            literal++;
+        }
+        List<String> remainder = segments.subList(literal, segments.size());
+        int depth = remainder.stream().anyMatch(segment -> segment.contains("**"))
+                ? Integer.MAX_VALUE
+                : Math.max(remainder.size() - 1, 0);
+        return new Prefix(String.join("/", segments.subList(0, literal)), depth);
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    /**
+     * Whether a directory, given relative to the classes directory, may contain files matched by an include.
+     */
+    boolean mayContainMatches(String relativeDirectory) {
+        for (Prefix prefix : prefixes) {
+            if (isSameOrBelow(prefix.path, relativeDirectory)) return true;
+            if (isSameOrBelow(relativeDirectory, prefix.path)
+                    && depth(relativeDirectory) - depth(prefix.path) <= prefix.depth) return true;
+        }
+        return false;
+    }
+
+    private static boolean isSameOrBelow(String path, String ancestor) {
+        return ancestor.isEmpty() || path.equals(ancestor)
+                || path.length() > ancestor.length() && path.startsWith(ancestor) && path.charAt(ancestor.length()) == '/';
+    }
+
+    private static int depth(String path) {
+        return path.isEmpty() ? 0 : (int) path.chars().filter(character -> character == '/').count() + 1;
+    }
+
+    /**
+     * Lists every regular {@code .class} and {@code __annodoc.properties} file below the entered directories of a
+     * classes directory.
+     *
+     * @return absolute class-file paths in path order
+     */
+    Set<String> classFiles(Path classesDirectory) throws IOException {
+        Set<String> result = new TreeSet<>();
+        if (!mayContainMatches("")) return result;
+        try {
+            ForkJoinPool.commonPool().invoke(new DirectoryTask(classesDirectory, "")).forEach(result::addAll);
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        return result;
+    }
+
+    /**
+     * Literal directory of an include pattern and the number of directories its matches may lie below it.
+     */
+    private record Prefix(String path, int depth) {
+    }
+
+    private final class DirectoryTask extends RecursiveTask<List<List<String>>> {
+        private final Path directory;
+        private final String relativeDirectory;
+
+        private DirectoryTask(Path directory, String relativeDirectory) {
+            this.directory = directory;
+            this.relativeDirectory = relativeDirectory;
+        }
+
+        @Override
+        protected List<List<String>> compute() {
+            List<String> files = new ArrayList<>();
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    String name = entry.getFileName().toString();
+                    if (attributes.isDirectory()) {
+                        String relative = relativeDirectory.isEmpty() ? name : relativeDirectory + '/' + name;
+                        if (mayContainMatches(relative)) subdirectories.add(new DirectoryTask(entry, relative));
+                    } else if (attributes.isRegularFile()
+                            && (name.endsWith(".class") || name.endsWith(DOCUMENTATION_RESOURCE_SUFFIX))) {
+                        files.add(entry.toString());
+                    }
+                }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            List<List<String>> result = new ArrayList<>();
+            result.add(files);
+            invokeAll(subdirectories);
+            subdirectories.forEach(subdirectory -> result.addAll(subdirectory.join()));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin;
+
+import org.gradle.api.GradleException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decides from the raw bytes of a class file whether it declares a top-level class, and names that class.
+ *
+ * <p>The scanner walks the constant pool once to record the offset of every entry without decoding anything. It then
+ * compares attribute names byte-wise against {@code InnerClasses} and {@code EnclosingMethod} and decodes only the
+ * {@code this_class} name, and only for top-level classes. Class files below {@link #MAPPING_THRESHOLD} bytes are read
+ * into one heap buffer; larger ones are memory-mapped.</p>
+ */
+@NullMarked
+final class ClassHeaderScanner {
+
+    /**
+     * Mapping a file costs more than reading it below this size, which covers almost every class file.
+     */
+    static final int MAPPING_THRESHOLD = 64 * 1024;
+
+    private static final byte[] INNER_CLASSES = "InnerClasses".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENCLOSING_METHOD = "EnclosingMethod".getBytes(StandardCharsets.US_ASCII);
+
+    private ClassHeaderScanner() {
+    }
+
+    /**
+     * Returns the binary name of the class declared by a class file, or {@code null} if the class is a member, local,
+     * or anonymous class.
+     */
+    @Nullable
+    static String topLevelBinaryName(Path classFile) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(classFile, StandardOpenOption.READ)) {
+            buffer = contents(channel);
+        } catch (IOException exception) {
+            throw new GradleException("Could not read class metadata from " + classFile, exception);
+        }
+        try {
+            return scan(buffer, classFile);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ArithmeticException exception) {
+            throw new GradleException("Could not read class metadata from " + classFile, exception);
+        }
+    }
+
+    private static ByteBuffer contents(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size >= MAPPING_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Read until the buffer is full or the file ends.
+        }
+        return buffer.flip();
+    }
+
+    @Nullable
+    private static String scan(ByteBuffer buffer, Path classFile) {
+        if (buffer.getInt(0) != 0xcafebabe) throw new GradleException("Not a class file: " + classFile);
+        int constantPoolSize = unsignedShort(buffer, 8);
+        int[] entries = new int[constantPoolSize];
+        int position = 10;
+        for (int index = 1; index < constantPoolSize; index++) {
+            entries[index] = position;
+            int tag = buffer.get(position) & 0xff;
+            switch (tag) {
+                case 1 -> position += 3 + unsignedShort(buffer, position + 1);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> position += 5;
+                case 5, 6 -> {
+                    position += 9;
+                    index++;
+                }
+                case 7, 8, 16, 19, 20 -> position += 3;
+                case 15 -> position += 4;
+                default -> throw new GradleException("Unsupported class-file constant-pool tag " + tag + " in " + classFile);
+            }
+        }
+
+        int thisClass = unsignedShort(buffer, position + 2);
+        position += 6;
+        position += 2 + 2 * unsignedShort(buffer, position);
+        position = skipMembers(buffer, position);
+        position = skipMembers(buffer, position);
+
+        int attributeCount = unsignedShort(buffer, position);
+        position += 2;
+        for (int attribute = 0; attribute < attributeCount; attribute++) {
+            int name = entries[unsignedShort(buffer, position)];
+            int body = position + 6;
+            if (isUtf8(buffer, name, ENCLOSING_METHOD)) return null;
+            if (isUtf8(buffer, name, INNER_CLASSES)) {
+                int classCount = unsignedShort(buffer, body);
+                for (int entry = 0; entry < classCount; entry++) {
+                    if (unsignedShort(buffer, body + 2 + entry * 8) == thisClass) return null;
+                }
+            }
+            position = Math.addExact(body, buffer.getInt(position + 2));
+        }
+        String internalName = modifiedUtf8(buffer, entries[unsignedShort(buffer, entries[thisClass] + 1)], classFile);
+        return internalName.replace('/', '.');
+    }
+
+    private static int skipMembers(ByteBuffer buffer, int position) {
+        int memberCount = unsignedShort(buffer, position);
+        position += 2;
+        for (int member = 0; member < memberCount; member++) {
+            int attributeCount = unsignedShort(buffer, position + 6);
+            position += 8;
+            for (int attribute = 0; attribute < attributeCount; attribute++) {
+                position = Math.addExact(position + 6, buffer.getInt(position + 2));
+            }
+        }
+        return position;
+    }
+
+    private static boolean isUtf8(ByteBuffer buffer, int entry, byte[] expected) {
+        if (buffer.get(entry) != 1 || unsignedShort(buffer, entry + 1) != expected.length) return false;
+        for (int index = 0; index < expected.length; index++) {
+            if (buffer.get(entry + 3 + index) != expected[index]) return false;
+        }
+        return true;
+    }
+
+    private static String modifiedUtf8(ByteBuffer buffer, int entry, Path classFile) {
+        if (buffer.get(entry) != 1) throw new GradleException("Malformed class name in " + classFile);
+        int end = entry + 3 + unsignedShort(buffer, entry + 1);
+        char[] characters = new char[end - entry - 3];
+        int length = 0;
+        for (int position = entry + 3; position < end; ) {
+            int first = buffer.get(position++) & 0xff;
+            if (first < 0x80) {
+                characters[length++] = (char) first;
+            } else if ((first & 0xe0) == 0xc0) {
+                characters[length++] = (char) ((first & 0x1f) << 6 | buffer.get(position++) & 0x3f);
+            } else if ((first & 0xf0) == 0xe0) {
+                characters[length++] = (char) ((first & 0x0f) << 12 | (buffer.get(position++) & 0x3f) << 6
+                        | buffer.get(position++) & 0x3f);
+            } else {
+                throw new GradleException("Malformed class name in " + classFile);
+            }
+        }
+        return new String(characters, 0, length);
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int position) {
+        return buffer.getShort(position) & 0xffff;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin;
+
+import com.blackbuild.annodocimal.generator.DocumentationStripper;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Moves the documentation of a classes JAR out of its class files into a separate documentation JAR.
+ *
+ * <p>The {@linkplain #getStrippedJar() stripped JAR} holds the input's entries in their order, with class files
+ * rewritten without their documentation annotations, and can be shipped instead of the input. It leaves out the
+ * documentation resources and bundles of the input, and the signature files and manifest entry digests of a signed
+ * input, which the rewritten class files would no longer match. The
+ * {@linkplain #getDocumentationJar() documentation JAR} holds one documentation resource per documented class, bundled
+ * classes included; put it on a {@link SourceProjectionTask}'s
+ * {@linkplain SourceProjectionTask#getDocumentationClasspath() documentation classpath} or next to the stripped JAR on
+ * a class path to read the documentation again.</p>
+ */
+@CacheableTask
+@NullMarked
+public abstract class DocumentationStrippingTask extends DefaultTask {
+
+    /**
+     * JAR whose class files are stripped of their documentation.
+     *
+     * @return classes JAR input
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getClassesJar();
+
+    /**
+     * JAR written with the input's entries, but without documentation annotations, resources, bundles, and signature.
+     *
+     * <p>The file is replaced atomically together with the documentation JAR.</p>
+     *
+     * @return stripped JAR output
+     */
+    @OutputFile
+    public abstract RegularFileProperty getStrippedJar();
+
+    /**
+     * JAR of the documentation resources moved out of {@link #getClassesJar()}.
+     *
+     * <p>Entries are written in entry-name order with fixed timestamps, so equal inputs produce byte-identical JARs.</p>
+     *
+     * @return documentation JAR output
+     */
+    @OutputFile
+    public abstract RegularFileProperty getDocumentationJar();
+
+    @TaskAction
+    protected final void stripDocumentation() {
+        try {
+            List<String> resources = DocumentationStripper.stripJar(getClassesJar().get().getAsFile().toPath(),
+                    getStrippedJar().get().getAsFile().toPath(), getDocumentationJar().get().getAsFile().toPath());
+            getLogger().info("Moved the documentation of {} classes into {}", resources.size(),
+                    getDocumentationJar().get().getAsFile());
+        } catch (IOException exception) {
+            throw new GradleException("Could not strip the documentation of " + getClassesJar().get().getAsFile(),
+                    exception);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin;
+
+import com.blackbuild.annodocimal.generator.ReferencedClassMetadataCache;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Shares one {@link ReferencedClassMetadataCache} between all {@link SourceProjectionTask} executions of a build.
+ *
+ * <p>Gradle creates the service once per build, when the first task uses it, and shares it between the tasks of every
+ * project. The service owns its cache and clears it when Gradle closes the service at the end of the build, so the
+ * cache never outlives the build; later builds reuse the persistent referenced-class indexes instead. The service is an
+ * implementation detail of the task and not supported API.</p>
+ */
+@NullMarked
+public abstract class ReferencedClassMetadataService
+        implements BuildService<ReferencedClassMetadataService.Parameters>, AutoCloseable {
+
+    /**
+     * Name under which the task registers the shared service.
+     */
+    static final String NAME = "annoDocimalReferencedClassMetadata";
+
+    /**
+     * Gradle property overriding the number of cached classes when the service is registered by the task.
+     */
+    static final String MAXIMUM_CLASSES_PROPERTY = "annodocimal.referencedClassMetadataCache.maximumClasses";
+
+    /**
+     * Number of cached classes, including cached misses, when the service is registered by the task and
+     * {@value #MAXIMUM_CLASSES_PROPERTY} is not set.
+     */
+    static final int DEFAULT_MAXIMUM_CLASSES = 65_536;
+
+    private final ReferencedClassMetadataCache cache;
+
+    /**
+     * Creates the service and its cache of the configured size; Gradle provides the parameters before.
+     */
+    public ReferencedClassMetadataService() {
+        cache = new ReferencedClassMetadataCache(getParameters().getMaximumClasses().get());
+    }
+
+    /**
+     * Returns the cache shared by the tasks of this build.
+     *
+     * @return shared referenced-class metadata cache
+     */
+    public ReferencedClassMetadataCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Releases the cached metadata and JAR indexes at the end of the build.
+     */
+    @Override
+    public void close() {
+        cache.clear();
+    }
+
+    /**
+     * Parameters of the shared service.
+     */
+    public interface Parameters extends BuildServiceParameters {
+
+        /**
+         * Maximum number of cached classes, including cached misses.
+         *
+         * @return cache size
+         */
+        Property<Integer> getMaximumClasses();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Projection dependencies recorded after a successful {@link SourceProjectionTask} execution.
+ *
+ * <p>The state is local state of the task. For each projected root it lists the class files of its classes directory
+ * that its projection looked up, such as supertypes and referenced nested declarations, whether they existed or not.
+ * Gradle's input changes tell which class files changed since the previous execution; the state only adds which other
+ * roots have to be projected again because of them. A missing, unreadable, or foreign state simply means that the next
+ * execution projects all selected classes.</p>
+ */
+@NullMarked
+final class SourceProjectionState {
+
+    private static final String HEADER = "annodocimal-source-projection-state 3";
+
+    private final Map<String, Set<String>> dependencies;
+
+    SourceProjectionState(Map<String, Set<String>> dependencies) {
+        Map<String, Set<String>> sortedDependencies = new TreeMap<>();
+        dependencies.forEach((root, files) -> sortedDependencies.put(root,
+                Collections.unmodifiableSet(new TreeSet<>(files))));
+        this.dependencies = Collections.unmodifiableMap(sortedDependencies);
+    }
+
+    /**
+     * Roots, as input-relative paths without the class-file suffix, mapped to the absolute paths of the class files
+     * their projection looked up.
+     */
+    Map<String, Set<String>> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Lists the directory-relative paths of every regular file below a directory.
+     */
+    static Set<String> listFiles(Path directory) throws IOException {
+        Set<String> result = new TreeSet<>();
+        if (!Files.isDirectory(directory)) return result;
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile()) result.add(directory.relativize(file).toString().replace('\\', '/'));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    @Nullable
+    static SourceProjectionState read(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) return null;
+            Map<String, Set<String>> dependencies = new TreeMap<>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length != 3 || !"dependency".equals(fields[0])) return null;
+                dependencies.computeIfAbsent(fields[1], root -> new TreeSet<>()).add(fields[2]);
+            }
+            return new SourceProjectionState(dependencies);
+        } catch (IOException | RuntimeException ignored) {
+            return null;
+        }
+    }
+
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.write('\n');
+                for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+                    for (String dependency : entry.getValue()) {
+                        writer.write("dependency\t" + entry.getKey() + '\t' + dependency + '\n');
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -24,34 +24,50 @@
 package com.blackbuild.annodocimal.plugin;
 
 import com.blackbuild.annodocimal.generator.ProjectionPolicy;
-import com.blackbuild.annodocimal.generator.SourceProjector;
+import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import javax.inject.Inject;
-import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
@@ -59,7 +75,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -68,25 +87,59 @@ import java.util.stream.Stream;
  *
  * <p>Include and exclude patterns use slash-normalized paths relative to each input directory. Patterns include the
  * {@code .class} suffix; exclusions take precedence. The default selects every top-level class file.</p>
+ *
+ * <p>Alternatively, the task projects a {@linkplain #getClassesJar() classes JAR} straight into a
+ * {@linkplain #getSourcesJar() sources JAR}. In that mode the patterns apply to the JAR's entry names, and neither
+ * classes directories nor an output directory may be configured.</p>
  */
 @CacheableTask
 @NullMarked
 public abstract class SourceProjectionTask extends DefaultTask {
 
+    private static final String STATE_FILE_NAME = "projection-state.txt";
+
+    private final Provider<ReferencedClassMetadataService> referencedClassMetadataService;
+    private final Provider<RegularFile> stateFile;
+
     @Inject
     @SuppressWarnings("java:S5993") // Gradle TestKit cannot instantiate this task when its injected constructor is protected.
     public SourceProjectionTask(ObjectFactory objects) {
         getIncludes().convention(Collections.singleton("**/*.class"));
         getExcludes().convention(Collections.emptySet());
         getProjectionPolicy().convention(ProjectionPolicy.documentation());
+        getMaxParallelism().convention(Runtime.getRuntime().availableProcessors());
+        getSynchronizeOutput().convention(false);
+        File gradleUserHome = getProject().getGradle().getGradleUserHomeDir();
+        getReferencedClassIndexDirectory().convention(objects.directoryProperty()
+                .fileValue(new File(gradleUserHome, "caches/anno-docimal/referenced-class-index")));
+        Provider<Integer> maximumClasses = getProject().getProviders()
+                .gradleProperty(ReferencedClassMetadataService.MAXIMUM_CLASSES_PROPERTY)
+                .map(value -> Integer.valueOf(value.trim()))
+                .orElse(ReferencedClassMetadataService.DEFAULT_MAXIMUM_CLASSES);
+        referencedClassMetadataService = getProject().getGradle().getSharedServices().registerIfAbsent(
+                ReferencedClassMetadataService.NAME, ReferencedClassMetadataService.class,
+                spec -> spec.getParameters().getMaximumClasses().set(maximumClasses));
+        usesService(referencedClassMetadataService);
+        // Local state is deleted when the outputs are loaded from the build cache, so a state never outlives the
+        // execution that recorded it.
+        stateFile = getProject().getLayout().getBuildDirectory().file("tmp/" + getName() + "/" + STATE_FILE_NAME);
+        getLocalState().register(stateFile);
     }
 
     /**
      * Class-output directories containing candidate top-level class files.
      *
+     * <p>The directories are compared file by file with their relative paths and contents, so that Gradle reports
+     * exactly the changed class files. Only the roots whose own class files, or the class files their previous
+     * projection looked up, changed since the previous execution are projected again. A change of any other input
+     * projects all selected classes, after Gradle removed the previous output.</p>
+     *
      * @return documentation-sensitive class inputs
      */
-    @Classpath
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @IgnoreEmptyDirectories
+    @Incremental
     public abstract ConfigurableFileCollection getClassesDirectories();
 
     /**
@@ -100,6 +153,19 @@ public abstract class SourceProjectionTask extends DefaultTask {
     @Classpath
     public abstract ConfigurableFileCollection getReferencedClassesClasspath();
 
+    /**
+     * Directories and JARs holding the documentation resources of classes whose documentation was moved out of their
+     * class files.
+     *
+     * <p>Configure this with the documentation JAR written by {@link DocumentationStrippingTask} when projecting the
+     * stripped classes. A class's own documentation resource next to its class file still takes precedence. Empty by
+     * default.</p>
+     *
+     * @return documentation classpath
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getDocumentationClasspath();
+
     /**
      * Ant-style include patterns over slash-normalized relative class-file paths.
      *
@@ -127,74 +193,418 @@ public abstract class SourceProjectionTask extends DefaultTask {
     /**
      * The directory exclusively managed by this task.
      *
+     * <p>Required unless the task projects a {@linkplain #getClassesJar() classes JAR}.</p>
+     *
      * @return managed source output directory
      */
     @OutputDirectory
+    @Optional
     public abstract DirectoryProperty getOutputDirectory();
 
+    /**
+     * JAR whose selected top-level classes are projected into {@link #getSourcesJar()}.
+     *
+     * <p>The JAR is read in place; it is not expanded and no source directory is written.</p>
+     *
+     * @return classes JAR input
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    @Optional
+    public abstract RegularFileProperty getClassesJar();
+
+    /**
+     * Sources JAR written from {@link #getClassesJar()}.
+     *
+     * <p>Entries are written in entry-name order with fixed timestamps, so equal inputs produce byte-identical JARs.
+     * The file is replaced atomically after every selected class was projected.</p>
+     *
+     * @return sources JAR output
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getSourcesJar();
+
+    /**
+     * Maximum number of projection work items submitted for one execution.
+     *
+     * <p>The selected classes are split into at most this many contiguous slices in binary-name order. Gradle's worker
+     * API runs the slices in parallel, additionally bounded by the build's {@code --max-workers}. The projected sources
+     * do not depend on this value. Defaults to the number of available processors.</p>
+     *
+     * @return maximum number of parallel projection work items
+     */
+    @Internal
+    public abstract Property<Integer> getMaxParallelism();
+
+    /**
+     * Directory holding persistent, content-addressed indexes of the JARs on the referenced classpath.
+     *
+     * <p>Each distinct JAR is indexed once and the memory-mapped index is reused by every later execution of every
+     * source projection task that shares the directory. The index only affects how fast referenced declarations are
+     * resolved, never the projected sources. Defaults to {@code caches/anno-docimal/referenced-class-index} below the
+     * Gradle user home.</p>
+     *
+     * @return referenced-class index directory
+     */
+    @Internal
+    public abstract DirectoryProperty getReferencedClassIndexDirectory();
+
+    /**
+     * Optional directory of a persistent, content-addressed cache of projected sources.
+     *
+     * <p>When set, a class whose own and nested class files, projection policy, and looked-up referenced declarations
+     * match an earlier projection by any task sharing the directory is not projected again; its cached source is
+     * written instead. The cache never changes the projected sources. Unset by default.</p>
+     *
+     * @return projection cache directory
+     */
+    @Internal
+    public abstract DirectoryProperty getProjectionCacheDirectory();
+
+    /**
+     * Whether the managed output directory is synchronized with the projection instead of being replaced.
+     *
+     * <p>By default, every re-projected source replaces its file, so it is rewritten even if its content did not
+     * change. When synchronized, sources are still projected into a staging directory first, but only files whose
+     * content differs are then moved into the output, each atomically, and only stale files are deleted. Unchanged
+     * sources keep their timestamps, so tools watching the directory only see real changes. A full projection after a
+     * change of other inputs than class files starts from an output directory that Gradle already emptied, so it
+     * writes every source in both modes. A failed incremental projection leaves the output untouched in both modes; an
+     * interrupted synchronization never leaves partially written files and is completed by the next execution. The
+     * projected sources do not depend on this value. Defaults to {@code false}.</p>
+     *
+     * @return whether the output directory is synchronized
+     */
+    @Internal
+    public abstract Property<Boolean> getSynchronizeOutput();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @TaskAction
-    protected final void projectSources() {
+    protected final void projectSources(InputChanges inputChanges) {
+        if (getClassesJar().isPresent() || getSourcesJar().isPresent()) {
+            projectSourcesJar();
+            return;
+        }
         Path outputDirectory = getOutputDirectory().get().getAsFile().toPath().toAbsolutePath().normalize();
-        List<Candidate> candidates = selectedCandidates(outputDirectory);
-        Path stagingDirectory = createStagingDirectory(outputDirectory);
-        boolean replaced = false;
-        Thread thread = Thread.currentThread();
-        ClassLoader originalContextLoader = thread.getContextClassLoader();
-        try (URLClassLoader referencedClassLoader = referencedClassLoader(originalContextLoader)) {
-            thread.setContextClassLoader(referencedClassLoader);
-            SourceProjector projector = new SourceProjector(getProjectionPolicy().get());
-            for (Candidate candidate : candidates) {
-                projector.projectToDirectory(candidate.classFile, stagingDirectory);
+        List<Path> inputDirectories = inputDirectories(outputDirectory);
+        Path stateFile = this.stateFile.get().getAsFile().toPath();
+        try {
+            SourceProjectionState previous =
+                    inputChanges.isIncremental() ? SourceProjectionState.read(stateFile) : null;
+            Files.deleteIfExists(stateFile);
+            Map<String, Set<String>> dependencies;
+            if (previous != null) {
+                Set<String> changedFiles = changedFiles(inputChanges);
+                Set<String> changedRoots = changedRoots(inputDirectories, changedFiles);
+                changedRoots.addAll(dependentRoots(previous, changedFiles));
+                dependencies = new TreeMap<>(previous.getDependencies());
+                dependencies.keySet().removeAll(changedRoots);
+                dependencies.putAll(projectChangedSources(inputDirectories, changedRoots, outputDirectory));
+            } else {
+                dependencies = projectAllSources(inputDirectories, listClassFiles(inputDirectories), outputDirectory);
             }
-            replaceOutputDirectory(stagingDirectory, outputDirectory);
-            replaced = true;
+            new SourceProjectionState(dependencies).write(stateFile);
+        } catch (IOException exception) {
+            throw new GradleException("Could not project selected source classes", exception);
+        }
+    }
+
+    private void projectSourcesJar() {
+        if (!getClassesJar().isPresent() || !getSourcesJar().isPresent() || getOutputDirectory().isPresent()
+                || !getClassesDirectories().isEmpty()) {
+            throw new GradleException("SourceProjectionTask projects either classesDirectories into outputDirectory "
+                    + "or classesJar into sourcesJar");
+        }
+        try {
+            Files.deleteIfExists(stateFile.get().getAsFile().toPath());
         } catch (IOException exception) {
             throw new GradleException("Could not project selected source classes", exception);
+        }
+        Action<SourceProjectionWorkAction.Parameters> common = commonParameters();
+        File classesJar = getClassesJar().get().getAsFile();
+        File sourcesJar = getSourcesJar().get().getAsFile();
+        Set<String> includes = getIncludes().get();
+        Set<String> excludes = getExcludes().get();
+        WorkQueue queue = workQueue();
+        queue.submit(SourceProjectionWorkAction.class, parameters -> {
+            common.execute(parameters);
+            parameters.getClassesJar().set(classesJar);
+            parameters.getSourcesJar().set(sourcesJar);
+            parameters.getIncludes().set(includes);
+            parameters.getExcludes().set(excludes);
+        });
+        queue.await();
+    }
+
+    private Map<String, Set<String>> projectAllSources(List<Path> inputDirectories, Collection<String> classFiles,
+                                                       Path outputDirectory) throws IOException {
+        List<Candidate> candidates = selectedCandidates(inputDirectories, classFiles);
+        Path stagingDirectory = createStagingDirectory(outputDirectory);
+        boolean replaced = false;
+        try {
+            Map<String, Set<String>> dependencies =
+                    dependencies(inputDirectories, project(candidates, stagingDirectory));
+            if (getSynchronizeOutput().get() && Files.isDirectory(outputDirectory)) {
+                synchronizeOutputDirectory(stagingDirectory, outputDirectory);
+            } else {
+                replaceOutputDirectory(stagingDirectory, outputDirectory);
+                replaced = true;
+            }
+            return dependencies;
         } finally {
-            thread.setContextClassLoader(originalContextLoader);
             if (!replaced) deleteRecursively(stagingDirectory);
         }
     }
 
-    private URLClassLoader referencedClassLoader(ClassLoader parent) {
-        URL[] urls = getReferencedClassesClasspath().getFiles().stream()
-                .map(file -> toUrl(file.toPath()))
-                .toArray(URL[]::new);
-        return new URLClassLoader(urls, parent);
+    private Map<String, Set<String>> projectChangedSources(List<Path> inputDirectories, Set<String> changedRoots,
+                                                           Path outputDirectory) throws IOException {
+        List<Pattern> includes = patterns(getIncludes().get());
+        List<Pattern> excludes = patterns(getExcludes().get());
+        Map<String, Candidate> candidatesByBinaryName = new LinkedHashMap<>();
+        Set<String> removedRoots = new TreeSet<>();
+        for (String root : changedRoots) {
+            boolean selected = false;
+            for (Path inputDirectory : inputDirectories) {
+                Path classFile = inputDirectory.resolve(root + ".class");
+                if (!Files.isRegularFile(classFile)) continue;
+                Candidate candidate = candidate(inputDirectory, classFile, includes, excludes);
+                if (candidate == null) continue;
+                addCandidate(candidatesByBinaryName, candidate);
+                selected = true;
+            }
+            if (!selected) removedRoots.add(root);
+        }
+        List<Candidate> candidates = candidatesByBinaryName.values().stream()
+                .sorted(Comparator.comparing(candidate -> candidate.binaryName))
+                .toList();
+
+        Path stagingDirectory = createStagingDirectory(outputDirectory);
+        boolean synchronize = getSynchronizeOutput().get();
+        try {
+            Map<String, Set<String>> dependencies =
+                    dependencies(inputDirectories, project(candidates, stagingDirectory));
+            for (Candidate candidate : candidates) {
+                String sourcePath = candidate.binaryName.replace('.', '/') + ".java";
+                Path target = outputDirectory.resolve(sourcePath);
+                Path staged = stagingDirectory.resolve(sourcePath);
+                if (synchronize && isUnchanged(staged, target)) continue;
+                Files.createDirectories(target.getParent());
+                replaceFile(staged, target);
+            }
+            for (String root : removedRoots) {
+                deleteSource(outputDirectory, outputDirectory.resolve(root + ".java"));
+            }
+            return dependencies;
+        } finally {
+            deleteRecursively(stagingDirectory);
+        }
+    }
+
+    // Absolute paths of the class files and documentation resources added, modified, or removed since the previous
+    // execution.
+    private Set<String> changedFiles(InputChanges inputChanges) {
+        Set<String> result = new TreeSet<>();
+        for (FileChange change : inputChanges.getFileChanges(getClassesDirectories())) {
+            if (change.getFileType() == FileType.DIRECTORY) continue;
+            Path file = change.getFile().toPath().toAbsolutePath().normalize();
+            String name = file.getFileName().toString();
+            if (name.endsWith(".class") || name.endsWith(ClassDirectoryWalker.DOCUMENTATION_RESOURCE_SUFFIX)) {
+                result.add(file.toString());
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> changedRoots(List<Path> inputDirectories, Set<String> changedFiles) {
+        Set<String> result = new TreeSet<>();
+        for (String changedFile : changedFiles) {
+            Path classFile = Paths.get(changedFile);
+            inputDirectories.stream()
+                    .filter(classFile::startsWith)
+                    .findFirst()
+                    .ifPresent(inputDirectory -> result.addAll(possibleRoots(relativePath(inputDirectory, classFile))));
+        }
+        return result;
+    }
+
+    // A root whose projection looked up a class file that has since changed, appeared, or disappeared may project
+    // differently, even though none of its own class files changed.
+    private static Set<String> dependentRoots(SourceProjectionState previous, Set<String> changedFiles) {
+        Set<String> result = new TreeSet<>();
+        previous.getDependencies().forEach((root, files) -> {
+            if (files.stream().anyMatch(changedFiles::contains)) result.add(root);
+        });
+        return result;
+    }
+
+    // Each root with the class files its projection looked up in its own classes directory. A change on the referenced
+    // classpath is a non-incremental input change and projects everything again.
+    private static Map<String, Set<String>> dependencies(List<Path> inputDirectories,
+                                                         Map<String, Set<String>> references) {
+        Map<String, Set<String>> result = new TreeMap<>();
+        references.forEach((classFile, names) -> {
+            Path path = Paths.get(classFile);
+            inputDirectories.stream()
+                    .filter(path::startsWith)
+                    .findFirst()
+                    .ifPresent(inputDirectory -> {
+                        String relativeClassFile = relativePath(inputDirectory, path);
+                        Set<String> files = new TreeSet<>();
+                        names.forEach(name -> files.add(inputDirectory.resolve(name + ".class").toString()));
+                        result.put(relativeClassFile.substring(0, relativeClassFile.length() - ".class".length()),
+                                files);
+                    });
+        });
+        return result;
     }
 
-    private static URL toUrl(Path path) {
+    // The changed class file itself and every prefix ending before a '$' of its simple binary name may be a root; a
+    // changed documentation resource stands for its class file.
+    private static List<String> possibleRoots(String relativeClassFile) {
+        String suffix = relativeClassFile.endsWith(ClassDirectoryWalker.DOCUMENTATION_RESOURCE_SUFFIX)
+                ? ClassDirectoryWalker.DOCUMENTATION_RESOURCE_SUFFIX
+                : ".class";
+        String root = relativeClassFile.substring(0, relativeClassFile.length() - suffix.length());
+        int simpleNameStart = root.lastIndexOf('/') + 1;
+        List<String> result = new ArrayList<>();
+        for (int index = root.indexOf('$', simpleNameStart + 1); index > 0; index = root.indexOf('$', index + 1)) {
+            result.add(root.substring(0, index));
+        }
+        result.add(root);
+        return result;
+    }
+
+    private static void deleteSource(Path outputDirectory, Path source) throws IOException {
+        if (!Files.deleteIfExists(source)) return;
+        Path directory = source.getParent();
+        while (directory != null && !directory.equals(outputDirectory) && isEmptyDirectory(directory)) {
+            Files.delete(directory);
+            directory = directory.getParent();
+        }
+    }
+
+    private static boolean isEmptyDirectory(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+
+    // Returns the projected class files with the referenced declarations each projection looked up.
+    private Map<String, Set<String>> project(List<Candidate> candidates, Path stagingDirectory) throws IOException {
+        int maxParallelism = getMaxParallelism().get();
+        if (maxParallelism < 1) {
+            throw new GradleException("SourceProjectionTask maxParallelism must be positive: " + maxParallelism);
+        }
+        Action<SourceProjectionWorkAction.Parameters> common = commonParameters();
+        WorkQueue queue = workQueue();
+        List<Path> referencesFiles = new ArrayList<>();
         try {
-            return path.toUri().toURL();
-        } catch (MalformedURLException exception) {
-            throw new GradleException("Could not add referenced classes path " + path + " to source projection", exception);
+            for (List<Candidate> slice : slices(candidates, maxParallelism)) {
+                Path referencesFile =
+                        getTemporaryDir().toPath().resolve("references-" + referencesFiles.size() + ".txt");
+                Files.deleteIfExists(referencesFile);
+                referencesFiles.add(referencesFile);
+                queue.submit(SourceProjectionWorkAction.class, parameters -> {
+                    common.execute(parameters);
+                    parameters.getClassFiles()
+                            .set(slice.stream().map(candidate -> candidate.classFile.toString()).toList());
+                    parameters.getStagingDirectory().set(stagingDirectory.toFile());
+                    parameters.getReferencesFile().set(referencesFile.toFile());
+                });
+            }
+            queue.await();
+            Map<String, Set<String>> result = new TreeMap<>();
+            for (Path referencesFile : referencesFiles) {
+                result.putAll(SourceProjectionWorkAction.readReferences(referencesFile));
+            }
+            return result;
+        } finally {
+            for (Path referencesFile : referencesFiles) Files.deleteIfExists(referencesFile);
         }
     }
 
-    private List<Candidate> selectedCandidates(Path outputDirectory) {
+    // Gradle only passes build services to work actions without isolation; class-loader or process isolation would also
+    // load the generator and its referenced-class cache anew for each action instead of sharing them across the build.
+    private WorkQueue workQueue() {
+        return getWorkerExecutor().noIsolation();
+    }
+
+    // Work parameters shared by both modes: the projection policy, referenced-declaration and documentation resolution.
+    private Action<SourceProjectionWorkAction.Parameters> commonParameters() {
+        ProjectionPolicy policy = getProjectionPolicy().get();
+        List<String> referencedClasspath = getReferencedClassesClasspath().getFiles().stream()
+                .map(File::getAbsolutePath)
+                .toList();
+        List<String> documentationClasspath = getDocumentationClasspath().getFiles().stream()
+                .map(File::getAbsolutePath)
+                .toList();
+        File indexDirectory = getReferencedClassIndexDirectory().get().getAsFile();
+        File cacheDirectory = getProjectionCacheDirectory().isPresent()
+                ? getProjectionCacheDirectory().get().getAsFile()
+                : null;
+        return parameters -> {
+            parameters.getReferencedClassMetadataService().set(referencedClassMetadataService);
+            parameters.getReferencedClasspath().set(referencedClasspath);
+            parameters.getDocumentationClasspath().set(documentationClasspath);
+            parameters.getReferencedClassIndexDirectory().set(indexDirectory);
+            if (cacheDirectory != null) parameters.getProjectionCacheDirectory().set(cacheDirectory);
+            parameters.getIncludedVisibilities().set(policy.getIncludedVisibilities());
+            parameters.getNestedDeclarationsIncluded().set(policy.isNestedDeclarationsIncluded());
+            parameters.getSyntheticDeclarationsIncluded().set(policy.isSyntheticDeclarationsIncluded());
+            parameters.getGroovyRuntimeArtifactsIncluded().set(policy.isGroovyRuntimeArtifactsIncluded());
+        };
+    }
+
+    private static List<List<Candidate>> slices(List<Candidate> candidates, int maxParallelism) {
+        int count = Math.min(maxParallelism, candidates.size());
+        List<List<Candidate>> result = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            result.add(List.copyOf(candidates.subList(
+                    candidates.size() * index / count, candidates.size() * (index + 1) / count)));
+        }
+        return result;
+    }
+
+    private List<Path> inputDirectories(Path outputDirectory) {
         List<Path> inputDirectories = getClassesDirectories().getFiles().stream()
                 .map(file -> file.toPath().toAbsolutePath().normalize())
                 .sorted()
                 .toList();
         ensureInputsDoNotOverlapOutput(inputDirectories, outputDirectory);
+        return inputDirectories;
+    }
 
-        List<Pattern> includes = patterns(getIncludes().get());
-        List<Pattern> excludes = patterns(getExcludes().get());
-        Map<String, Candidate> candidatesByBinaryName = new LinkedHashMap<>();
+    // Only directories that an include pattern can reach are walked; their class files and documentation resources
+    // are all a full projection needs.
+    private Set<String> listClassFiles(List<Path> inputDirectories) throws IOException {
+        ClassDirectoryWalker walker = new ClassDirectoryWalker(getIncludes().get());
+        Set<String> result = new TreeSet<>();
         for (Path inputDirectory : inputDirectories) {
             if (!Files.exists(inputDirectory)) continue;
             if (!Files.isDirectory(inputDirectory)) {
                 throw new GradleException("SourceProjectionTask classes directory does not exist: " + inputDirectory);
             }
-            try (Stream<Path> files = Files.walk(inputDirectory)) {
-                files.filter(Files::isRegularFile)
-                        .map(classFile -> candidate(inputDirectory, classFile, includes, excludes))
-                        .filter(Objects::nonNull)
-                        .sorted(Comparator.comparing(candidate -> candidate.classFile.toString()))
-                        .forEach(candidate -> addCandidate(candidatesByBinaryName, candidate));
-            } catch (IOException exception) {
-                throw new GradleException("Could not inspect classes directory " + inputDirectory, exception);
-            }
+            result.addAll(walker.classFiles(inputDirectory));
+        }
+        return result;
+    }
+
+    private List<Candidate> selectedCandidates(List<Path> inputDirectories, Collection<String> classFiles) {
+        List<Pattern> includes = patterns(getIncludes().get());
+        List<Pattern> excludes = patterns(getExcludes().get());
+        Map<String, Candidate> candidatesByBinaryName = new LinkedHashMap<>();
+        for (Path inputDirectory : inputDirectories) {
+            classFiles.parallelStream()
+                    .map(Paths::get)
+                    .filter(classFile -> classFile.startsWith(inputDirectory))
+                    .map(classFile -> candidate(inputDirectory, classFile, includes, excludes))
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(candidate -> candidate.classFile.toString()))
+                    .toList()
+                    .forEach(candidate -> addCandidate(candidatesByBinaryName, candidate));
         }
         return candidatesByBinaryName.values().stream()
                 .sorted(Comparator.comparing(candidate -> candidate.binaryName))
@@ -203,10 +613,14 @@ public abstract class SourceProjectionTask extends DefaultTask {
 
     @Nullable
     private static Candidate candidate(Path inputDirectory, Path classFile, List<Pattern> includes, List<Pattern> excludes) {
-        String relativePath = inputDirectory.relativize(classFile).toString().replace('\\', '/');
+        String relativePath = relativePath(inputDirectory, classFile);
         if (!relativePath.endsWith(".class") || !matches(relativePath, includes, excludes)) return null;
-        ClassMetadata metadata = readMetadata(classFile);
-        return metadata.topLevel ? new Candidate(classFile, metadata.binaryName) : null;
+        String binaryName = ClassHeaderScanner.topLevelBinaryName(classFile);
+        return binaryName == null ? null : new Candidate(classFile, binaryName);
+    }
+
+    private static String relativePath(Path inputDirectory, Path classFile) {
+        return inputDirectory.relativize(classFile).toString().replace('\\', '/');
     }
 
     private static void addCandidate(Map<String, Candidate> candidatesByBinaryName, Candidate candidate) {
@@ -217,6 +631,15 @@ public abstract class SourceProjectionTask extends DefaultTask {
         }
     }
 
+    /**
+     * Selection over slash-normalized relative class-file paths, shared with the JAR mode of the work action.
+     */
+    static Predicate<String> selection(Set<String> includes, Set<String> excludes) {
+        List<Pattern> includePatterns = patterns(includes);
+        List<Pattern> excludePatterns = patterns(excludes);
+        return relativePath -> matches(relativePath, includePatterns, excludePatterns);
+    }
+
     private static boolean matches(String relativePath, List<Pattern> includes, List<Pattern> excludes) {
         return includes.stream().anyMatch(pattern -> pattern.matcher(relativePath).matches())
                 && excludes.stream().noneMatch(pattern -> pattern.matcher(relativePath).matches());
@@ -310,6 +733,39 @@ public abstract class SourceProjectionTask extends DefaultTask {
         deleteRecursively(backupDirectory);
     }
 
+    // Changed sources are moved in before stale ones are deleted. Any interruption leaves complete files only, and
+    // the missing execution state makes the next execution synchronize the whole directory again.
+    private static void synchronizeOutputDirectory(Path stagingDirectory, Path outputDirectory) throws IOException {
+        Set<String> staged = SourceProjectionState.listFiles(stagingDirectory);
+        for (String sourcePath : staged) {
+            Path source = stagingDirectory.resolve(sourcePath);
+            Path target = outputDirectory.resolve(sourcePath);
+            if (isUnchanged(source, target)) continue;
+            Files.createDirectories(target.getParent());
+            replaceFile(source, target);
+        }
+        for (String existing : SourceProjectionState.listFiles(outputDirectory)) {
+            if (!staged.contains(existing)) deleteSource(outputDirectory, outputDirectory.resolve(existing));
+        }
+        List<Path> directories;
+        try (Stream<Path> paths = Files.walk(outputDirectory)) {
+            directories = paths.filter(Files::isDirectory)
+                    .filter(directory -> !directory.equals(outputDirectory))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+        for (Path directory : directories) {
+            if (!Files.isDirectory(stagingDirectory.resolve(outputDirectory.relativize(directory)))
+                    && isEmptyDirectory(directory)) {
+                Files.delete(directory);
+            }
+        }
+    }
+
+    private static boolean isUnchanged(Path source, Path target) throws IOException {
+        return Files.isRegularFile(target) && Files.mismatch(source, target) == -1L;
+    }
+
     private static void move(Path source, Path target) throws IOException {
         try {
             Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
@@ -318,6 +774,14 @@ public abstract class SourceProjectionTask extends DefaultTask {
         }
     }
 
+    private static void replaceFile(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ignored) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private static void deleteRecursively(Path directory) {
         if (!Files.exists(directory)) return;
         try (Stream<Path> paths = Files.walk(directory)) {
@@ -333,112 +797,6 @@ public abstract class SourceProjectionTask extends DefaultTask {
         }
     }
 
-    private static ClassMetadata readMetadata(Path classFile) {
-        try (InputStream input = Files.newInputStream(classFile); DataInputStream data = new DataInputStream(input)) {
-            if (data.readInt() != 0xcafebabe) throw new GradleException("Not a class file: " + classFile);
-            data.readUnsignedShort();
-            data.readUnsignedShort();
-            int constantPoolSize = data.readUnsignedShort();
-            String[] utf8 = new String[constantPoolSize];
-            int[] classNames = new int[constantPoolSize];
-            int index = 1;
-            while (index < constantPoolSize) {
-                int tag = data.readUnsignedByte();
-                index += readConstantPoolEntry(data, tag, index, utf8, classNames, classFile);
-            }
-            data.readUnsignedShort();
-            int thisClass = data.readUnsignedShort();
-            data.readUnsignedShort();
-            String binaryName = utf8[classNames[thisClass]].replace('/', '.');
-            skipInterfaces(data);
-            skipMembers(data);
-            skipMembers(data);
-            return new ClassMetadata(binaryName, !isMemberOrLocalClass(data, thisClass, utf8));
-        } catch (IOException exception) {
-            throw new GradleException("Could not read class metadata from " + classFile, exception);
-        }
-    }
-
-    private static int readConstantPoolEntry(DataInputStream data, int tag, int index, String[] utf8, int[] classNames,
-                                             Path classFile) throws IOException {
-        return switch (tag) {
-            case 1 -> {
-                utf8[index] = data.readUTF();
-                yield 1;
-            }
-            case 3, 4 -> skipAndContinue(data, 4);
-            case 5, 6 -> skipAndContinue(data, 8, 2);
-            case 7 -> {
-                classNames[index] = data.readUnsignedShort();
-                yield 1;
-            }
-            case 8, 16, 19, 20 -> skipAndContinue(data, 2);
-            case 9, 10, 11, 12, 17, 18 -> skipAndContinue(data, 4);
-            case 15 -> skipAndContinue(data, 3);
-            default -> throw new GradleException("Unsupported class-file constant-pool tag " + tag + " in " + classFile);
-        };
-    }
-
-    private static int skipAndContinue(DataInputStream data, long bytes) throws IOException {
-        return skipAndContinue(data, bytes, 1);
-    }
-
-    private static int skipAndContinue(DataInputStream data, long bytes, int entries) throws IOException {
-        skip(data, bytes);
-        return entries;
-    }
-
-    private static void skipInterfaces(DataInputStream data) throws IOException {
-        int count = data.readUnsignedShort();
-        skip(data, count * 2L);
-    }
-
-    private static void skipMembers(DataInputStream data) throws IOException {
-        int count = data.readUnsignedShort();
-        for (int index = 0; index < count; index++) {
-            skip(data, 6);
-            skipAttributes(data);
-        }
-    }
-
-    private static boolean isMemberOrLocalClass(DataInputStream data, int thisClass, String[] utf8) throws IOException {
-        int attributeCount = data.readUnsignedShort();
-        boolean enclosed = false;
-        for (int index = 0; index < attributeCount; index++) {
-            int nameIndex = data.readUnsignedShort();
-            long length = Integer.toUnsignedLong(data.readInt());
-            if (!"InnerClasses".equals(utf8[nameIndex])) {
-                if ("EnclosingMethod".equals(utf8[nameIndex])) enclosed = true;
-                skip(data, length);
-                continue;
-            }
-            int classCount = data.readUnsignedShort();
-            for (int classIndex = 0; classIndex < classCount; classIndex++) {
-                int innerClass = data.readUnsignedShort();
-                skip(data, 2);
-                skip(data, 2);
-                skip(data, 2);
-                if (innerClass == thisClass) enclosed = true;
-            }
-        }
-        return enclosed;
-    }
-
-    private static void skipAttributes(DataInputStream data) throws IOException {
-        int count = data.readUnsignedShort();
-        for (int index = 0; index < count; index++) {
-            skip(data, 2);
-            skip(data, Integer.toUnsignedLong(data.readInt()));
-        }
-    }
-
-    private static void skip(DataInputStream data, long bytes) throws IOException {
-        data.skipNBytes(bytes);
-    }
-
     private record Candidate(Path classFile, String binaryName) {
     }
-
-    private record ClassMetadata(String binaryName, boolean topLevel) {
-    }
 }
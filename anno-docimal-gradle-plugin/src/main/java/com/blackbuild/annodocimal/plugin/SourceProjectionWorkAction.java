@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin;
+
+import com.blackbuild.annodocimal.generator.DeclarationVisibility;
+import com.blackbuild.annodocimal.generator.ProjectionPolicy;
+import com.blackbuild.annodocimal.generator.ReferencedClassMetadataCache;
+import com.blackbuild.annodocimal.generator.SourceProjector;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Projects one contiguous slice of the candidates selected by {@link SourceProjectionTask} into its staging directory,
+ * or the task's classes JAR into its sources JAR.
+ *
+ * <p>The action runs without class-loader isolation, because Gradle hands build services such as the build-wide
+ * {@link ReferencedClassMetadataService} only to actions without isolation. It resolves referenced declarations from
+ * the task's referenced classpath through that service's cache and the persistent referenced-class index. It is an
+ * implementation detail of the task and not supported API.</p>
+ */
+@NullMarked
+public abstract class SourceProjectionWorkAction implements WorkAction<SourceProjectionWorkAction.Parameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(SourceProjectionWorkAction.class);
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        ProjectionPolicy policy = ProjectionPolicy.builder()
+                .includedVisibilities(parameters.getIncludedVisibilities().get())
+                .includeNestedDeclarations(parameters.getNestedDeclarationsIncluded().get())
+                .includeSyntheticDeclarations(parameters.getSyntheticDeclarationsIncluded().get())
+                .includeGroovyRuntimeArtifacts(parameters.getGroovyRuntimeArtifactsIncluded().get())
+                .build();
+        ReferencedClassMetadataCache cache = parameters.getReferencedClassMetadataService().get().getCache();
+        SourceProjector.Builder builder = SourceProjector.builder(policy)
+                .referencedClasspath(parameters.getReferencedClasspath().get().stream().map(Paths::get).toList())
+                .referencedClassIndexDirectory(parameters.getReferencedClassIndexDirectory().get().getAsFile().toPath())
+                .referencedClassMetadataCache(cache)
+                .documentationClasspath(parameters.getDocumentationClasspath().get().stream().map(Paths::get).toList());
+        if (parameters.getProjectionCacheDirectory().isPresent()) {
+            builder.projectionCacheDirectory(parameters.getProjectionCacheDirectory().get().getAsFile().toPath());
+        }
+        Map<String, Set<String>> references = new ConcurrentHashMap<>();
+        if (parameters.getReferencesFile().isPresent()) {
+            builder.referenceListener((classFile, names) -> references.put(classFile.toString(), names));
+        }
+        SourceProjector projector = builder.build();
+        try {
+            if (parameters.getSourcesJar().isPresent()) {
+                projector.projectJar(parameters.getClassesJar().get().getAsFile().toPath(),
+                        SourceProjectionTask.selection(parameters.getIncludes().get(), parameters.getExcludes().get()),
+                        parameters.getSourcesJar().get().getAsFile().toPath());
+            } else {
+                Path stagingDirectory = parameters.getStagingDirectory().get().getAsFile().toPath();
+                projector.projectAll(parameters.getClassFiles().get().stream().map(Paths::get).toList(),
+                        stagingDirectory);
+                if (parameters.getReferencesFile().isPresent()) {
+                    writeReferences(parameters.getReferencesFile().get().getAsFile().toPath(), references);
+                }
+            }
+        } catch (IOException exception) {
+            throw new GradleException("Could not project selected source classes", exception);
+        }
+        LOGGER.info("Referenced-class metadata cache holds {} of at most {} classes after {} hits, {} misses, "
+                        + "and {} evictions", cache.getCachedClasses(), cache.getMaximumClasses(), cache.getHitCount(),
+                cache.getMissCount(), cache.getEvictionCount());
+    }
+
+    /**
+     * Writes one line per looked-up declaration: its internal name, a tab, and the projected class file.
+     */
+    static void writeReferences(Path file, Map<String, Set<String>> references) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Set<String>> entry : new TreeMap<>(references).entrySet()) {
+                for (String name : entry.getValue()) {
+                    writer.write(name);
+                    writer.write('\t');
+                    writer.write(entry.getKey());
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the projected class files and the declarations each looked up from a file written by
+     * {@link #writeReferences(Path, Map)}.
+     */
+    static Map<String, Set<String>> readReferences(Path file) throws IOException {
+        Map<String, Set<String>> result = new TreeMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int separator = line.indexOf('\t');
+            if (separator < 0) throw new IOException("Malformed reference line in " + file + ": " + line);
+            result.computeIfAbsent(line.substring(separator + 1), classFile -> new TreeSet<>())
+                    .add(line.substring(0, separator));
+        }
+        return result;
+    }
+
+    /**
+     * Isolated parameters of one projection slice.
+     */
+    public interface Parameters extends WorkParameters {
+
+        /**
+         * Absolute paths of the selected top-level class files, in binary-name order.
+         *
+         * @return class files of this slice
+         */
+        ListProperty<String> getClassFiles();
+
+        /**
+         * Staging directory shared by all slices of one task execution.
+         *
+         * @return staging directory
+         */
+        DirectoryProperty getStagingDirectory();
+
+        /**
+         * File receiving the referenced declarations that the projection of each class file looked up; nothing is
+         * recorded when absent.
+         *
+         * @return references file of this slice
+         */
+        RegularFileProperty getReferencesFile();
+
+        /**
+         * Classes JAR projected in JAR mode.
+         *
+         * @return classes JAR
+         */
+        RegularFileProperty getClassesJar();
+
+        /**
+         * Sources JAR written in JAR mode; the action projects class files into the staging directory when absent.
+         *
+         * @return sources JAR
+         */
+        RegularFileProperty getSourcesJar();
+
+        /**
+         * Include patterns over the classes JAR's entry names in JAR mode.
+         *
+         * @return include patterns
+         */
+        SetProperty<String> getIncludes();
+
+        /**
+         * Exclude patterns over the classes JAR's entry names in JAR mode.
+         *
+         * @return exclude patterns
+         */
+        SetProperty<String> getExcludes();
+
+        /**
+         * Shared service holding the build-wide referenced-class metadata cache.
+         *
+         * @return referenced-class metadata service
+         */
+        Property<ReferencedClassMetadataService> getReferencedClassMetadataService();
+
+        /**
+         * Absolute paths of the task's referenced classpath entries, in classpath order.
+         *
+         * @return referenced classpath
+         */
+        ListProperty<String> getReferencedClasspath();
+
+        /**
+         * Absolute paths of the task's documentation classpath entries, in classpath order.
+         *
+         * @return documentation classpath
+         */
+        ListProperty<String> getDocumentationClasspath();
+
+        /**
+         * Directory holding the persistent referenced-class indexes.
+         *
+         * @return referenced-class index directory
+         */
+        DirectoryProperty getReferencedClassIndexDirectory();
+
+        /**
+         * Directory of the persistent projection cache; projection is uncached when absent.
+         *
+         * @return projection cache directory
+         */
+        DirectoryProperty getProjectionCacheDirectory();
+
+        /**
+         * Included visibilities of the task's projection policy.
+         *
+         * @return included visibilities
+         */
+        SetProperty<DeclarationVisibility> getIncludedVisibilities();
+
+        /**
+         * Nested-declaration switch of the task's projection policy.
+         *
+         * @return whether named nested declarations are included
+         */
+        Property<Boolean> getNestedDeclarationsIncluded();
+
+        /**
+         * Synthetic-declaration switch of the task's projection policy.
+         *
+         * @return whether synthetic declarations are included
+         */
+        Property<Boolean> getSyntheticDeclarationsIncluded();
+
+        /**
+         * Groovy runtime artifact switch of the task's projection policy.
+         *
+         * @return whether Groovy runtime artifacts are included
+         */
+        Property<Boolean> getGroovyRuntimeArtifactsIncluded();
+    }
+}
@@ -25,7 +25,6 @@ package com.blackbuild.annodocimal.plugin
 
 import org.gradle.testkit.runner.BuildResult
 import org.gradle.testkit.runner.GradleRunner
-import org.gradle.testfixtures.ProjectBuilder
 import shadow.asm.ClassReader
 import shadow.asm.ClassWriter
 import shadow.asm.tree.ClassNode
@@ -37,8 +36,12 @@ import spock.lang.Tag
 import spock.lang.TempDir
 
 import javax.tools.ToolProvider
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.BasicFileAttributes
 import java.util.jar.JarEntry
 import java.util.jar.JarOutputStream
+import java.util.zip.ZipFile
 
 class AnnoDocimalPluginTest extends Specification {
 
@@ -105,6 +108,104 @@ class AnnoDocimalPluginTest extends Specification {
         !new File(testProjectDir, 'build/source-mirror/example/Widget_DSL.java').exists()
     }
 
+    def "source mirror re-projects only the roots whose class files changed"() {
+        given:
+        prepareMirrorProject()
+        runMirrorTask('sourceMirror')
+        def unchanged = new File(testProjectDir, 'build/source-mirror/example/Widget_DSL.java')
+        def unchangedSource = unchanged.text
+        def unchangedIdentity = fileIdentity(unchanged)
+        def changedSource = new File(testProjectDir, 'src/main/java/example/ZBridge_DSL.java')
+        changedSource.text = changedSource.text.replace('public String get()', 'public String get() { return ""; }\n    public String other()')
+        def addedSource = new File(testProjectDir, 'src/main/java/example/Added_DSL.java')
+        addedSource.text = 'package example; public class Added_DSL { public static class Inner {} }'
+
+        when:
+        runMirrorTask('sourceMirror')
+
+        then:
+        unchanged.text == unchangedSource
+        fileIdentity(unchanged) == unchangedIdentity
+        new File(testProjectDir, 'build/source-mirror/example/ZBridge_DSL.java').text.contains('public String other()')
+        new File(testProjectDir, 'build/source-mirror/example/Added_DSL.java').text.contains('public static class Inner')
+
+        when:
+        addedSource.delete()
+        runMirrorTask('sourceMirror')
+
+        then:
+        !new File(testProjectDir, 'build/source-mirror/example/Added_DSL.java').exists()
+        fileIdentity(unchanged) == unchangedIdentity
+        new File(testProjectDir, 'build/source-mirror/example').list() as Set == ['Widget_DSL.java', 'ZBridge_DSL.java'] as Set
+    }
+
+    def "source mirror re-projects the roots whose projection looked up a changed class file"() {
+        given: 'a top-level declaration named like a nested one next to the only selected root'
+        prepareReferencedClasspathProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('dependentSourceMirror', SourceProjectionTask) {
+                classesDirectories.from(layout.projectDirectory.dir('classes'))
+                includes.add('**/Schema_DSL.class')
+                outputDirectory.set(layout.buildDirectory.dir('dependent-source-mirror'))
+            }
+        '''.stripIndent()
+        def topLevelSource = new File(testProjectDir, 'fixture-sources/top-level/external/Outer$Nested.java')
+        topLevelSource.parentFile.mkdirs()
+        topLevelSource.text = 'package external; public class Outer$Nested {}'
+        assert ToolProvider.systemJavaCompiler.run(null, null, null, '-d', new File(testProjectDir, 'classes').absolutePath,
+                topLevelSource.absolutePath) == 0
+        def source = new File(testProjectDir, 'build/dependent-source-mirror/schema/Schema_DSL.java')
+        runMirrorTask('dependentSourceMirror')
+        assert source.text.contains('Outer$Nested nested()')
+        def schemaClass = new File(testProjectDir, 'classes/schema/Schema_DSL.class')
+        def schemaIdentity = fileIdentity(schemaClass)
+
+        when: 'only the looked-up class file changes into a nested declaration'
+        new File(testProjectDir, 'referenced-classes/external').eachFile { file ->
+            Files.copy(file.toPath(), new File(testProjectDir, "classes/external/$file.name").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING)
+        }
+        runMirrorTask('dependentSourceMirror')
+
+        then:
+        fileIdentity(schemaClass) == schemaIdentity
+        source.text.contains('Outer.Nested nested()')
+        !source.text.contains('Outer$Nested')
+    }
+
+    def "synchronized source mirror rewrites only changed sources"() {
+        given:
+        prepareMirrorProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.named('sourceMirror') {
+                synchronizeOutput.set(true)
+                if (project.hasProperty('allClasses')) includes.add('**/*.class')
+            }
+        '''.stripIndent()
+        runMirrorTask('sourceMirror')
+        def unchanged = new File(testProjectDir, 'build/source-mirror/example/Widget_DSL.java')
+        def unchangedIdentity = fileIdentity(unchanged)
+        def widgetSource = new File(testProjectDir, 'src/main/java/example/Widget_DSL.java')
+        widgetSource.text = widgetSource.text.replace('public void run() {', 'public void run() { System.gc();')
+        def changedSource = new File(testProjectDir, 'src/main/java/example/ZBridge_DSL.java')
+        changedSource.text = changedSource.text.replace('public String get()', 'public String get() { return ""; }\n    public String other()')
+
+        when: 'both roots are projected again, but only one projects differently'
+        runMirrorTask('sourceMirror')
+
+        then:
+        fileIdentity(unchanged) == unchangedIdentity
+        new File(testProjectDir, 'build/source-mirror/example/ZBridge_DSL.java').text.contains('public String other()')
+
+        when: 'changed patterns require a full projection'
+        runMirrorTask('sourceMirror', '-PallClasses')
+
+        then:
+        new File(testProjectDir, 'build/source-mirror/example/ZBridge_DSL.java').text.contains('public String other()')
+        new File(testProjectDir, 'build/source-mirror/example/Unrelated.java').isFile()
+        new File(testProjectDir, 'build').list().findAll { it.startsWith('source-mirror') } == ['source-mirror']
+    }
+
     @Issue("94")
     @Tag('documentary')
     @See('https://github.com/blackbuild/anno-docimal/blob/master/docs/user/usage.md#source-projection-javadoc-and-ide-mirrors')
@@ -122,21 +223,75 @@ class AnnoDocimalPluginTest extends Specification {
     }
 
     @Issue("94")
-    def "task execution resolves a referenced nested declaration from its configured classpath"() {
+    def "task execution resolves a referenced nested declaration in its worker"() {
+        given:
+        prepareReferencedClasspathProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('sequentialSourceMirror', SourceProjectionTask) {
+                classesDirectories.from(layout.projectDirectory.dir('classes'))
+                referencedClassesClasspath.from(layout.projectDirectory.file('referenced.jar'))
+                includes.add('**/Schema_DSL.class')
+                maxParallelism.set(1)
+                outputDirectory.set(layout.buildDirectory.dir('sequential-source-mirror'))
+                doFirst {
+                    assert Thread.currentThread().contextClassLoader.getResource('external/Outer$Nested.class') == null
+                }
+            }
+        '''.stripIndent()
+
+        when:
+        runMirrorTask('sequentialSourceMirror')
+
+        then:
+        new File(testProjectDir, 'build/sequential-source-mirror/schema/Schema_DSL.java').text.contains('Outer.Nested')
+    }
+
+    def "source mirrors share referenced-class metadata of identical JARs through the build service"() {
+        given:
+        prepareReferencedClasspathProject()
+        Files.copy(new File(testProjectDir, 'referenced.jar').toPath(), new File(testProjectDir, 'copy.jar').toPath())
+        new File(testProjectDir, 'build.gradle') << '''
+            ['referenced', 'copy'].each { name ->
+                tasks.register("${name}SourceMirror", SourceProjectionTask) {
+                    classesDirectories.from(layout.projectDirectory.dir('classes'))
+                    referencedClassesClasspath.from(layout.projectDirectory.file("${name}.jar"))
+                    referencedClassIndexDirectory.set(layout.buildDirectory.dir("${name}-index"))
+                    includes.add('**/Schema_DSL.class')
+                    outputDirectory.set(layout.buildDirectory.dir("${name}-source-mirror"))
+                }
+            }
+            tasks.named('copySourceMirror') { mustRunAfter('referencedSourceMirror') }
+        '''.stripIndent()
+
+        when:
+        runMirrorTask('referencedSourceMirror', 'copySourceMirror')
+
+        then: 'the copy is resolved from the cached metadata without being indexed again'
+        def source = new File(testProjectDir, 'build/referenced-source-mirror/schema/Schema_DSL.java').text
+        source.contains('Outer.Nested')
+        new File(testProjectDir, 'build/copy-source-mirror/schema/Schema_DSL.java').text == source
+        !new File(testProjectDir, 'build/copy-index').exists()
+    }
+
+    def "the size of the shared referenced-class metadata cache is configurable and its statistics are logged"() {
         given:
         prepareReferencedClasspathProject()
-        def project = ProjectBuilder.builder().withProjectDir(testProjectDir).build()
-        def task = project.tasks.create('sourceMirror', SourceProjectionTask)
-        task.classesDirectories.from(new File(testProjectDir, 'classes'))
-        task.referencedClassesClasspath.from(new File(testProjectDir, 'referenced.jar'))
-        task.includes.add('**/Schema_DSL.class')
-        task.outputDirectory.set(new File(testProjectDir, 'in-process-source-mirror'))
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('boundedSourceMirror', SourceProjectionTask) {
+                classesDirectories.from(layout.projectDirectory.dir('classes'))
+                referencedClassesClasspath.from(layout.projectDirectory.file('referenced.jar'))
+                includes.add('**/Schema_DSL.class')
+                outputDirectory.set(layout.buildDirectory.dir('bounded-source-mirror'))
+            }
+        '''.stripIndent()
 
         when:
-        task.projectSources()
+        def result = runMirrorTask('boundedSourceMirror', '--info',
+                '-Pannodocimal.referencedClassMetadataCache.maximumClasses=3')
 
         then:
-        new File(testProjectDir, 'in-process-source-mirror/schema/Schema_DSL.java').text.contains('Outer.Nested')
+        new File(testProjectDir, 'build/bounded-source-mirror/schema/Schema_DSL.java').text.contains('Outer.Nested')
+        result.output =~ /Referenced-class metadata cache holds [1-3] of at most 3 classes after \d+ hits, [1-9]\d* misses, and \d+ evictions/
     }
 
     @Issue("94")
@@ -261,23 +416,162 @@ class AnnoDocimalPluginTest extends Specification {
     }
 
     @Issue("35")
-    def "source mirror leaves the previous managed output intact when projection fails"() {
+    def "source mirror leaves the previous managed output intact when an incremental projection fails"() {
         given:
         prepareMirrorProject()
         runMirrorTask('sourceMirror')
         def projectedSource = new File(testProjectDir, 'build/source-mirror/example/Widget_DSL.java').text
+        new File(testProjectDir, 'build/classes/java/main/example/ZBridge_DSL.class').text = 'no class file'
+
+        when: 'an incremental projection fails'
+        def result = runMirrorTaskAndFail('sourceMirror', '-x', 'compileJava')
+
+        then:
+        result.output.contains('example/ZBridge_DSL.class')
+        new File(testProjectDir, 'build/source-mirror/example/Widget_DSL.java').text == projectedSource
+        new File(testProjectDir, 'build/source-mirror/example/ZBridge_DSL.java').isFile()
+    }
+
+    def "source mirror output does not depend on its maximum parallelism"() {
+        given:
+        prepareMirrorProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('sequentialSourceMirror', SourceProjectionTask) {
+                classesDirectories.from(sourceSets.main.output.classesDirs)
+                includes.add('**/*.class')
+                maxParallelism.set(1)
+                outputDirectory.set(layout.buildDirectory.dir('sequential-source-mirror'))
+            }
+            tasks.register('parallelSourceMirror', SourceProjectionTask) {
+                classesDirectories.from(sourceSets.main.output.classesDirs)
+                includes.add('**/*.class')
+                maxParallelism.set(3)
+                outputDirectory.set(layout.buildDirectory.dir('parallel-source-mirror'))
+            }
+        '''.stripIndent()
+
+        when:
+        runMirrorTask('sequentialSourceMirror', 'parallelSourceMirror', '--max-workers=3')
+
+        then:
+        def sequential = new File(testProjectDir, 'build/sequential-source-mirror')
+        def parallel = new File(testProjectDir, 'build/parallel-source-mirror')
+        projectedSources(parallel) == projectedSources(sequential)
+        projectedSources(sequential).keySet() == ['example/Unrelated.java', 'example/Widget_DSL.java', 'example/ZBridge_DSL.java'] as Set
+    }
+
+    def "source mirrors sharing a projection cache write uncached sources"() {
+        given:
+        prepareMirrorProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('uncachedSourceMirror', SourceProjectionTask) {
+                classesDirectories.from(sourceSets.main.output.classesDirs)
+                includes.add('**/*.class')
+                outputDirectory.set(layout.buildDirectory.dir('uncached-source-mirror'))
+            }
+            ['first', 'second'].each { name ->
+                tasks.register("${name}CachedSourceMirror", SourceProjectionTask) {
+                    classesDirectories.from(sourceSets.main.output.classesDirs)
+                    includes.add('**/*.class')
+                    projectionCacheDirectory.set(layout.projectDirectory.dir('projection-cache'))
+                    outputDirectory.set(layout.buildDirectory.dir("${name}-cached-source-mirror"))
+                }
+            }
+        '''.stripIndent()
+
+        when:
+        runMirrorTask('uncachedSourceMirror', 'firstCachedSourceMirror')
+        runMirrorTask('secondCachedSourceMirror')
+
+        then:
+        def uncached = projectedSources(new File(testProjectDir, 'build/uncached-source-mirror'))
+        projectedSources(new File(testProjectDir, 'build/first-cached-source-mirror')) == uncached
+        projectedSources(new File(testProjectDir, 'build/second-cached-source-mirror')) == uncached
+        new File(testProjectDir, 'projection-cache').listFiles().collectMany { it.listFiles().toList() }
+                .findAll { it.name.endsWith('.java') }*.text as Set == uncached.values() as Set
+    }
+
+    def "sources JAR mode projects a classes JAR without expanding it"() {
+        given:
+        prepareMirrorProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('sourcesJarMirror', SourceProjectionTask) {
+                classesJar.set(tasks.named('jar').flatMap { it.archiveFile })
+                includes.add('**/*_DSL.class')
+                sourcesJar.set(layout.buildDirectory.file('mirror/source-mirror-sources.jar'))
+            }
+        '''.stripIndent()
+        def sourcesJar = new File(testProjectDir, 'build/mirror/source-mirror-sources.jar')
+
+        when:
+        runMirrorTask('sourcesJarMirror')
+        byte[] first = sourcesJar.bytes
+
+        then:
+        jarEntries(sourcesJar).keySet().toList() == ['example/Widget_DSL.java', 'example/ZBridge_DSL.java']
+        jarEntries(sourcesJar)['example/Widget_DSL.java'] ==
+                getClass().getResource('/com/blackbuild/annodocimal/plugin/Widget_DSL.java.txt').text
+        new File(testProjectDir, 'build/mirror').list() as Set == ['source-mirror-sources.jar'] as Set
+
+        when:
+        runMirrorTask('sourcesJarMirror', '--rerun-tasks')
+
+        then:
+        sourcesJar.bytes == first
+    }
+
+    def "stripped classes JARs project like the original with their documentation JAR"() {
+        given:
+        prepareMirrorProject()
+        new File(testProjectDir, 'build.gradle') << '''
+            tasks.register('stripDocumentation', com.blackbuild.annodocimal.plugin.DocumentationStrippingTask) {
+                classesJar.set(tasks.named('jar').flatMap { it.archiveFile })
+                strippedJar.set(layout.buildDirectory.file('stripped/source-mirror-test.jar'))
+                documentationJar.set(layout.buildDirectory.file('stripped/source-mirror-test-documentation.jar'))
+            }
+
+            tasks.register('strippedSourcesJarMirror', SourceProjectionTask) {
+                classesJar.set(tasks.named('stripDocumentation').flatMap { it.strippedJar })
+                documentationClasspath.from(tasks.named('stripDocumentation').flatMap { it.documentationJar })
+                includes.add('**/*_DSL.class')
+                sourcesJar.set(layout.buildDirectory.file('mirror/source-mirror-sources.jar'))
+            }
+        '''.stripIndent()
+        def strippedJar = new File(testProjectDir, 'build/stripped/source-mirror-test.jar')
+        def documentationJar = new File(testProjectDir, 'build/stripped/source-mirror-test-documentation.jar')
+
+        when:
+        runMirrorTask('strippedSourcesJarMirror')
+
+        then:
+        !jarEntries(strippedJar)['example/Widget_DSL.class'].contains('DSL documentation')
+        jarEntries(documentationJar).keySet().toList() == ['example/Widget_DSL__annodoc.properties']
+        jarEntries(new File(testProjectDir, 'build/mirror/source-mirror-sources.jar'))['example/Widget_DSL.java'] ==
+                getClass().getResource('/com/blackbuild/annodocimal/plugin/Widget_DSL.java.txt').text
+
+        when:
+        BuildResult result = runMirrorTask('strippedSourcesJarMirror')
+
+        then:
+        result.output.contains(':stripDocumentation UP-TO-DATE')
+        result.output.contains(':strippedSourcesJarMirror UP-TO-DATE')
+    }
+
+    def "sources JAR mode rejects a configured output directory"() {
+        given:
+        prepareMirrorProject()
         new File(testProjectDir, 'build.gradle') << '''
             tasks.named('sourceMirror') {
-                projectionPolicy.set(ProjectionPolicy.builder().includeSyntheticDeclarations(true).build())
+                classesJar.set(tasks.named('jar').flatMap { it.archiveFile })
+                sourcesJar.set(layout.buildDirectory.file('source-mirror-sources.jar'))
             }
         '''.stripIndent()
 
         when:
-        def result = runMirrorTaskAndFail('sourceMirror')
+        BuildResult result = runMirrorTaskAndFail('sourceMirror')
 
         then:
-        result.output.contains('Selected bytecode methods cannot both be represented in Java: example.ZBridge_DSL#get')
-        new File(testProjectDir, 'build/source-mirror/example/Widget_DSL.java').text == projectedSource
+        result.output.contains('SourceProjectionTask projects either classesDirectories into outputDirectory or classesJar into sourcesJar')
     }
 
     @Issue("35")
@@ -332,6 +626,25 @@ class AnnoDocimalPluginTest extends Specification {
                 .buildAndFail()
     }
 
+    private static List<Object> fileIdentity(File file) {
+        def attributes = Files.readAttributes(file.toPath(), BasicFileAttributes)
+        [attributes.fileKey(), attributes.lastModifiedTime()]
+    }
+
+    private static Map<String, String> projectedSources(File directory) {
+        def result = [:]
+        directory.eachFileRecurse { file ->
+            if (file.isFile()) result[directory.toPath().relativize(file.toPath()).toString().replace(File.separator, '/')] = file.text
+        }
+        result
+    }
+
+    private static Map<String, String> jarEntries(File jar) {
+        new ZipFile(jar).withCloseable { zip ->
+            zip.entries().toList().collectEntries { [(it.name): zip.getInputStream(it).getText('UTF-8')] }
+        }
+    }
+
     private void prepareMirrorProject() {
         new File(testProjectDir, 'settings.gradle').text = "rootProject.name = 'source-mirror-test'"
         new File(testProjectDir, 'build.gradle').text = """
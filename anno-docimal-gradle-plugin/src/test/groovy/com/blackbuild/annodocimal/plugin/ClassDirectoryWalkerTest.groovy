@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ClassDirectoryWalkerTest extends Specification {
+
+    @TempDir
+    Path classesDirectory
+
+    def "literal prefix of #pattern is '#prefix'"() {
+        expect:
+        ClassDirectoryWalker.literalPrefix(pattern) == prefix
+
+        where:
+        pattern                         || prefix
+        '**/*.class'                    || ''
+        'com/acme/api/**'               || 'com/acme/api'
+        'com/acme/api/**/*_DSL.class'   || 'com/acme/api'
+        'com/acme/Widget.class'         || 'com/acme'
+        'com\\acme/ap?/Widget.class'    || 'com/acme'
+        'com/**/internal/**'            || 'com'
+        'Widget.class'                  || ''
+    }
+
+    def "only directories on the way to or below an include prefix are entered"() {
+        given:
+        def walker = new ClassDirectoryWalker(['com/acme/api/**', 'org/example/Widget.class'])
+
+        expect:
+        walker.mayContainMatches('')
+        walker.mayContainMatches('com')
+        walker.mayContainMatches('com/acme')
+        walker.mayContainMatches('com/acme/api')
+        walker.mayContainMatches('com/acme/api/deep/er')
+        walker.mayContainMatches('org/example')
+        !walker.mayContainMatches('com/acme/apiary')
+        !walker.mayContainMatches('com/other')
+        !walker.mayContainMatches('org/example/nested')
+        !walker.mayContainMatches('net')
+
+        and: 'single-segment wildcards reach a fixed depth'
+        def fixedDepth = new ClassDirectoryWalker(['com/*/Widget.class'])
+        fixedDepth.mayContainMatches('com/any')
+        !fixedDepth.mayContainMatches('com/any/deeper')
+    }
+
+    def "pruned walks list the reachable class files and documentation resources in path order"() {
+        given:
+        ['com/acme/api/Api.class', 'com/acme/api/Api$Nested.class', 'com/acme/api/Api__annodoc.properties',
+         'com/acme/api/deep/Deep.class',
+         'com/acme/api/notes.txt', 'com/acme/Impl.class', 'com/other/Other.class', 'org/example/Widget.class',
+         'org/example/Gadget.class', 'org/example/nested/Hidden.class'].each { path ->
+            def file = classesDirectory.resolve(path)
+            Files.createDirectories(file.parent)
+            Files.write(file, new byte[0])
+        }
+
+        when:
+        def files = new ClassDirectoryWalker(['com/acme/api/**', 'org/example/Widget.class']).classFiles(classesDirectory)
+
+        then:
+        files.toList() == ['com/acme/Impl.class', 'com/acme/api/Api$Nested.class', 'com/acme/api/Api.class',
+                           'com/acme/api/Api__annodoc.properties', 'com/acme/api/deep/Deep.class', 'org/example/Gadget.class',
+                                    'org/example/Widget.class'].collect { classesDirectory.resolve(it).toString() }
+
+        expect:
+        new ClassDirectoryWalker([]).classFiles(classesDirectory).isEmpty()
+        new ClassDirectoryWalker(['**/*.class']).classFiles(classesDirectory).size() == 9
+    }
+}
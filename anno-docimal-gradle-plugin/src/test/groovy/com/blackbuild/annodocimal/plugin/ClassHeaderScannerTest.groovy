@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin
+
+import org.gradle.api.GradleException
+import shadow.asm.ClassWriter
+import shadow.asm.Opcodes
+import spock.lang.Specification
+import spock.lang.Tag
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+class ClassHeaderScannerTest extends Specification {
+
+    @TempDir
+    Path classesDirectory
+
+    def "top-level classes are named and nested classes are rejected"() {
+        given:
+        def top = write('example/Größe', 'example/Groesse') { ClassWriter writer ->
+            writer.visitInnerClass('example/Größe$Member', 'example/Größe', 'Member', Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC)
+            writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, 'LONG', 'J', null, 42L).visitEnd()
+            writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, 'DOUBLE', 'D', null, 4.2d).visitEnd()
+            def method = writer.visitMethod(Opcodes.ACC_PUBLIC, 'value', '()Ljava/lang/String;', null, null)
+            method.visitCode()
+            method.visitLdcInsn('constant')
+            method.visitInsn(Opcodes.ARETURN)
+            method.visitMaxs(1, 1)
+            method.visitEnd()
+        }
+        def member = write('example/Outer$Member') { ClassWriter writer ->
+            writer.visitInnerClass('example/Outer$Member', 'example/Outer', 'Member', Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC)
+        }
+        def anonymous = write('example/Outer$1') { ClassWriter writer ->
+            writer.visitOuterClass('example/Outer', 'value', '()Ljava/lang/String;')
+        }
+        def dollar = write('example/Legal$Name') { ClassWriter writer -> }
+
+        expect:
+        ClassHeaderScanner.topLevelBinaryName(top) == 'example.Größe'
+        ClassHeaderScanner.topLevelBinaryName(member) == null
+        ClassHeaderScanner.topLevelBinaryName(anonymous) == null
+        ClassHeaderScanner.topLevelBinaryName(dollar) == 'example.Legal$Name'
+    }
+
+    def "large class files are mapped"() {
+        given:
+        def large = write('example/Large') { ClassWriter writer ->
+            (0..1).each { index ->
+                writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "TEXT$index",
+                        'Ljava/lang/String;', null, "$index" * 40_000).visitEnd()
+            }
+        }
+
+        expect:
+        Files.size(large) > ClassHeaderScanner.MAPPING_THRESHOLD
+        ClassHeaderScanner.topLevelBinaryName(large) == 'example.Large'
+    }
+
+    def "unreadable class files fail with their path"() {
+        given:
+        def complete = Files.readAllBytes(write('example/Truncated') { ClassWriter writer -> })
+        def truncated = Files.write(classesDirectory.resolve('example/Truncated.class'), Arrays.copyOf(complete, 20))
+        def foreign = Files.writeString(classesDirectory.resolve('example/Foreign.class'), 'not a class file')
+
+        when:
+        ClassHeaderScanner.topLevelBinaryName(truncated)
+
+        then:
+        GradleException truncatedFailure = thrown()
+        truncatedFailure.message == "Could not read class metadata from $truncated"
+
+        when:
+        ClassHeaderScanner.topLevelBinaryName(foreign)
+
+        then:
+        GradleException foreignFailure = thrown()
+        foreignFailure.message == "Not a class file: $foreign"
+    }
+
+    @Tag('benchmark')
+    def "a directory of 50k class files is scanned"() {
+        given: 'half top-level classes, half their member classes'
+        int count = 50_000
+        List<Path> classFiles = (0..<count).collect { index ->
+            String owner = "bench/p${index % 100}/Type${index >> 1}"
+            index % 2 == 0
+                    ? write(owner) { ClassWriter writer -> writer.visitInnerClass("$owner\$Member", owner, 'Member', Opcodes.ACC_STATIC) }
+                    : write("$owner\$Member") { ClassWriter writer -> writer.visitInnerClass("$owner\$Member", owner, 'Member', Opcodes.ACC_STATIC) }
+        }
+
+        when:
+        long start = System.nanoTime()
+        List<String> topLevel = classFiles.collect { ClassHeaderScanner.topLevelBinaryName(it) }.findAll()
+        long elapsed = System.nanoTime() - start
+
+        then: 'reading only the class headers keeps the scan well within a few seconds'
+        topLevel.size() == count.intdiv(2)
+        topLevel.every { !it.contains('$') }
+        Duration.ofNanos(elapsed) < Duration.ofSeconds(10)
+    }
+
+    private Path write(String internalName, Closure<?> body) {
+        write(internalName, internalName, body)
+    }
+
+    // Non-ASCII class names are written to ASCII file names, which the file system encoding may otherwise reject.
+    private Path write(String internalName, String fileName, Closure<?> body) {
+        def writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, 'java/lang/Object', null)
+        body(writer)
+        writer.visitEnd()
+        Path classFile = classesDirectory.resolve("${fileName}.class")
+        Files.createDirectories(classFile.parent)
+        Files.write(classFile, writer.toByteArray())
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2024-2026 Stephan Pauxberger
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.blackbuild.annodocimal.plugin
+
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
+
+class IncrementalAnnotationProcessingTest extends Specification {
+
+    @TempDir
+    File testProjectDir
+
+    def setup() {
+        String annotationsJar = System.getProperty("anno.docimal.annotations.jar").replace('\\', '/')
+        String aptJar = System.getProperty("anno.docimal.apt.jar").replace('\\', '/')
+        file('settings.gradle').text = "rootProject.name = 'incremental'"
+        file('build.gradle').text = """
+            plugins {
+                id 'java'
+            }
+
+            dependencies {
+                compileOnly files('$annotationsJar')
+                annotationProcessor files('$aptJar', '$annotationsJar')
+            }
+        """
+        file('src/main/java/example/Outer.java').text = '''
+            package example;
+
+            import com.blackbuild.annodocimal.annotations.InlineJavadocs;
+
+            /** The outer class. */
+            @InlineJavadocs
+            public class Outer {
+                /** A nested class. */
+                public static class Nested {}
+            }
+        '''
+        file('src/main/java/example/Other.java').text = '''
+            package example;
+
+            import com.blackbuild.annodocimal.annotations.InlineJavadocs;
+
+            /** Another class. */
+            @InlineJavadocs
+            public class Other {}
+        '''
+        file('src/main/java/example/Plain.java').text = '''
+            package example;
+
+            public class Plain {}
+        '''
+    }
+
+    def "a single-file edit recompiles and re-documents only that file"() {
+        given:
+        compile()
+        def untouched = ['Outer.class', 'Outer$Nested.class', 'Plain.class', 'Outer__annodoc.properties',
+                         'Outer$Nested__annodoc.properties'].collectEntries { [(it): fileIdentity(output(it))] }
+        def other = fileIdentity(output('Other.class'))
+        file('src/main/java/example/Other.java').text = file('src/main/java/example/Other.java').text
+                .replace('Another class.', 'Another, edited class.')
+
+        when:
+        BuildResult result = compile()
+
+        then:
+        !result.output.contains('Full recompilation is required')
+        result.output.contains('Incremental compilation of 1 classes completed')
+        untouched.every { name, identity -> fileIdentity(output(name)) == identity }
+        fileIdentity(output('Other.class')) != other
+        properties('Other__annodoc.properties') == [classDoc: 'Another, edited class.']
+    }
+
+    def "documentation of removed nested and top-level types is deleted"() {
+        given:
+        compile()
+        def other = fileIdentity(output('Other__annodoc.properties'))
+        file('src/main/java/example/Outer.java').text = file('src/main/java/example/Outer.java').text
+                .replace('/** A nested class. */', '').replace('public static class Nested {}', '')
+
+        when:
+        BuildResult result = compile()
+
+        then:
+        !result.output.contains('Full recompilation is required')
+        !output('Outer$Nested.class').exists()
+        !output('Outer$Nested__annodoc.properties').exists()
+        properties('Outer__annodoc.properties') == [classDoc: 'The outer class.']
+        fileIdentity(output('Other__annodoc.properties')) == other
+
+        when:
+        file('src/main/java/example/Outer.java').delete()
+        result = compile()
+
+        then:
+        !result.output.contains('Full recompilation is required')
+        !output('Outer.class').exists()
+        !output('Outer__annodoc.properties').exists()
+        fileIdentity(output('Other__annodoc.properties')) == other
+    }
+
+    def "bundling documentation recompiles every source"() {
+        given:
+        file('build.gradle') << """
+            tasks.named('compileJava') {
+                options.compilerArgs += ['-Aannodocimal.output=bundle']
+            }
+        """
+        compile()
+        file('src/main/java/example/Other.java').text = file('src/main/java/example/Other.java').text
+                .replace('Another class.', 'Another, edited class.')
+
+        when:
+        BuildResult result = compile()
+
+        then:
+        result.output.contains('Full recompilation is required')
+        new File(testProjectDir, 'build/classes/java/main/META-INF/annodocimal/documentation.idx').text.contains('Another, edited class.')
+        !output('Other__annodoc.properties').exists()
+    }
+
+    private BuildResult compile() {
+        GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments('compileJava', '--info')
+                .forwardOutput()
+                .build()
+    }
+
+    private File file(String path) {
+        File result = new File(testProjectDir, path)
+        result.parentFile.mkdirs()
+        result
+    }
+
+    private File output(String name) {
+        new File(testProjectDir, "build/classes/java/main/example/$name")
+    }
+
+    private Map<String, String> properties(String name) {
+        def properties = new Properties()
+        output(name).withInputStream { properties.load(it) }
+        properties as Map<String, String>
+    }
+
+    private static List<Object> fileIdentity(File file) {
+        def attributes = Files.readAttributes(file.toPath(), BasicFileAttributes)
+        [attributes.fileKey(), attributes.lastModifiedTime()]
+    }
+}
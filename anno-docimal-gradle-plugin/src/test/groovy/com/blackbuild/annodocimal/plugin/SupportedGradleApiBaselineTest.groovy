@@ -31,21 +31,28 @@ import java.lang.reflect.Modifier
 @Issue("35")
 class SupportedGradleApiBaselineTest extends Specification {
 
+    private static final List<Class<?>> SUPPORTED_TYPES = [
+            SourceProjectionTask,
+            DocumentationStrippingTask
+    ]
+
     def "the supported Gradle task API matches its checked-in compatibility baseline"() {
         expect:
         actualSignatures() == baselineSignatures()
     }
 
     private static List<String> actualSignatures() {
-        (["type ${Modifier.toString(SourceProjectionTask.modifiers)} ${SourceProjectionTask.name}"] +
-                SourceProjectionTask.declaredAnnotations.findAll {
-                    it.annotationType().packageName == 'org.jspecify.annotations'
-                }.collect { annotation ->
-                    "annotation ${SourceProjectionTask.name}:${annotation.annotationType().name}"
-                } +
-                SourceProjectionTask.declaredMethods.findAll { Modifier.isPublic(it.modifiers) }.collect { method ->
-                    "method ${SourceProjectionTask.name}#${method.name}(${method.genericParameterTypes*.typeName.join(',')}):${method.genericReturnType.typeName}"
-                }).sort()
+        SUPPORTED_TYPES.collectMany { type ->
+            ["type ${Modifier.toString(type.modifiers)} ${type.name}"] +
+                    type.declaredAnnotations.findAll {
+                        it.annotationType().packageName == 'org.jspecify.annotations'
+                    }.collect { annotation ->
+                        "annotation ${type.name}:${annotation.annotationType().name}"
+                    } +
+                    type.declaredMethods.findAll { Modifier.isPublic(it.modifiers) }.collect { method ->
+                        "method ${type.name}#${method.name}(${method.genericParameterTypes*.typeName.join(',')}):${method.genericReturnType.typeName}"
+                    }
+        }.sort()
     }
 
     private static List<String> baselineSignatures() {